@@ -4,20 +4,27 @@ import com.amr.raytracer.math.Vector3D;
 import com.amr.raytracer.objects.Object3D;
 import com.amr.raytracer.objects.Plane;
 import com.amr.raytracer.objects.Sphere;
+import com.amr.raytracer.rendering.CancellationToken;
+import com.amr.raytracer.rendering.Material;
+import com.amr.raytracer.rendering.RenderCheckpoint;
 import com.amr.raytracer.rendering.RenderEngine;
+import com.amr.raytracer.rendering.RenderSettings;
+import com.amr.raytracer.rendering.RenderStatistics;
 import com.amr.raytracer.rendering.Scene;
 import com.amr.raytracer.rendering.cameras.PerspectiveCamera;
 import com.amr.raytracer.rendering.lights.Light;
 import com.amr.raytracer.rendering.lights.PointLight;
+import com.amr.raytracer.tools.SceneReader;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 
-import static com.amr.raytracer.tools.ObjReader.loadModel;
+import static com.amr.raytracer.tools.ObjReader.loadModelAsync;
 
 /**
  * The {@code JavaRaytracer} class is the responsible for the principal functionality of this project's raytracer.
@@ -37,25 +44,57 @@ public class JavaRaytracer {
     /**
      * Creates all the {@code Object3D} and {@code Light} for the {@code Scene}, as well as its {@code Camera}.
      * Then, it can then be rendered using the {@code RenderEngine} class and later be saved to a file. The current
-     * {@code LocalDateTime} is printed to estimate the time the render took to be completed.
+     * {@code LocalDateTime} is printed to estimate the time the render took to be completed, followed by the
+     * {@code RenderStatistics} of all the renders.<br>
+     * If scene files are given as arguments, they are loaded with the {@code SceneReader} and rendered instead of the
+     * sample scenes, each of them saved with the name of its file. Their finished tiles are kept in a
+     * {@code RenderCheckpoint} next to the image until it is saved, so a render that was interrupted resumes where it
+     * was if the scene has not changed.
      *
      * @param args the arguments sent to the program via command line.
+     * @see SceneReader
      */
     public static void main(String[] args) {
         System.out.println(LocalDateTime.now());
 
         BufferedImage image;
-        image = RenderEngine.render(getTeapotScene(), 400, 16f / 9);
+        RenderSettings settings = new RenderSettings();
+        RenderStatistics statistics = new RenderStatistics();
+        if (args.length > 0) {
+            for (String filename : args) {
+                Scene scene = SceneReader.loadScene(filename);
+                String sceneHash = SceneReader.getSceneHash(filename);
+                if (scene == null || sceneHash == null) continue;
+                String name = new File(filename).getName().replaceFirst("\\.[^.]*$", "");
+                RenderCheckpoint checkpoint = new RenderCheckpoint(Paths.get("renders", name + ".checkpoint"),
+                        sceneHash);
+                image = RenderEngine.render(scene, 400, 16f / 9, settings, statistics, new CancellationToken(),
+                        checkpoint).toImage();
+                if (saveImage(image, name + ".png")) checkpoint.delete();
+            }
+            System.out.println(statistics);
+            System.out.println(LocalDateTime.now());
+            return;
+        }
+
+        // The models of every scene are loaded in the background while the previous scenes are rendered
+        Scene teapotScene = getTeapotScene();
+        Scene appleScene = getAppleScene();
+        Scene floorSphereScene = getFloorSphereScene();
+        Scene spheresScene = getSpheresScene();
+        Scene mikeScene = getMikeScene();
+        image = RenderEngine.render(teapotScene, 400, 16f / 9, settings, statistics);
         saveImage(image, "teapot.png");
-        image = RenderEngine.render(getAppleScene(), 400, 16f / 9);
+        image = RenderEngine.render(appleScene, 400, 16f / 9, settings, statistics);
         saveImage(image, "apple.png");
-        image = RenderEngine.render(getFloorSphereScene(), 400, 16f / 9);
+        image = RenderEngine.render(floorSphereScene, 400, 16f / 9, settings, statistics);
         saveImage(image, "sphere.png");
-        image = RenderEngine.render(getSpheresScene(), 400, 16f / 9);
+        image = RenderEngine.render(spheresScene, 400, 16f / 9, settings, statistics);
         saveImage(image, "spheres.png");
-        image = RenderEngine.render(getMikeScene(), 400, 16f / 9);
+        image = RenderEngine.render(mikeScene, 400, 16f / 9, settings, statistics);
         saveImage(image, "mike.png");
 
+        System.out.println(statistics);
         System.out.println(LocalDateTime.now());
     }
 
@@ -65,13 +104,15 @@ public class JavaRaytracer {
      *
      * @param image    the {@code BufferedImage} to save.
      * @param filename the name of the file.
+     * @return {@code true} if the image was saved.
      */
-    public static void saveImage(BufferedImage image, String filename) {
+    public static boolean saveImage(BufferedImage image, String filename) {
         try {
             File file = new File("renders/" + filename);
-            ImageIO.write(image, "png", file);
+            return ImageIO.write(image, "png", file);
         } catch (IOException e) {
             System.err.println("There was an error saving the image." + e);
+            return false;
         }
     }
 
@@ -80,7 +121,7 @@ public class JavaRaytracer {
         scene.setCamera(new PerspectiveCamera(new Vector3D(0, 2, -2), 0, 20,
                 0.1,10000, 60));
         scene.addObject(new Plane(0, Color.GRAY));
-        scene.addObject(loadModel("models/SmallTeapot.obj", new Vector3D(), Color.CYAN));
+        scene.addObject(loadModelAsync("models/SmallTeapot.obj", new Vector3D(), Color.CYAN));
         scene.addLight(new PointLight(new Vector3D(0, 4, 0), Color.WHITE, 30));
         return scene;
     }
@@ -89,12 +130,13 @@ public class JavaRaytracer {
         Scene scene = new Scene();
         scene.setCamera(new PerspectiveCamera(new Vector3D(0, 2, -7), 0, 15,
                 0.1,10000, 60));
+        Material mirror = new Material(0.3, 0.18, 1.9, 200, 1);
         scene.addObject(new Plane(0, Color.DARK_GRAY));
-        scene.addObject(new Sphere(new Vector3D(-6,1,0), 1, Color.ORANGE));
-        scene.addObject(new Sphere(new Vector3D(-3,1,0), 1, Color.ORANGE));
-        scene.addObject(new Sphere(new Vector3D(0,1,0), 1, Color.ORANGE));
-        scene.addObject(new Sphere(new Vector3D(3,1,0), 1, Color.ORANGE));
-        scene.addObject(new Sphere(new Vector3D(6,1,0), 1, Color.ORANGE));
+        scene.addObject(new Sphere(new Vector3D(-6,1,0), 1, Color.ORANGE, mirror));
+        scene.addObject(new Sphere(new Vector3D(-3,1,0), 1, Color.ORANGE, mirror));
+        scene.addObject(new Sphere(new Vector3D(0,1,0), 1, Color.ORANGE, mirror));
+        scene.addObject(new Sphere(new Vector3D(3,1,0), 1, Color.ORANGE, mirror));
+        scene.addObject(new Sphere(new Vector3D(6,1,0), 1, Color.ORANGE, mirror));
         scene.addLight(new PointLight(new Vector3D(0, 6, 0), Color.WHITE, 100));
         return scene;
     }
@@ -104,7 +146,7 @@ public class JavaRaytracer {
         scene.setCamera(new PerspectiveCamera(new Vector3D(0, 5, -5), 0, 25,
                 0.1, 10000, 60));
         scene.addObject(new Plane(0, Color.DARK_GRAY));
-        scene.addObject(loadModel("models/mike.obj", new Vector3D(), new Color(128, 154, 111)));
+        scene.addObject(loadModelAsync("models/mike.obj", new Vector3D(), new Color(128, 154, 111)));
         scene.addLight(new PointLight(new Vector3D(0, 4, 0), Color.WHITE, 3));
         return scene;
     }
@@ -124,7 +166,7 @@ public class JavaRaytracer {
         scene.setCamera(new PerspectiveCamera(new Vector3D(0, 5, -5), 0, 20,
                 0.1,10000, 60));
         scene.addObject(new Plane(0, new Color(204, 156, 117)));
-        scene.addObject(loadModel("models/Apple.obj", new Vector3D(), new Color(153, 0, 0)));
+        scene.addObject(loadModelAsync("models/Apple.obj", new Vector3D(), new Color(153, 0, 0)));
         scene.addLight(new PointLight(new Vector3D(0, 4, 0), Color.WHITE, 3));
         return scene;
     }
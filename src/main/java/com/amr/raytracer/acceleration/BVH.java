@@ -0,0 +1,512 @@
+package com.amr.raytracer.acceleration;
+
+import com.amr.raytracer.math.BoundingBox;
+import com.amr.raytracer.math.Ray;
+import com.amr.raytracer.math.Vector3D;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code BVH} class is a bounding volume hierarchy: a binary tree of boxes over a set of primitives, such as the
+ * triangles of a mesh or the objects of a scene, that lets a {@code Ray} skip every primitive whose box it does not
+ * hit. The primitives are only known by their index; they are intersected through a {@code PrimitiveIntersector}.<br>
+ * The tree is built in parallel using fork-join recursive subdivision, with a {@code BVHQuality} that trades build
+ * time for traversal speed, and then flattened into a single array of nodes in depth-first order, so that a ray walks
+ * through contiguous memory instead of chasing references between node objects. It is traversed without recursion,
+ * using an explicit stack of node indices, and its traversals can be counted with a {@code TraversalCounter}.<br>
+ * With the {@code BINARY} layout each node takes 32 bytes; the wide layouts collapse the tree into nodes with up to 4
+ * or 8 children.<br>
+ * A {@code BVH} is never modified once built. When its primitives move, it can be refitted: the boxes on the path from
+ * every changed primitive to the root are updated without restructuring the tree, which is much cheaper than building
+ * it again but makes it worse at culling as the primitives drift. Refitting rebuilds the tree instead once its surface
+ * area heuristic cost degrades past a threshold.
+ *
+ * @author Ángel Martínez
+ * @see BVHQuality
+ * @see BVHLayout
+ * @see PrimitiveIntersector
+ */
+public class BVH {
+
+    /**
+     * The ratio between the surface area heuristic cost of a refitted {@code BVH} and the cost it had when it was
+     * built above which refitting rebuilds it.
+     */
+    public static final double DEFAULT_REBUILD_THRESHOLD = 1.5;
+
+    /**
+     * The number of {@code int} values of each binary node: the bits of the six {@code float} bounds, the index of the
+     * second child or of the first primitive, and the number of primitives, which is {@code 0} for inner nodes.
+     */
+    private static final int NODE_SIZE = 8;
+    private static final int OFFSET = 6;
+    private static final int COUNT = 7;
+    private static final int INITIAL_STACK_SIZE = 32;
+    private static final double INFINITY = Double.POSITIVE_INFINITY;
+
+    // The first child of a binary inner node always follows it, so only the second one is stored
+    private final int[] nodes;
+    private final int[] primitives;
+    private final BoundingBox bounds;
+    private final BVHQuality quality;
+    private final BVHLayout layout;
+    // The surface area heuristic cost before dividing it by the area of the root
+    private final double sahSum;
+    private final double buildSahCost;
+    private final int refitCount;
+    private final long buildNanos;
+    // Computed on the first refit and shared by every refitted copy, since refitting keeps the structure
+    private volatile Topology topology;
+
+    private BVH(int[] nodes, int[] primitives, BoundingBox bounds, BVHQuality quality, BVHLayout layout,
+                double sahSum, double buildSahCost, int refitCount, long buildNanos, Topology topology) {
+        this.nodes = nodes;
+        this.primitives = primitives;
+        this.bounds = bounds;
+        this.quality = quality;
+        this.layout = layout;
+        this.sahSum = sahSum;
+        this.buildSahCost = Double.isNaN(buildSahCost) ? getSahCost() : buildSahCost;
+        this.refitCount = refitCount;
+        this.buildNanos = buildNanos;
+        this.topology = topology;
+    }
+
+    /**
+     * Builds and returns a {@code BVH} over the primitives with the given bounds, with the given quality and the
+     * {@code BINARY} layout.
+     *
+     * @param primitiveBounds the {@code BoundingBox} of every primitive, in the order of their indices.
+     * @param quality         the {@code BVHQuality}.
+     * @return a {@code BVH} over the given primitives.
+     */
+    public static BVH build(List<BoundingBox> primitiveBounds, BVHQuality quality) {
+        return build(primitiveBounds, quality, BVHLayout.BINARY);
+    }
+
+    /**
+     * Builds and returns a {@code BVH} over the primitives with the given bounds, with the given quality and layout.
+     *
+     * @param primitiveBounds the {@code BoundingBox} of every primitive, in the order of their indices.
+     * @param quality         the {@code BVHQuality}.
+     * @param layout          the {@code BVHLayout}.
+     * @return a {@code BVH} over the given primitives.
+     */
+    public static BVH build(List<BoundingBox> primitiveBounds, BVHQuality quality, BVHLayout layout) {
+        long start = System.nanoTime();
+        BVHBuilder builder = new BVHBuilder(primitiveBounds, quality);
+        BVHNode root = builder.build();
+        int[] nodes;
+        BoundingBox bounds;
+        double sahSum;
+        if (layout == BVHLayout.BINARY) {
+            nodes = new int[countNodes(root) * NODE_SIZE];
+            flatten(root, nodes, 0);
+            bounds = new BoundingBox();
+            PackedBoxes.include(nodes, 0, 1, bounds);
+            sahSum = getSahSum(nodes);
+        } else {
+            nodes = WideNodes.collapse(root, layout.getWidth());
+            bounds = WideNodes.getNodeBounds(nodes, 0, layout.getWidth());
+            sahSum = WideNodes.getSahSum(nodes, layout.getWidth(), bounds);
+        }
+        return new BVH(nodes, builder.getIndices(), bounds, quality, layout, sahSum, Double.NaN, 0,
+                System.nanoTime() - start, null);
+    }
+
+    /**
+     * Refits this {@code BVH} to the given new bounds of its primitives, with the default rebuild threshold.
+     *
+     * @param changedPrimitives the indices of the primitives whose bounds changed.
+     * @param primitiveBounds   the {@code BoundingBox} of every primitive, in the order of their indices.
+     * @return the refitted {@code BVH}, or a new one built from scratch if refitting degraded it too much.
+     * @see #DEFAULT_REBUILD_THRESHOLD
+     */
+    public BVH refit(int[] changedPrimitives, List<BoundingBox> primitiveBounds) {
+        return refit(changedPrimitives, primitiveBounds, DEFAULT_REBUILD_THRESHOLD);
+    }
+
+    /**
+     * Refits this {@code BVH} to the given new bounds of its primitives. The returned {@code BVH} keeps the structure
+     * of this one and only updates the boxes that enclose the changed primitives, from their leaves up to the first
+     * box that does not change, so the work done depends on what changed and not on the number of primitives. If its
+     * surface area heuristic cost ends up above the given ratio of the cost this {@code BVH} had when it was built, a
+     * new one is built from scratch instead. This {@code BVH} is not modified.
+     *
+     * @param changedPrimitives the indices of the primitives whose bounds changed.
+     * @param primitiveBounds   the {@code BoundingBox} of every primitive, in the order of their indices.
+     * @param rebuildThreshold  the ratio of the built cost above which the {@code BVH} is rebuilt.
+     * @return the refitted {@code BVH}, or a new one built from scratch if refitting degraded it too much.
+     * @throws IllegalArgumentException if the number of primitives changed.
+     */
+    public BVH refit(int[] changedPrimitives, List<BoundingBox> primitiveBounds, double rebuildThreshold) {
+        if (primitiveBounds.size() != primitives.length) {
+            throw new IllegalArgumentException("A BVH cannot be refitted to a different number of primitives.");
+        }
+        long start = System.nanoTime();
+        Topology topology = getTopology();
+        int[] refitted = nodes.clone();
+        double refittedSahSum = sahSum;
+        BoundingBox refittedBounds = new BoundingBox();
+        if (layout == BVHLayout.BINARY) {
+            for (int primitive : changedPrimitives) {
+                refittedSahSum += refitBinary(refitted, topology.parents, topology.leaves[primitive],
+                        primitiveBounds);
+            }
+            PackedBoxes.include(refitted, 0, 1, refittedBounds);
+        } else {
+            int width = layout.getWidth();
+            for (int primitive : changedPrimitives) {
+                refittedSahSum += WideNodes.refit(refitted, width, topology.parents, topology.leaves[primitive],
+                        primitives, primitiveBounds);
+            }
+            refittedBounds = WideNodes.getNodeBounds(refitted, 0, width);
+            // The box of the root of a wide layout is not stored in any node
+            refittedSahSum += (refittedBounds.getSurfaceArea() - bounds.getSurfaceArea()) * BVHBuilder.TRAVERSAL_COST;
+        }
+        BVH bvh = new BVH(refitted, primitives, refittedBounds, quality, layout, refittedSahSum, buildSahCost,
+                refitCount + 1, System.nanoTime() - start, topology);
+        if (bvh.getSahCost() > rebuildThreshold * buildSahCost) return build(primitiveBounds, quality, layout);
+        return bvh;
+    }
+
+    /**
+     * Returns the {@code BoundingBox} that encloses every primitive of this {@code BVH}.
+     *
+     * @return the {@code BoundingBox} of this {@code BVH}.
+     */
+    public BoundingBox getBounds() {
+        return new BoundingBox(bounds);
+    }
+
+    /**
+     * Returns the number of primitives of this {@code BVH}.
+     *
+     * @return the number of primitives.
+     */
+    public int getPrimitiveCount() {
+        return primitives.length;
+    }
+
+    /**
+     * Returns the {@code BVHQuality} this {@code BVH} was built with.
+     *
+     * @return the {@code BVHQuality} of this {@code BVH}.
+     */
+    public BVHQuality getQuality() {
+        return quality;
+    }
+
+    /**
+     * Returns the {@code BVHLayout} of the nodes of this {@code BVH}.
+     *
+     * @return the {@code BVHLayout} of this {@code BVH}.
+     */
+    public BVHLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Returns the number of times this {@code BVH} has been refitted since it was built from scratch.
+     *
+     * @return the number of refits since the last build.
+     */
+    public int getRefitCount() {
+        return refitCount;
+    }
+
+    /**
+     * Returns the time it took to build or refit this {@code BVH}, in nanoseconds.
+     *
+     * @return the build or refit time in nanoseconds.
+     */
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * Returns the number of nodes of this {@code BVH}.
+     *
+     * @return the number of nodes.
+     */
+    public int getNodeCount() {
+        if (layout == BVHLayout.BINARY) return nodes.length / NODE_SIZE;
+        return WideNodes.getNodeCount(nodes, layout.getWidth());
+    }
+
+    /**
+     * Returns the heap memory used by the nodes and the primitive indices of this {@code BVH}, in bytes.
+     *
+     * @return the memory size of this {@code BVH}.
+     */
+    public long getMemorySize() {
+        return 4L * (nodes.length + primitives.length);
+    }
+
+    /**
+     * Returns the cost of this {@code BVH} regarding the surface area heuristic: the expected number of box tests and
+     * primitive intersections of a random ray that hits its bounds.
+     *
+     * @return the surface area heuristic cost of this {@code BVH}.
+     */
+    public double getSahCost() {
+        double rootArea = bounds.getSurfaceArea();
+        return rootArea > 0 ? sahSum / rootArea : 0;
+    }
+
+    /**
+     * Returns the surface area heuristic cost this {@code BVH} had when it was last built from scratch.
+     *
+     * @return the surface area heuristic cost of the last build.
+     * @see #getSahCost()
+     */
+    public double getBuildSahCost() {
+        return buildSahCost;
+    }
+
+    /**
+     * Intersects the given {@code Ray} with the primitives of this {@code BVH} and returns the distance to the closest
+     * intersection. The child the ray enters first is visited first, and boxes farther than the closest intersection
+     * found so far are skipped.
+     *
+     * @param ray         the {@code Ray}.
+     * @param maxDistance the distance beyond which intersections are ignored.
+     * @param intersector the {@code PrimitiveIntersector} that intersects the primitives.
+     * @return the distance to the closest intersection, or {@code Double.POSITIVE_INFINITY} if there is none.
+     */
+    public double intersect(Ray ray, double maxDistance, PrimitiveIntersector intersector) {
+        return traverse(ray, maxDistance, intersector, false);
+    }
+
+    /**
+     * Intersects the given {@code Ray} with the primitives of this {@code BVH} until any intersection closer than the
+     * given distance is found, such as an occluder of a shadow ray.
+     *
+     * @param ray         the {@code Ray}.
+     * @param maxDistance the distance beyond which intersections are ignored.
+     * @param intersector the {@code PrimitiveIntersector} that intersects the primitives.
+     * @return the index of the first primitive found that intersects the ray, or {@code -1} if there is none.
+     */
+    public int intersectAny(Ray ray, double maxDistance, PrimitiveIntersector intersector) {
+        return (int) traverse(ray, maxDistance, intersector, true);
+    }
+
+    /**
+     * Walks the nodes the given {@code Ray} hits. Returns the distance to the closest intersection or, if
+     * {@code anyHit} is set, the index of the first primitive intersected.
+     */
+    private double traverse(Ray ray, double maxDistance, PrimitiveIntersector intersector, boolean anyHit) {
+        if (layout != BVHLayout.BINARY) {
+            return WideNodes.traverse(nodes, primitives, layout.getWidth(), bounds, ray, maxDistance, intersector,
+                    anyHit);
+        }
+        double none = anyHit ? -1 : Double.POSITIVE_INFINITY;
+        Vector3D origin = ray.getOrigin();
+        Vector3D direction = ray.getDirection();
+        double ox = origin.getX(), oy = origin.getY(), oz = origin.getZ();
+        double invX = 1 / direction.getX(), invY = 1 / direction.getY(), invZ = 1 / direction.getZ();
+        double closest = maxDistance;
+        if (primitives.length == 0 || intersectBox(0, ox, oy, oz, invX, invY, invZ, closest) == INFINITY) {
+            return none;
+        }
+        // Nodes left for later, with the distance at which the ray enters them
+        int[] stack = new int[INITIAL_STACK_SIZE];
+        double[] distances = new double[INITIAL_STACK_SIZE];
+        int top = 0;
+        int node = 0;
+        int visits = 0, tests = 0;
+        while (true) {
+            visits++;
+            int count = nodes[node + COUNT];
+            if (count > 0) {
+                int first = nodes[node + OFFSET];
+                for (int i = first; i < first + count; i++) {
+                    tests++;
+                    double distance = intersector.intersect(primitives[i], ray, closest);
+                    if (distance < closest) {
+                        if (anyHit) {
+                            TraversalCounter.record(visits, tests);
+                            return primitives[i];
+                        }
+                        closest = distance;
+                    }
+                }
+            } else {
+                // Visit first the child the ray enters first and leave the other one for later
+                int near = node + NODE_SIZE, far = nodes[node + OFFSET] * NODE_SIZE;
+                double nearDistance = intersectBox(near, ox, oy, oz, invX, invY, invZ, closest);
+                double farDistance = intersectBox(far, ox, oy, oz, invX, invY, invZ, closest);
+                if (farDistance < nearDistance) {
+                    int child = near;
+                    near = far;
+                    far = child;
+                    double distance = nearDistance;
+                    nearDistance = farDistance;
+                    farDistance = distance;
+                }
+                if (nearDistance != INFINITY) {
+                    if (farDistance != INFINITY) {
+                        if (top == stack.length) {
+                            stack = Arrays.copyOf(stack, 2 * top);
+                            distances = Arrays.copyOf(distances, 2 * top);
+                        }
+                        stack[top] = far;
+                        distances[top++] = farDistance;
+                    }
+                    node = near;
+                    continue;
+                }
+            }
+            // Skip the nodes left for later that are now farther than the closest intersection
+            do {
+                if (top == 0) {
+                    TraversalCounter.record(visits, tests);
+                    return anyHit || closest == maxDistance ? none : closest;
+                }
+                node = stack[--top];
+            } while (distances[top] >= closest);
+        }
+    }
+
+    /**
+     * Calculates the distance along a ray at which it enters the box of the given node using the slab method, or
+     * {@code Double.POSITIVE_INFINITY} if it misses it before the given distance.
+     */
+    private double intersectBox(int node, double ox, double oy, double oz, double invX, double invY, double invZ,
+                                double maxDistance) {
+        double tNear = 0, tFar = maxDistance;
+        // Comparisons with NaN are false, so rays lying on a slab plane do not discard the box
+        double t1 = (Float.intBitsToFloat(nodes[node]) - ox) * invX;
+        double t2 = (Float.intBitsToFloat(nodes[node + 3]) - ox) * invX;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        t1 = (Float.intBitsToFloat(nodes[node + 1]) - oy) * invY;
+        t2 = (Float.intBitsToFloat(nodes[node + 4]) - oy) * invY;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        t1 = (Float.intBitsToFloat(nodes[node + 2]) - oz) * invZ;
+        t2 = (Float.intBitsToFloat(nodes[node + 5]) - oz) * invZ;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar) return Double.POSITIVE_INFINITY;
+        return tNear;
+    }
+
+    /**
+     * Writes the given node and its descendants in depth-first order starting at the given node index, and returns
+     * the index that follows the last one written.
+     */
+    private static int flatten(BVHNode node, int[] nodes, int index) {
+        int offset = index * NODE_SIZE;
+        PackedBoxes.write(nodes, offset, 1, node.bounds);
+        if (node.isLeaf()) {
+            nodes[offset + OFFSET] = node.start;
+            nodes[offset + COUNT] = node.count;
+            return index + 1;
+        }
+        int second = flatten(node.left, nodes, index + 1);
+        nodes[offset + OFFSET] = second;
+        nodes[offset + COUNT] = 0;
+        return flatten(node.right, nodes, second);
+    }
+
+    private static int countNodes(BVHNode node) {
+        return node.isLeaf() ? 1 : 1 + countNodes(node.left) + countNodes(node.right);
+    }
+
+    private static double getSahSum(int[] nodes) {
+        double sahSum = 0;
+        for (int node = 0; node < nodes.length; node += NODE_SIZE) {
+            int count = nodes[node + COUNT];
+            sahSum += PackedBoxes.getSurfaceArea(nodes, node, 1) * (count > 0 ? count : BVHBuilder.TRAVERSAL_COST);
+        }
+        return sahSum;
+    }
+
+    /**
+     * Updates the box of the given binary leaf and of its ancestors, until one does not change, and returns how much
+     * the unnormalized surface area heuristic cost changed.
+     */
+    private double refitBinary(int[] nodes, int[] parents, int leaf, List<BoundingBox> primitiveBounds) {
+        BoundingBox box = getRangeBounds(primitives, nodes[leaf + OFFSET], nodes[leaf + COUNT], primitiveBounds);
+        double weight = nodes[leaf + COUNT];
+        double delta = 0;
+        int node = leaf;
+        while (true) {
+            double area = PackedBoxes.getSurfaceArea(nodes, node, 1);
+            if (!PackedBoxes.write(nodes, node, 1, box)) break;
+            delta += (PackedBoxes.getSurfaceArea(nodes, node, 1) - area) * weight;
+            node = parents[node / NODE_SIZE];
+            if (node < 0) break;
+            box = new BoundingBox();
+            PackedBoxes.include(nodes, node + NODE_SIZE, 1, box);
+            PackedBoxes.include(nodes, nodes[node + OFFSET] * NODE_SIZE, 1, box);
+            weight = BVHBuilder.TRAVERSAL_COST;
+        }
+        return delta;
+    }
+
+    /**
+     * Returns the bounds of the given range of primitive indices.
+     */
+    static BoundingBox getRangeBounds(int[] primitives, int first, int count, List<BoundingBox> primitiveBounds) {
+        BoundingBox box = new BoundingBox();
+        for (int i = first; i < first + count; i++) box.include(primitiveBounds.get(primitives[i]));
+        return box;
+    }
+
+    private Topology getTopology() {
+        Topology topology = this.topology;
+        if (topology != null) return topology;
+        int[] parents = new int[getNodeCount()];
+        int[] leaves = new int[primitives.length];
+        if (layout == BVHLayout.BINARY) {
+            parents[0] = -1;
+            for (int node = 0; node < nodes.length; node += NODE_SIZE) {
+                int first = nodes[node + OFFSET];
+                int count = nodes[node + COUNT];
+                if (count > 0) {
+                    for (int i = first; i < first + count; i++) leaves[primitives[i]] = node;
+                } else {
+                    parents[node / NODE_SIZE + 1] = node;
+                    parents[first] = node;
+                }
+            }
+        } else {
+            WideNodes.computeTopology(nodes, layout.getWidth(), primitives, parents, leaves);
+        }
+        this.topology = topology = new Topology(parents, leaves);
+        return topology;
+    }
+
+    /**
+     * The {@code Topology} class holds what refitting needs to walk a {@code BVH} from the bottom up: for every node,
+     * the position of its parent in the node array (binary) or of the slot of its parent that holds its box (wide),
+     * or {@code -1} for the root; and for every primitive, the position of its leaf or leaf slot.
+     */
+    private static final class Topology {
+        final int[] parents;
+        final int[] leaves;
+
+        Topology(int[] parents, int[] leaves) {
+            this.parents = parents;
+            this.leaves = leaves;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.amr.raytracer.acceleration;
+
+import com.amr.raytracer.math.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * The {@code BVHBuilder} class builds the nodes of a {@code BVH} by recursive subdivision using fork-join parallelism.
+ * Subtrees with enough primitives are built in parallel, and the nodes close to the root, which have the most
+ * primitives, also compute their bounds and their surface area heuristic bins in parallel chunks.
+ *
+ * @author Ángel Martínez
+ * @see BVH
+ * @see BVHQuality
+ */
+final class BVHBuilder {
+
+    /**
+     * The number of primitives above which the two children of a node are built in parallel.
+     */
+    private static final int PARALLEL_SUBTREE_THRESHOLD = 1024;
+
+    /**
+     * The number of primitives above which the bounds and bins of a node are computed in parallel chunks.
+     */
+    private static final int PARALLEL_CHUNK_SIZE = 16384;
+
+    /**
+     * The cost of traversing an inner node relative to the cost of intersecting a primitive.
+     */
+    static final double TRAVERSAL_COST = 1;
+
+    /**
+     * The number of primitives a leaf is allowed to have when splitting it does not pay off.
+     */
+    private static final int MAX_LEAF_SIZE = 16;
+
+    // Primitive bounds and centroids, 3 values per primitive
+    private final double[] min;
+    private final double[] max;
+    private final double[] centroids;
+    private final int[] indices;
+    private final BVHQuality quality;
+
+    BVHBuilder(List<BoundingBox> primitiveBounds, BVHQuality quality) {
+        int n = primitiveBounds.size();
+        this.min = new double[3 * n];
+        this.max = new double[3 * n];
+        this.centroids = new double[3 * n];
+        this.indices = new int[n];
+        this.quality = quality;
+        for (int i = 0; i < n; i++) {
+            BoundingBox box = primitiveBounds.get(i);
+            for (int axis = 0; axis < 3; axis++) {
+                min[3 * i + axis] = box.getMin(axis);
+                max[3 * i + axis] = box.getMax(axis);
+                centroids[3 * i + axis] = box.getCenter(axis);
+            }
+            indices[i] = i;
+        }
+    }
+
+    /**
+     * Returns the primitive indices, ordered so that every leaf references a contiguous range of them.
+     */
+    int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * Builds and returns the root of the tree.
+     */
+    BVHNode build() {
+        if (indices.length == 0) return new BVHNode(new BoundingBox(), 0, 0);
+        return ForkJoinPool.commonPool().invoke(new SubtreeTask(0, indices.length));
+    }
+
+    private BVHNode buildNode(int start, int end) {
+        int count = end - start;
+        Bounds bounds = computeBounds(start, end);
+        if (count <= quality.getMaxLeafSize()) return new BVHNode(bounds.box, start, count);
+
+        int axis = bounds.centroids.getLongestAxis();
+        double extent = bounds.centroids.getMax(axis) - bounds.centroids.getMin(axis);
+        int middle;
+        if (extent <= 0) {
+            // Every centroid is at the same point, so only an even split by count is possible
+            middle = (start + end) >>> 1;
+        } else if (quality.getBins() == 0) {
+            middle = partition(start, end, axis, bounds.centroids.getCenter(axis));
+        } else {
+            Split split = findSahSplit(start, end, bounds);
+            if (split != null && split.cost >= count && count <= MAX_LEAF_SIZE) {
+                return new BVHNode(bounds.box, start, count);
+            }
+            middle = split == null ? start : partition(start, end, split.axis, split.bin, bounds.centroids);
+        }
+        if (middle == start || middle == end) {
+            middle = (start + end) >>> 1;
+            select(start, end, middle, axis);
+        }
+
+        BVHNode left, right;
+        if (count > PARALLEL_SUBTREE_THRESHOLD) {
+            SubtreeTask leftTask = new SubtreeTask(start, middle);
+            leftTask.fork();
+            right = buildNode(middle, end);
+            left = leftTask.join();
+        } else {
+            left = buildNode(start, middle);
+            right = buildNode(middle, end);
+        }
+        return new BVHNode(bounds.box, left, right);
+    }
+
+    /**
+     * Computes the bounds of the primitives and of their centroids in the given range, in parallel chunks if it is
+     * large.
+     */
+    private Bounds computeBounds(int start, int end) {
+        if (end - start <= PARALLEL_CHUNK_SIZE) {
+            Bounds bounds = new Bounds();
+            for (int i = start; i < end; i++) {
+                int p = 3 * indices[i];
+                bounds.box.include(min[p], min[p + 1], min[p + 2]);
+                bounds.box.include(max[p], max[p + 1], max[p + 2]);
+                bounds.centroids.include(centroids[p], centroids[p + 1], centroids[p + 2]);
+            }
+            return bounds;
+        }
+        List<RecursiveTask<Bounds>> tasks = new ArrayList<>();
+        for (int chunk = start; chunk < end; chunk += PARALLEL_CHUNK_SIZE) {
+            int chunkStart = chunk, chunkEnd = Math.min(end, chunk + PARALLEL_CHUNK_SIZE);
+            tasks.add(task(() -> computeBounds(chunkStart, chunkEnd)));
+        }
+        Bounds bounds = new Bounds();
+        for (RecursiveTask<Bounds> task : ForkJoinTask.invokeAll(tasks)) {
+            Bounds chunk = task.join();
+            bounds.box.include(chunk.box);
+            bounds.centroids.include(chunk.centroids);
+        }
+        return bounds;
+    }
+
+    /**
+     * Finds the cheapest split of the given range regarding the surface area heuristic, evaluated on the bins of the
+     * quality of this builder on every axis.
+     */
+    private Split findSahSplit(int start, int end, Bounds bounds) {
+        int binCount = quality.getBins();
+        Bins bins = computeBins(start, end, bounds.centroids);
+        double nodeArea = bounds.box.getSurfaceArea();
+        Split best = null;
+        for (int axis = 0; axis < 3; axis++) {
+            if (bounds.centroids.getMax(axis) - bounds.centroids.getMin(axis) <= 0) continue;
+            // Sweep from the right to know the area and count of every right side
+            double[] rightArea = new double[binCount];
+            int[] rightCount = new int[binCount];
+            BoundingBox box = new BoundingBox();
+            int count = 0;
+            for (int b = binCount - 1; b > 0; b--) {
+                box.include(bins.boxes[axis][b]);
+                count += bins.counts[axis][b];
+                rightArea[b] = box.getSurfaceArea();
+                rightCount[b] = count;
+            }
+            box = new BoundingBox();
+            count = 0;
+            for (int b = 0; b < binCount - 1; b++) {
+                box.include(bins.boxes[axis][b]);
+                count += bins.counts[axis][b];
+                if (count == 0 || rightCount[b + 1] == 0) continue;
+                double cost = TRAVERSAL_COST
+                        + (box.getSurfaceArea() * count + rightArea[b + 1] * rightCount[b + 1]) / nodeArea;
+                if (best == null || cost < best.cost) best = new Split(axis, b, cost);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Counts and bounds the primitives of the given range in the bins of every axis, in parallel chunks if the range
+     * is large.
+     */
+    private Bins computeBins(int start, int end, BoundingBox centroidBounds) {
+        if (end - start <= PARALLEL_CHUNK_SIZE) {
+            Bins bins = new Bins(quality.getBins());
+            for (int i = start; i < end; i++) {
+                int p = 3 * indices[i];
+                for (int axis = 0; axis < 3; axis++) {
+                    int b = getBin(centroids[p + axis], axis, centroidBounds);
+                    bins.counts[axis][b]++;
+                    bins.boxes[axis][b].include(min[p], min[p + 1], min[p + 2]);
+                    bins.boxes[axis][b].include(max[p], max[p + 1], max[p + 2]);
+                }
+            }
+            return bins;
+        }
+        List<RecursiveTask<Bins>> tasks = new ArrayList<>();
+        for (int chunk = start; chunk < end; chunk += PARALLEL_CHUNK_SIZE) {
+            int chunkStart = chunk, chunkEnd = Math.min(end, chunk + PARALLEL_CHUNK_SIZE);
+            tasks.add(task(() -> computeBins(chunkStart, chunkEnd, centroidBounds)));
+        }
+        Bins bins = new Bins(quality.getBins());
+        for (RecursiveTask<Bins> task : ForkJoinTask.invokeAll(tasks)) {
+            Bins chunk = task.join();
+            for (int axis = 0; axis < 3; axis++) {
+                for (int b = 0; b < bins.counts[axis].length; b++) {
+                    bins.counts[axis][b] += chunk.counts[axis][b];
+                    bins.boxes[axis][b].include(chunk.boxes[axis][b]);
+                }
+            }
+        }
+        return bins;
+    }
+
+    private int getBin(double centroid, int axis, BoundingBox centroidBounds) {
+        int binCount = quality.getBins();
+        double extent = centroidBounds.getMax(axis) - centroidBounds.getMin(axis);
+        if (extent <= 0) return 0;
+        int b = (int) ((centroid - centroidBounds.getMin(axis)) * binCount / extent);
+        return Math.min(binCount - 1, Math.max(0, b));
+    }
+
+    /**
+     * Moves the primitives of the given range whose centroid is in a bin up to the given one to the beginning of the
+     * range and returns the index of the first primitive of the rest.
+     */
+    private int partition(int start, int end, int axis, int bin, BoundingBox centroidBounds) {
+        int i = start, j = end - 1;
+        while (i <= j) {
+            if (getBin(centroids[3 * indices[i] + axis], axis, centroidBounds) <= bin) i++;
+            else swap(i, j--);
+        }
+        return i;
+    }
+
+    /**
+     * Moves the primitives of the given range whose centroid is below the given coordinate to the beginning of the
+     * range and returns the index of the first primitive of the rest.
+     */
+    private int partition(int start, int end, int axis, double coordinate) {
+        int i = start, j = end - 1;
+        while (i <= j) {
+            if (centroids[3 * indices[i] + axis] < coordinate) i++;
+            else swap(i, j--);
+        }
+        return i;
+    }
+
+    /**
+     * Reorders the primitives of the given range so the one at the given index is the one that would be there if the
+     * range was sorted by centroid in the given axis, with no greater ones before it nor smaller ones after it.
+     */
+    private void select(int start, int end, int k, int axis) {
+        int left = start, right = end - 1;
+        while (right > left) {
+            double pivot = centroids[3 * indices[(left + right) >>> 1] + axis];
+            int i = left, j = right;
+            while (i <= j) {
+                while (centroids[3 * indices[i] + axis] < pivot) i++;
+                while (centroids[3 * indices[j] + axis] > pivot) j--;
+                if (i <= j) swap(i++, j--);
+            }
+            if (k <= j) right = j;
+            else if (k >= i) left = i;
+            else return;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int tmp = indices[i];
+        indices[i] = indices[j];
+        indices[j] = tmp;
+    }
+
+    private static <T> RecursiveTask<T> task(Supplier<T> supplier) {
+        return new RecursiveTask<T>() {
+            @Override
+            protected T compute() {
+                return supplier.get();
+            }
+        };
+    }
+
+    private final class SubtreeTask extends RecursiveTask<BVHNode> {
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+
+        SubtreeTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected BVHNode compute() {
+            return buildNode(start, end);
+        }
+    }
+
+    private static final class Bounds {
+        final BoundingBox box = new BoundingBox();
+        final BoundingBox centroids = new BoundingBox();
+    }
+
+    private static final class Bins {
+        final int[][] counts;
+        final BoundingBox[][] boxes;
+
+        Bins(int binCount) {
+            counts = new int[3][binCount];
+            boxes = new BoundingBox[3][binCount];
+            for (int axis = 0; axis < 3; axis++) {
+                for (int b = 0; b < binCount; b++) boxes[axis][b] = new BoundingBox();
+            }
+        }
+    }
+
+    private static final class Split {
+        final int axis;
+        final int bin;
+        final double cost;
+
+        Split(int axis, int bin, double cost) {
+            this.axis = axis;
+            this.bin = bin;
+            this.cost = cost;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.amr.raytracer.acceleration;
+
+/**
+ * The {@code BVHLayout} enum lists the ways the nodes of a {@code BVH} can be laid out in memory. Every {@code BVH} is
+ * built as a binary tree; the wide layouts collapse it into nodes with more children, which makes the tree shallower
+ * so a ray visits fewer nodes, at the cost of more box tests per visit.
+ *
+ * @author Ángel Martínez
+ * @see BVH
+ */
+public enum BVHLayout {
+
+    /**
+     * Nodes with two children, each node holding its own box.
+     */
+    BINARY(2),
+
+    /**
+     * Nodes with up to four children, each node holding the boxes of its children.
+     */
+    WIDE_4(4),
+
+    /**
+     * Nodes with up to eight children, each node holding the boxes of its children.
+     */
+    WIDE_8(8);
+
+    private final int width;
+
+    BVHLayout(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Returns the maximum number of children of a node.
+     *
+     * @return the maximum number of children of a node.
+     */
+    int getWidth() {
+        return width;
+    }
+}
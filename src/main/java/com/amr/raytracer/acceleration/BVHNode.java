@@ -0,0 +1,46 @@
+package com.amr.raytracer.acceleration;
+
+import com.amr.raytracer.math.BoundingBox;
+
+/**
+ * The {@code BVHNode} class represents a node of a {@code BVH} while it is being built. Inner nodes have two children;
+ * leaves reference a range of the primitive indices of the {@code BVH}. Once built, the nodes are flattened into the
+ * node array of the {@code BVH} and discarded.
+ *
+ * @author Ángel Martínez
+ * @see BVH
+ */
+final class BVHNode {
+
+    final BoundingBox bounds;
+    final BVHNode left;
+    final BVHNode right;
+    final int start;
+    final int count;
+
+    /**
+     * Constructs an inner {@code BVHNode} with the given children.
+     */
+    BVHNode(BoundingBox bounds, BVHNode left, BVHNode right) {
+        this.bounds = bounds;
+        this.left = left;
+        this.right = right;
+        this.start = 0;
+        this.count = 0;
+    }
+
+    /**
+     * Constructs a leaf {@code BVHNode} with the given range of primitive indices.
+     */
+    BVHNode(BoundingBox bounds, int start, int count) {
+        this.bounds = bounds;
+        this.left = null;
+        this.right = null;
+        this.start = start;
+        this.count = count;
+    }
+
+    boolean isLeaf() {
+        return left == null;
+    }
+}
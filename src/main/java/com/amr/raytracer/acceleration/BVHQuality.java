@@ -0,0 +1,54 @@
+package com.amr.raytracer.acceleration;
+
+/**
+ * The {@code BVHQuality} enum lists the trade-offs between build time and traversal speed available when building a
+ * {@code BVH}. Faster builds produce trees that need more box and primitive tests per ray.
+ *
+ * @author Ángel Martínez
+ * @see BVH
+ */
+public enum BVHQuality {
+
+    /**
+     * Splits every node at the middle of its longest axis. The fastest to build, the slowest to traverse.
+     */
+    FAST(0, 8),
+
+    /**
+     * Splits every node with the surface area heuristic evaluated on 12 bins per axis.
+     */
+    BALANCED(12, 4),
+
+    /**
+     * Splits every node with the surface area heuristic evaluated on 32 bins per axis and keeps leaves small. The
+     * slowest to build, the fastest to traverse.
+     */
+    HIGH(32, 2);
+
+    private final int bins;
+    private final int maxLeafSize;
+
+    BVHQuality(int bins, int maxLeafSize) {
+        this.bins = bins;
+        this.maxLeafSize = maxLeafSize;
+    }
+
+    /**
+     * Returns the number of bins per axis used to evaluate the surface area heuristic, or {@code 0} if it is not
+     * used.
+     *
+     * @return the number of bins per axis.
+     */
+    int getBins() {
+        return bins;
+    }
+
+    /**
+     * Returns the number of primitives below which a node is always a leaf.
+     *
+     * @return the maximum number of primitives of a leaf that is not split.
+     */
+    int getMaxLeafSize() {
+        return maxLeafSize;
+    }
+}
@@ -0,0 +1,68 @@
+package com.amr.raytracer.acceleration;
+
+import com.amr.raytracer.math.BoundingBox;
+
+/**
+ * The {@code PackedBoxes} class reads and writes the boxes packed in the node arrays of a {@code BVH}. A box is stored
+ * as the bits of six {@code float} values, the minimum and then the maximum corner, separated by the given stride:
+ * {@code 1} for binary nodes, which hold their own box, and the width for wide nodes, which hold the boxes of their
+ * children grouped by field. The bounds are rounded outwards when they are written, so the boxes never shrink.
+ *
+ * @author Ángel Martínez
+ * @see BVH
+ * @see WideNodes
+ */
+final class PackedBoxes {
+
+    private PackedBoxes() {
+    }
+
+    /**
+     * Writes the given box at the given position and returns whether the stored box changed.
+     */
+    static boolean write(int[] nodes, int position, int stride, BoundingBox box) {
+        boolean changed = false;
+        for (int axis = 0; axis < 3; axis++) {
+            int min = Float.floatToRawIntBits(roundDown(box.getMin(axis)));
+            int max = Float.floatToRawIntBits(roundUp(box.getMax(axis)));
+            changed |= nodes[position + axis * stride] != min || nodes[position + (3 + axis) * stride] != max;
+            nodes[position + axis * stride] = min;
+            nodes[position + (3 + axis) * stride] = max;
+        }
+        return changed;
+    }
+
+    /**
+     * Reads the box at the given position and includes it in the given {@code BoundingBox}.
+     */
+    static void include(int[] nodes, int position, int stride, BoundingBox box) {
+        box.include(Float.intBitsToFloat(nodes[position]), Float.intBitsToFloat(nodes[position + stride]),
+                Float.intBitsToFloat(nodes[position + 2 * stride]));
+        box.include(Float.intBitsToFloat(nodes[position + 3 * stride]),
+                Float.intBitsToFloat(nodes[position + 4 * stride]),
+                Float.intBitsToFloat(nodes[position + 5 * stride]));
+    }
+
+    /**
+     * Calculates the surface area of the box at the given position. An empty box has no area.
+     */
+    static double getSurfaceArea(int[] nodes, int position, int stride) {
+        double dx = Float.intBitsToFloat(nodes[position + 3 * stride]) - Float.intBitsToFloat(nodes[position]);
+        double dy = Float.intBitsToFloat(nodes[position + 4 * stride])
+                - Float.intBitsToFloat(nodes[position + stride]);
+        double dz = Float.intBitsToFloat(nodes[position + 5 * stride])
+                - Float.intBitsToFloat(nodes[position + 2 * stride]);
+        if (!(dx >= 0 && dy >= 0 && dz >= 0)) return 0;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    private static float roundDown(double value) {
+        float f = (float) value;
+        return f > value ? Math.nextDown(f) : f;
+    }
+
+    private static float roundUp(double value) {
+        float f = (float) value;
+        return f < value ? Math.nextUp(f) : f;
+    }
+}
@@ -0,0 +1,26 @@
+package com.amr.raytracer.acceleration;
+
+import com.amr.raytracer.math.Ray;
+
+/**
+ * The {@code PrimitiveIntersector} interface is implemented by the users of a {@code BVH} to intersect the primitives
+ * it holds, which the {@code BVH} only knows by their index. Implementations usually remember the closest hit they
+ * have reported.
+ *
+ * @author Ángel Martínez
+ * @see BVH
+ */
+@FunctionalInterface
+public interface PrimitiveIntersector {
+
+    /**
+     * Intersects the primitive with the given index with the given {@code Ray}.
+     *
+     * @param primitive   the index of the primitive.
+     * @param ray         the {@code Ray}.
+     * @param maxDistance the distance beyond which intersections are ignored.
+     * @return the distance to the intersection if it is closer than the given distance, otherwise
+     * {@code Double.POSITIVE_INFINITY}.
+     */
+    double intersect(int primitive, Ray ray, double maxDistance);
+}
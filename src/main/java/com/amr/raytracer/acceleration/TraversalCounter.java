@@ -0,0 +1,74 @@
+package com.amr.raytracer.acceleration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code TraversalCounter} class counts the work done by the traversals of every {@code BVH} on the threads it is
+ * started on: the nodes visited and the primitives tested, such as the objects of a scene and the triangles of its
+ * meshes. It is meant for debugging and tuning the cost of rays; while no counter is started anywhere, a traversal
+ * only checks a single shared flag once it ends.<br>
+ * A counter is only updated by the threads it is started on, without synchronization, so it must be read on one of
+ * them or once they are done.
+ *
+ * @author Ángel Martínez
+ * @see BVH
+ */
+public final class TraversalCounter {
+
+    private static final AtomicInteger STARTED = new AtomicInteger();
+    private static final ThreadLocal<TraversalCounter> CURRENT = new ThreadLocal<>();
+
+    private long nodeVisits;
+    private long primitiveTests;
+
+    /**
+     * Starts counting the traversals of the current thread in this {@code TraversalCounter}, instead of the counter
+     * that was started on it before, if any.
+     */
+    public void start() {
+        if (CURRENT.get() == null) STARTED.incrementAndGet();
+        CURRENT.set(this);
+    }
+
+    /**
+     * Stops counting the traversals of the current thread, if they are counted in this {@code TraversalCounter}.
+     */
+    public void stop() {
+        if (CURRENT.get() != this) return;
+        CURRENT.remove();
+        STARTED.decrementAndGet();
+    }
+
+    /**
+     * Returns the number of nodes visited by the traversals counted.
+     *
+     * @return the number of nodes visited.
+     */
+    public long getNodeVisits() {
+        return nodeVisits;
+    }
+
+    /**
+     * Returns the number of primitives tested by the traversals counted.
+     *
+     * @return the number of primitives tested.
+     */
+    public long getPrimitiveTests() {
+        return primitiveTests;
+    }
+
+    /**
+     * Records a traversal of the current thread that visited the given number of nodes and tested the given number of
+     * primitives, or primitives tested outside any {@code BVH}, such as unbounded objects.
+     *
+     * @param nodeVisits     the number of nodes visited.
+     * @param primitiveTests the number of primitives tested.
+     */
+    public static void record(int nodeVisits, int primitiveTests) {
+        if (STARTED.get() == 0) return;
+        TraversalCounter counter = CURRENT.get();
+        if (counter == null) return;
+        counter.nodeVisits += nodeVisits;
+        counter.primitiveTests += primitiveTests;
+    }
+}
@@ -0,0 +1,299 @@
+package com.amr.raytracer.acceleration;
+
+import com.amr.raytracer.math.BoundingBox;
+import com.amr.raytracer.math.Ray;
+import com.amr.raytracer.math.Vector3D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * The {@code WideNodes} class lays out and traverses the nodes of a {@code BVH} with a wide {@code BVHLayout}. The
+ * binary tree is collapsed by repeatedly replacing the inner child with the largest surface area by its two children
+ * until a node has as many children as the layout allows.<br>
+ * Each node is stored in the node array as {@code 8 * width} values, grouped by field so that the boxes of all the
+ * children are tested in a single loop: the six {@code float} bounds of every child, then the index of every child
+ * node or first primitive, then the number of primitives of every child, which is {@code 0} for inner nodes and
+ * {@code -1} for unused slots.
+ *
+ * @author Ángel Martínez
+ * @see BVH
+ * @see BVHLayout
+ */
+final class WideNodes {
+
+    private static final int FIELDS = 8;
+    private static final int OFFSET = 6;
+    private static final int COUNT = 7;
+    private static final int EMPTY = -1;
+    private static final int INITIAL_STACK_SIZE = 64;
+    private static final double INFINITY = Double.POSITIVE_INFINITY;
+
+    private WideNodes() {
+    }
+
+    /**
+     * Collapses the binary tree with the given root into nodes of the given width and returns the node array, with
+     * the root first and every node before its descendants.
+     */
+    static int[] collapse(BVHNode root, int width) {
+        List<BVHNode[]> wideNodes = new ArrayList<>();
+        IdentityHashMap<BVHNode, Integer> indices = new IdentityHashMap<>();
+        gather(root.isLeaf() ? new BVHNode[]{root} : getChildren(root, width), width, wideNodes, indices);
+        int nodeSize = FIELDS * width;
+        int[] nodes = new int[wideNodes.size() * nodeSize];
+        for (int index = 0; index < wideNodes.size(); index++) {
+            BVHNode[] children = wideNodes.get(index);
+            int node = index * nodeSize;
+            for (int i = 0; i < width; i++) {
+                if (i >= children.length) {
+                    nodes[node + COUNT * width + i] = EMPTY;
+                    continue;
+                }
+                BVHNode child = children[i];
+                PackedBoxes.write(nodes, node + i, width, child.bounds);
+                if (child.isLeaf()) {
+                    nodes[node + OFFSET * width + i] = child.start;
+                    nodes[node + COUNT * width + i] = child.count;
+                } else {
+                    nodes[node + OFFSET * width + i] = indices.get(child) * nodeSize;
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Walks the nodes of the given node array the given {@code Ray} hits. Returns the distance to the closest
+     * intersection or, if {@code anyHit} is set, the index of the first primitive intersected.
+     */
+    static double traverse(int[] nodes, int[] primitives, int width, BoundingBox bounds, Ray ray, double maxDistance,
+                           PrimitiveIntersector intersector, boolean anyHit) {
+        double none = anyHit ? -1 : INFINITY;
+        Vector3D origin = ray.getOrigin();
+        Vector3D direction = ray.getDirection();
+        double ox = origin.getX(), oy = origin.getY(), oz = origin.getZ();
+        double invX = 1 / direction.getX(), invY = 1 / direction.getY(), invZ = 1 / direction.getZ();
+        double closest = maxDistance;
+        double rootDistance = bounds.intersect(ray, invX, invY, invZ, closest);
+        if (primitives.length == 0 || rootDistance == INFINITY) return none;
+        // Nodes and leaves left for later, with the distance at which the ray enters them. Leaves are stored as the
+        // complement of the position of their slot in the node array
+        int[] stack = new int[INITIAL_STACK_SIZE];
+        double[] distances = new double[INITIAL_STACK_SIZE];
+        int[] hitChildren = new int[width];
+        double[] hitDistances = new double[width];
+        stack[0] = 0;
+        distances[0] = rootDistance;
+        int top = 1;
+        int visits = 0, tests = 0;
+        while (top > 0) {
+            int entry = stack[--top];
+            if (distances[top] >= closest) continue;
+            visits++;
+            if (entry < 0) {
+                int slot = ~entry;
+                int first = nodes[slot + OFFSET * width];
+                int count = nodes[slot + COUNT * width];
+                for (int i = first; i < first + count; i++) {
+                    tests++;
+                    double distance = intersector.intersect(primitives[i], ray, closest);
+                    if (distance < closest) {
+                        if (anyHit) {
+                            TraversalCounter.record(visits, tests);
+                            return primitives[i];
+                        }
+                        closest = distance;
+                    }
+                }
+                continue;
+            }
+            // Test every child box and sort the hit ones from the farthest to the nearest
+            int hits = 0;
+            for (int i = 0; i < width; i++) {
+                if (nodes[entry + COUNT * width + i] == EMPTY) break;
+                double distance = intersectBox(nodes, entry + i, width, ox, oy, oz, invX, invY, invZ, closest);
+                if (distance == INFINITY) continue;
+                int j = hits++;
+                for (; j > 0 && hitDistances[j - 1] < distance; j--) {
+                    hitDistances[j] = hitDistances[j - 1];
+                    hitChildren[j] = hitChildren[j - 1];
+                }
+                hitDistances[j] = distance;
+                hitChildren[j] = i;
+            }
+            if (top + hits > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+                distances = Arrays.copyOf(distances, 2 * distances.length);
+            }
+            // The nearest child is pushed last so it is visited first
+            for (int j = 0; j < hits; j++) {
+                int slot = entry + hitChildren[j];
+                stack[top] = nodes[slot + COUNT * width] > 0 ? ~slot : nodes[slot + OFFSET * width];
+                distances[top++] = hitDistances[j];
+            }
+        }
+        TraversalCounter.record(visits, tests);
+        return anyHit || closest == maxDistance ? none : closest;
+    }
+
+    /**
+     * Returns the number of nodes of the given node array.
+     */
+    static int getNodeCount(int[] nodes, int width) {
+        return nodes.length / (FIELDS * width);
+    }
+
+    /**
+     * Returns the bounds of the given node, which enclose the boxes of all its children.
+     */
+    static BoundingBox getNodeBounds(int[] nodes, int node, int width) {
+        BoundingBox box = new BoundingBox();
+        for (int i = 0; i < width; i++) {
+            if (nodes[node + COUNT * width + i] == EMPTY) break;
+            PackedBoxes.include(nodes, node + i, width, box);
+        }
+        return box;
+    }
+
+    /**
+     * Calculates the surface area heuristic cost of the given node array before dividing it by the area of the root,
+     * whose bounds are given.
+     */
+    static double getSahSum(int[] nodes, int width, BoundingBox bounds) {
+        double sahSum = bounds.getSurfaceArea() * BVHBuilder.TRAVERSAL_COST;
+        for (int node = 0; node < nodes.length; node += FIELDS * width) {
+            for (int i = 0; i < width; i++) {
+                int count = nodes[node + COUNT * width + i];
+                if (count == EMPTY) break;
+                double weight = count > 0 ? count : BVHBuilder.TRAVERSAL_COST;
+                sahSum += PackedBoxes.getSurfaceArea(nodes, node + i, width) * weight;
+            }
+        }
+        return sahSum;
+    }
+
+    /**
+     * Fills, for every node of the given node array, the position of the slot of its parent that holds its box, and
+     * for every primitive the position of the slot of its leaf.
+     */
+    static void computeTopology(int[] nodes, int width, int[] primitives, int[] parents, int[] leaves) {
+        int nodeSize = FIELDS * width;
+        parents[0] = -1;
+        for (int node = 0; node < nodes.length; node += nodeSize) {
+            for (int i = 0; i < width; i++) {
+                int slot = node + i;
+                int count = nodes[slot + COUNT * width];
+                if (count == EMPTY) break;
+                int offset = nodes[slot + OFFSET * width];
+                if (count > 0) {
+                    for (int j = offset; j < offset + count; j++) leaves[primitives[j]] = slot;
+                } else {
+                    parents[offset / nodeSize] = slot;
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the box of the given leaf slot and of the slots that enclose it, until one does not change, and returns
+     * how much the unnormalized surface area heuristic cost changed. The box of the root is not updated.
+     */
+    static double refit(int[] nodes, int width, int[] parents, int leaf, int[] primitives,
+                        List<BoundingBox> primitiveBounds) {
+        int nodeSize = FIELDS * width;
+        int count = nodes[leaf + COUNT * width];
+        BoundingBox box = BVH.getRangeBounds(primitives, nodes[leaf + OFFSET * width], count, primitiveBounds);
+        double weight = count;
+        double delta = 0;
+        int slot = leaf;
+        while (true) {
+            double area = PackedBoxes.getSurfaceArea(nodes, slot, width);
+            if (!PackedBoxes.write(nodes, slot, width, box)) break;
+            delta += (PackedBoxes.getSurfaceArea(nodes, slot, width) - area) * weight;
+            int node = slot - slot % nodeSize;
+            slot = parents[node / nodeSize];
+            if (slot < 0) break;
+            box = getNodeBounds(nodes, node, width);
+            weight = BVHBuilder.TRAVERSAL_COST;
+        }
+        return delta;
+    }
+
+    private static void gather(BVHNode[] children, int width, List<BVHNode[]> wideNodes,
+                               IdentityHashMap<BVHNode, Integer> indices) {
+        wideNodes.add(children);
+        for (BVHNode child : children) {
+            if (child.isLeaf()) continue;
+            indices.put(child, wideNodes.size());
+            gather(getChildren(child, width), width, wideNodes, indices);
+        }
+    }
+
+    /**
+     * Returns the descendants of the given inner node that become the children of its wide node.
+     */
+    private static BVHNode[] getChildren(BVHNode node, int width) {
+        ArrayList<BVHNode> children = new ArrayList<>(width);
+        children.add(node.left);
+        children.add(node.right);
+        while (children.size() < width) {
+            int largest = -1;
+            double largestArea = -1;
+            for (int i = 0; i < children.size(); i++) {
+                BVHNode child = children.get(i);
+                double area = child.bounds.getSurfaceArea();
+                if (!child.isLeaf() && area > largestArea) {
+                    largest = i;
+                    largestArea = area;
+                }
+            }
+            if (largest < 0) break;
+            BVHNode child = children.remove(largest);
+            children.add(child.left);
+            children.add(child.right);
+        }
+        return children.toArray(new BVHNode[0]);
+    }
+
+    /**
+     * Calculates the distance along a ray at which it enters the box of the child in the given slot using the slab
+     * method, or {@code Double.POSITIVE_INFINITY} if it misses it before the given distance.
+     */
+    private static double intersectBox(int[] nodes, int slot, int width, double ox, double oy, double oz,
+                                       double invX, double invY, double invZ, double maxDistance) {
+        double tNear = 0, tFar = maxDistance;
+        // Comparisons with NaN are false, so rays lying on a slab plane do not discard the box
+        double t1 = (Float.intBitsToFloat(nodes[slot]) - ox) * invX;
+        double t2 = (Float.intBitsToFloat(nodes[slot + 3 * width]) - ox) * invX;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        t1 = (Float.intBitsToFloat(nodes[slot + width]) - oy) * invY;
+        t2 = (Float.intBitsToFloat(nodes[slot + 4 * width]) - oy) * invY;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        t1 = (Float.intBitsToFloat(nodes[slot + 2 * width]) - oz) * invZ;
+        t2 = (Float.intBitsToFloat(nodes[slot + 5 * width]) - oz) * invZ;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar) return INFINITY;
+        return tNear;
+    }
+}
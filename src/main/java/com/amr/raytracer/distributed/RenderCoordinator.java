@@ -0,0 +1,470 @@
+package com.amr.raytracer.distributed;
+
+import com.amr.raytracer.JavaRaytracer;
+import com.amr.raytracer.rendering.RenderEngine;
+import com.amr.raytracer.rendering.RenderSettings;
+import com.amr.raytracer.rendering.Tile;
+import com.amr.raytracer.tools.SceneReader;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * The {@code RenderCoordinator} class renders scene files by splitting the image into tiles and handing them to
+ * {@code RenderWorker} processes connected over local sockets. Every worker connection renders one tile at a time and
+ * streams its pixels back, and the coordinator assembles them into the final image.<br>
+ * The tiles are dealt to the connections in contiguous blocks, so each one works on a region of the image. A
+ * connection that runs out of tiles steals the last tile of the connection with the most tiles left, so regions that
+ * are expensive to render, such as the ones covered by a detailed model, are shared by the connections that finish
+ * early. If a connection is lost, or its worker does not answer a tile within {@code TILE_TIMEOUT_MILLIS}, the
+ * connection is closed, the tile it was rendering is retried on another one, and its remaining tiles are stolen by
+ * the others; a tile that fails {@code MAX_ATTEMPTS} times fails the render.<br>
+ * The coordinator only accepts connections from this machine. Connections made while a render is in progress take
+ * part from the next render on.
+ *
+ * @author Ángel Martínez
+ * @see RenderWorker
+ * @see TileProtocol
+ */
+public class RenderCoordinator implements Closeable {
+
+    /**
+     * The default width and height of the tiles in pixels.
+     */
+    public static final int DEFAULT_TILE_SIZE = 32;
+
+    /**
+     * The number of times a tile is sent to a worker before the render fails.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * How long a worker can take to answer a tile, including loading its scene, before its connection is treated as
+     * lost, in milliseconds.
+     */
+    private static final int TILE_TIMEOUT_MILLIS = 120000;
+
+    /**
+     * How long an idle connection waits before looking for tiles to retry again, in milliseconds.
+     */
+    private static final long IDLE_MILLIS = 5;
+
+    private final ServerSocket serverSocket;
+    private final CopyOnWriteArrayList<Connection> connections = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "RenderCoordinator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long stolenTiles;
+    private volatile long retriedTiles;
+
+    /**
+     * Constructs a {@code RenderCoordinator} object that listens for worker connections from this machine on the
+     * given port.
+     *
+     * @param port the port, or {@code 0} to use any free port.
+     * @throws IOException if the port could not be opened.
+     * @see #getPort()
+     */
+    public RenderCoordinator(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptConnections);
+    }
+
+    /**
+     * Renders the scene of the given file with {@code RenderWorker} processes started on this machine and saves it
+     * in the folder {@code renders/} with the name of the file. The arguments are the scene file, the number of worker
+     * processes, which defaults to {@code 2}, and the number of connections of each worker, which defaults to
+     * {@code 1}.
+     *
+     * @param args the scene file, the number of workers and the number of connections per worker.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: RenderCoordinator sceneFile [workers] [connections]");
+            return;
+        }
+        File sceneFile = new File(args[0]);
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int workerConnections = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        ArrayList<Process> processes = new ArrayList<>();
+        try (RenderCoordinator coordinator = new RenderCoordinator(0)) {
+            String host = InetAddress.getLoopbackAddress().getHostAddress();
+            for (int i = 0; i < workers; i++) {
+                processes.add(RenderWorker.start(host, coordinator.getPort(), workerConnections));
+            }
+            if (!coordinator.awaitConnections(workers * workerConnections, 30000)) {
+                System.err.println("The workers did not connect in time.");
+                return;
+            }
+            long start = System.nanoTime();
+            BufferedImage image = coordinator.render(sceneFile, 400, 16f / 9, new RenderSettings(),
+                    DEFAULT_TILE_SIZE);
+            if (image == null) return;
+            System.out.printf("Rendered in %.1f ms, %d tiles stolen, %d tiles retried%n",
+                    (System.nanoTime() - start) / 1e6, coordinator.getStolenTiles(), coordinator.getRetriedTiles());
+            JavaRaytracer.saveImage(image, sceneFile.getName().replaceFirst("\\.[^.]*$", "") + ".png");
+        } catch (IOException e) {
+            System.err.println("There was an error starting the workers." + e);
+        } finally {
+            for (Process process : processes) process.destroy();
+        }
+    }
+
+    /**
+     * Returns the port this {@code RenderCoordinator} listens on.
+     *
+     * @return the port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of worker connections that are open.
+     *
+     * @return the number of open worker connections.
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Waits until at least the given number of worker connections are open or the given time passes.
+     *
+     * @param count         the number of connections.
+     * @param timeoutMillis the maximum time to wait in milliseconds.
+     * @return {@code true} if the connections are open.
+     */
+    public boolean awaitConnections(int count, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (connections) {
+            while (connections.size() < count) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                try {
+                    connections.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns the number of tiles that were stolen from another connection during the last render.
+     *
+     * @return the number of stolen tiles.
+     */
+    public long getStolenTiles() {
+        return stolenTiles;
+    }
+
+    /**
+     * Returns the number of tiles that were retried after a connection was lost or a worker failed during the last
+     * render.
+     *
+     * @return the number of retried tiles.
+     */
+    public long getRetriedTiles() {
+        return retriedTiles;
+    }
+
+    /**
+     * Renders the scene of the given file with the open worker connections and returns the assembled image, with the
+     * dimensions that correspond to the given resolution and aspect ratio.
+     *
+     * @param sceneFile   the scene file, which the workers read.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @param settings    the {@code RenderSettings}.
+     * @param tileSize    the width and height of the tiles in pixels.
+     * @return a {@code BufferedImage} containing the render, or {@code null} if it could not be completed.
+     * @see SceneReader
+     */
+    public BufferedImage render(File sceneFile, int resolution, double aspectRatio, RenderSettings settings,
+                                int tileSize) {
+        // The hash covers the models of the scene too, so workers load it again when any of its files changes
+        String key = SceneReader.getSceneHash(sceneFile.getPath());
+        if (key == null) return null;
+        ArrayList<Connection> workers = new ArrayList<>(connections);
+        if (workers.isEmpty()) {
+            System.err.println("There are no workers connected.");
+            return null;
+        }
+        BufferedImage image = new BufferedImage(RenderEngine.getImageWidth(resolution, aspectRatio), resolution,
+                TYPE_INT_RGB);
+        TileJob job = new TileJob(Tile.split(image.getWidth(), image.getHeight(), tileSize), workers.size());
+        String path = sceneFile.getAbsolutePath();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[workers.size()];
+        for (int i = 0; i < workers.size(); i++) {
+            Connection connection = workers.get(i);
+            int index = i;
+            futures[i] = CompletableFuture.runAsync(() -> {
+                while (!job.isDone()) {
+                    Tile tile = job.next(index);
+                    if (tile == null) {
+                        // Every tile left is being rendered, but some of them may still have to be retried
+                        sleep();
+                        continue;
+                    }
+                    try {
+                        int[] pixels = connection.render(key, path, resolution, aspectRatio, settings, tile);
+                        if (pixels == null) {
+                            job.retry(tile);
+                            continue;
+                        }
+                        synchronized (image) {
+                            image.setRGB(tile.getX(), tile.getY(), tile.getWidth(), tile.getHeight(), pixels, 0,
+                                    tile.getWidth());
+                        }
+                        job.complete();
+                    } catch (IOException e) {
+                        if (e instanceof SocketTimeoutException) {
+                            System.err.println("A worker did not answer in time, retrying its tile." + e);
+                        } else {
+                            System.err.println("A worker connection was lost, retrying its tile." + e);
+                        }
+                        connections.remove(connection);
+                        connection.close();
+                        job.retry(tile);
+                        job.removeWorker();
+                        return;
+                    }
+                }
+            }, executor);
+        }
+        CompletableFuture.allOf(futures).join();
+        stolenTiles = job.stolen.sum();
+        retriedTiles = job.retried.sum();
+        if (job.remaining.get() > 0) {
+            System.err.println("The render could not be completed, " + job.remaining.get() + " tiles are missing.");
+            return null;
+        }
+        return image;
+    }
+
+    /**
+     * Closes every worker connection, which makes the workers exit, and stops listening for new ones. It must not be
+     * called while a render is in progress.
+     */
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("There was an error closing the coordinator." + e);
+        }
+        for (Connection connection : connections) {
+            connection.sendClose();
+            connection.close();
+        }
+        connections.clear();
+        executor.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> register(socket));
+            } catch (SocketException e) {
+                return; // Closed
+            } catch (IOException e) {
+                System.err.println("There was an error accepting a worker connection." + e);
+            }
+        }
+    }
+
+    private void register(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(5000);
+            Connection connection = new Connection(socket);
+            if (connection.in.readInt() != TileProtocol.MAGIC) throw new IOException("Not a worker connection.");
+            socket.setSoTimeout(TILE_TIMEOUT_MILLIS);
+            synchronized (connections) {
+                connections.add(connection);
+                connections.notifyAll();
+            }
+        } catch (IOException e) {
+            System.err.println("A worker connection was rejected." + e);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Nothing else to do
+            }
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(IDLE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The tiles of a render: the ones left of every connection, the ones to retry and the number still missing.
+     */
+    private static final class TileJob {
+
+        private final List<ConcurrentLinkedDeque<Tile>> queues = new ArrayList<>();
+        private final ConcurrentLinkedDeque<Tile> retries = new ConcurrentLinkedDeque<>();
+        private final ConcurrentHashMap<Tile, Integer> attempts = new ConcurrentHashMap<>();
+        private final AtomicInteger remaining;
+        private final AtomicInteger workers;
+        private final LongAdder stolen = new LongAdder();
+        private final LongAdder retried = new LongAdder();
+        private volatile boolean failed;
+
+        private TileJob(List<Tile> tiles, int workers) {
+            for (int i = 0; i < workers; i++) {
+                queues.add(new ConcurrentLinkedDeque<>(tiles.subList(i * tiles.size() / workers,
+                        (i + 1) * tiles.size() / workers)));
+            }
+            this.remaining = new AtomicInteger(tiles.size());
+            this.workers = new AtomicInteger(workers);
+        }
+
+        private boolean isDone() {
+            return remaining.get() == 0 || failed;
+        }
+
+        /**
+         * Returns the next tile of the given connection: its own next tile, a tile to retry or the last tile of the
+         * connection with the most tiles left, or {@code null} if there is none.
+         */
+        private Tile next(int worker) {
+            Tile tile = queues.get(worker).pollFirst();
+            if (tile == null) tile = retries.pollFirst();
+            while (tile == null) {
+                ConcurrentLinkedDeque<Tile> victim = null;
+                int victimSize = 0;
+                for (ConcurrentLinkedDeque<Tile> queue : queues) {
+                    int size = queue.size();
+                    if (size > victimSize) {
+                        victim = queue;
+                        victimSize = size;
+                    }
+                }
+                if (victim == null) return null;
+                tile = victim.pollLast();
+                if (tile != null) stolen.increment();
+            }
+            return tile;
+        }
+
+        private void complete() {
+            remaining.decrementAndGet();
+        }
+
+        private void retry(Tile tile) {
+            if (attempts.merge(tile, 1, Integer::sum) >= MAX_ATTEMPTS) {
+                failed = true;
+                return;
+            }
+            retried.increment();
+            retries.addLast(tile);
+        }
+
+        private void removeWorker() {
+            if (workers.decrementAndGet() == 0) failed = true;
+        }
+    }
+
+    /**
+     * A connection to a worker and the scenes it has been told to load.
+     */
+    private static final class Connection {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final HashSet<String> scenes = new HashSet<>();
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * Requests the given tile and returns its pixels, or {@code null} if the worker could not render it.
+         */
+        private int[] render(String key, String path, int resolution, double aspectRatio, RenderSettings settings,
+                             Tile tile) throws IOException {
+            if (scenes.add(key)) {
+                out.writeByte(TileProtocol.SCENE);
+                out.writeUTF(key);
+                out.writeUTF(path);
+            }
+            out.writeByte(TileProtocol.TILE);
+            out.writeUTF(key);
+            out.writeInt(resolution);
+            out.writeDouble(aspectRatio);
+            TileProtocol.writeSettings(out, settings);
+            TileProtocol.writeTile(out, tile);
+            out.flush();
+            byte type = in.readByte();
+            if (type == TileProtocol.ERROR) {
+                System.err.println("A worker could not render " + tile + ": " + in.readUTF());
+                return null;
+            }
+            if (type != TileProtocol.PIXELS) throw new IOException("Unknown message type " + type + ".");
+            Tile rendered = TileProtocol.readTile(in);
+            if (rendered.getX() != tile.getX() || rendered.getY() != tile.getY()
+                    || rendered.getPixelCount() != tile.getPixelCount()) {
+                throw new IOException("The worker sent another tile.");
+            }
+            int[] pixels = new int[tile.getPixelCount()];
+            for (int i = 0; i < pixels.length; i++) pixels[i] = in.readInt();
+            return pixels;
+        }
+
+        private void sendClose() {
+            try {
+                out.writeByte(TileProtocol.CLOSE);
+                out.flush();
+            } catch (IOException ignored) {
+                // The worker is already gone
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Nothing else to do
+            }
+        }
+    }
+}
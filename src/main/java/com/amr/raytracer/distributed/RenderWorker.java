@@ -0,0 +1,201 @@
+package com.amr.raytracer.distributed;
+
+import com.amr.raytracer.rendering.Framebuffer;
+import com.amr.raytracer.rendering.RenderSettings;
+import com.amr.raytracer.rendering.RenderStatistics;
+import com.amr.raytracer.rendering.Scene;
+import com.amr.raytracer.rendering.Tile;
+import com.amr.raytracer.rendering.TileRenderer;
+import com.amr.raytracer.tools.SceneReader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code RenderWorker} class renders tiles for a {@code RenderCoordinator}. A worker process opens one connection
+ * to the coordinator per rendering thread and renders the tiles it is sent on each of them until the coordinator
+ * closes it.<br>
+ * Scenes are read from the scene files named by the coordinator, so workers must see the same files, such as when
+ * they run on the same machine. Every scene is loaded only once per process, the first time one of its tiles is
+ * requested, and shared by every connection and every later render of the same file. The key of a scene changes with
+ * the contents of its file and of its models, so an edited scene is loaded again, and replaces the version of the
+ * same file loaded before, which is dropped with its renderer. The {@code TileRenderer} of the
+ * last image requested of every scene is kept as well, so the structures derived from the scene, such as its light
+ * tree, are prepared once per image instead of once per tile.
+ *
+ * @author Ángel Martínez
+ * @see RenderCoordinator
+ * @see TileProtocol
+ */
+public final class RenderWorker {
+
+    /**
+     * The scenes loaded by this process, by the key the coordinator gives them.
+     */
+    private static final ConcurrentHashMap<String, Scene> SCENES = new ConcurrentHashMap<>();
+
+    /**
+     * The key of the version of every scene file loaded by this process, by the path of the file.
+     */
+    private static final ConcurrentHashMap<String, String> SCENE_KEYS = new ConcurrentHashMap<>();
+
+    /**
+     * The renderer of the last image requested of every scene, by the key of the scene.
+     */
+    private static final ConcurrentHashMap<String, CachedRenderer> RENDERERS = new ConcurrentHashMap<>();
+
+    private RenderWorker() {
+    }
+
+    /**
+     * Connects to the coordinator at the given host and port and renders tiles until it closes the connections. The
+     * arguments are the host, the port and, optionally, the number of connections, which defaults to the number of
+     * processors.
+     *
+     * @param args the host, the port and the number of connections.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: RenderWorker host port [connections]");
+            return;
+        }
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < connections; i++) {
+            new Thread(() -> serve(host, port), "RenderWorker-" + i).start();
+        }
+    }
+
+    /**
+     * Starts a worker process on this machine with the class path of the current process.
+     *
+     * @param host        the host of the coordinator.
+     * @param port        the port of the coordinator.
+     * @param connections the number of connections of the worker.
+     * @return the worker {@code Process}.
+     * @throws IOException if the process could not be started.
+     */
+    public static Process start(String host, int port, int connections) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), RenderWorker.class.getName(),
+                host, String.valueOf(port), String.valueOf(connections)).inheritIO().start();
+    }
+
+    /**
+     * Serves a single connection to the coordinator.
+     */
+    private static void serve(String host, int port) {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(TileProtocol.MAGIC);
+            out.flush();
+            while (true) {
+                byte type = in.readByte();
+                if (type == TileProtocol.CLOSE) return;
+                if (type == TileProtocol.SCENE) {
+                    String key = in.readUTF();
+                    String path = in.readUTF();
+                    loadScene(key, path);
+                } else if (type == TileProtocol.TILE) {
+                    renderTile(in, out);
+                } else {
+                    throw new IOException("Unknown message type " + type + ".");
+                }
+            }
+        } catch (EOFException e) {
+            // The coordinator went away
+        } catch (IOException e) {
+            System.err.println("There was an error talking to the coordinator." + e);
+        }
+    }
+
+    /**
+     * Loads the scene of the given file with the given key, unless it is already loaded, and drops the version of the
+     * file loaded before if its key was a different one.
+     */
+    private static void loadScene(String key, String path) {
+        SCENE_KEYS.compute(path, (p, previousKey) -> {
+            if (previousKey != null && !previousKey.equals(key)) {
+                SCENES.remove(previousKey);
+                RENDERERS.remove(previousKey);
+            }
+            return key;
+        });
+        SCENES.computeIfAbsent(key, k -> SceneReader.loadScene(path));
+    }
+
+    private static void renderTile(DataInputStream in, DataOutputStream out) throws IOException {
+        String key = in.readUTF();
+        int resolution = in.readInt();
+        double aspectRatio = in.readDouble();
+        RenderSettings settings = TileProtocol.readSettings(in);
+        Tile tile = TileProtocol.readTile(in);
+        Scene scene = SCENES.get(key);
+        int[] pixels = null;
+        String error = null;
+        if (scene == null) {
+            error = "The scene could not be loaded.";
+        } else {
+            try {
+                TileRenderer renderer = getRenderer(key, scene, resolution, aspectRatio, settings);
+                Framebuffer framebuffer = new Framebuffer(tile);
+                renderer.render(tile, framebuffer);
+                pixels = new int[tile.getPixelCount()];
+                for (int y = 0; y < tile.getHeight(); y++) {
+                    for (int x = 0; x < tile.getWidth(); x++) {
+                        pixels[y * tile.getWidth() + x] = framebuffer.getRGB(tile.getX() + x, tile.getY() + y);
+                    }
+                }
+            } catch (Throwable e) {
+                // Any failure, even an Error such as a StackOverflowError, is reported instead of losing the connection
+                error = e.toString();
+            }
+        }
+        if (pixels == null) {
+            out.writeByte(TileProtocol.ERROR);
+            out.writeUTF(error);
+        } else {
+            out.writeByte(TileProtocol.PIXELS);
+            TileProtocol.writeTile(out, tile);
+            for (int pixel : pixels) out.writeInt(pixel);
+        }
+        out.flush();
+    }
+
+    /**
+     * Returns the {@code TileRenderer} of the image of the scene with the given key with the given dimensions and
+     * settings, which is only constructed if the last image requested of the scene was a different one.
+     */
+    private static TileRenderer getRenderer(String key, Scene scene, int resolution, double aspectRatio,
+                                            RenderSettings settings) {
+        String image = resolution + " " + aspectRatio + " " + settings.getLightSamples() + " "
+                + settings.getSceneLayout();
+        return RENDERERS.compute(key, (k, cached) -> cached != null && cached.image.equals(image) ? cached
+                : new CachedRenderer(image, new TileRenderer(scene, resolution, aspectRatio, settings,
+                new RenderStatistics()))).renderer;
+    }
+
+    /**
+     * A {@code TileRenderer} and the dimensions and settings of its image.
+     */
+    private static final class CachedRenderer {
+
+        private final String image;
+        private final TileRenderer renderer;
+
+        private CachedRenderer(String image, TileRenderer renderer) {
+            this.image = image;
+            this.renderer = renderer;
+        }
+    }
+}
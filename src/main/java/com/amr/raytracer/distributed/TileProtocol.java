@@ -0,0 +1,62 @@
+package com.amr.raytracer.distributed;
+
+import com.amr.raytracer.acceleration.BVHLayout;
+import com.amr.raytracer.rendering.RenderSettings;
+import com.amr.raytracer.rendering.Tile;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The {@code TileProtocol} class defines the messages exchanged between a {@code RenderCoordinator} and its
+ * {@code RenderWorker} connections. Every message starts with a one byte type followed by its fields, written with
+ * {@code DataOutputStream}. A worker connection starts by sending {@code MAGIC}; from then on the coordinator sends
+ * requests and the worker answers each tile with its pixels or an error:
+ * <pre>
+ * SCENE  key path                                                       coordinator to worker
+ * TILE   key resolution aspectRatio lightSamples layout x y w h         coordinator to worker
+ * CLOSE                                                                 coordinator to worker
+ * PIXELS x y w h rgb...                                                 worker to coordinator
+ * ERROR  message                                                        worker to coordinator
+ * </pre>
+ *
+ * @author Ángel Martínez
+ * @see RenderCoordinator
+ * @see RenderWorker
+ */
+final class TileProtocol {
+
+    static final int MAGIC = 0x52545431;
+    static final byte SCENE = 1;
+    static final byte TILE = 2;
+    static final byte CLOSE = 3;
+    static final byte PIXELS = 4;
+    static final byte ERROR = 5;
+
+    private TileProtocol() {
+    }
+
+    static void writeSettings(DataOutputStream out, RenderSettings settings) throws IOException {
+        out.writeInt(settings.getLightSamples());
+        out.writeUTF(settings.getSceneLayout().name());
+    }
+
+    static RenderSettings readSettings(DataInputStream in) throws IOException {
+        RenderSettings settings = new RenderSettings();
+        settings.setLightSamples(in.readInt());
+        settings.setSceneLayout(BVHLayout.valueOf(in.readUTF()));
+        return settings;
+    }
+
+    static void writeTile(DataOutputStream out, Tile tile) throws IOException {
+        out.writeInt(tile.getX());
+        out.writeInt(tile.getY());
+        out.writeInt(tile.getWidth());
+        out.writeInt(tile.getHeight());
+    }
+
+    static Tile readTile(DataInputStream in) throws IOException {
+        return new Tile(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+    }
+}
@@ -0,0 +1,289 @@
+package com.amr.raytracer.math;
+
+import java.util.Objects;
+
+/**
+ * The {@code BoundingBox} class represents an axis-aligned box in space that encloses one or more objects. It is used
+ * by acceleration structures to discard quickly the objects a {@code Ray} cannot hit. A new {@code BoundingBox} is
+ * empty and grows as points or other boxes are included in it.
+ *
+ * @author Ángel Martínez
+ * @see Ray
+ */
+public class BoundingBox {
+
+    private double minX, minY, minZ;
+    private double maxX, maxY, maxZ;
+
+    /**
+     * Constructs an empty {@code BoundingBox} object.
+     */
+    public BoundingBox() {
+        minX = minY = minZ = Double.POSITIVE_INFINITY;
+        maxX = maxY = maxZ = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Constructs a {@code BoundingBox} object with the given minimum and maximum corners.
+     *
+     * @param min the minimum corner.
+     * @param max the maximum corner.
+     */
+    public BoundingBox(Vector3D min, Vector3D max) {
+        this();
+        include(min);
+        include(max);
+    }
+
+    /**
+     * Constructs a {@code BoundingBox} object equal to the given one.
+     *
+     * @param box the {@code BoundingBox} to copy.
+     */
+    public BoundingBox(BoundingBox box) {
+        this();
+        include(box);
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMinZ() {
+        return minZ;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public double getMaxZ() {
+        return maxZ;
+    }
+
+    /**
+     * Returns the minimum coordinate of this {@code BoundingBox} in the given axis.
+     *
+     * @param axis the axis: {@code 0} for x, {@code 1} for y and {@code 2} for z.
+     * @return the minimum coordinate in the given axis.
+     */
+    public double getMin(int axis) {
+        return axis == 0 ? minX : axis == 1 ? minY : minZ;
+    }
+
+    /**
+     * Returns the maximum coordinate of this {@code BoundingBox} in the given axis.
+     *
+     * @param axis the axis: {@code 0} for x, {@code 1} for y and {@code 2} for z.
+     * @return the maximum coordinate in the given axis.
+     */
+    public double getMax(int axis) {
+        return axis == 0 ? maxX : axis == 1 ? maxY : maxZ;
+    }
+
+    /**
+     * Returns the coordinate of the center of this {@code BoundingBox} in the given axis.
+     *
+     * @param axis the axis: {@code 0} for x, {@code 1} for y and {@code 2} for z.
+     * @return the coordinate of the center in the given axis.
+     */
+    public double getCenter(int axis) {
+        return (getMin(axis) + getMax(axis)) / 2;
+    }
+
+    /**
+     * Returns the axis in which this {@code BoundingBox} is the longest.
+     *
+     * @return the longest axis: {@code 0} for x, {@code 1} for y and {@code 2} for z.
+     */
+    public int getLongestAxis() {
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        if (dx >= dy && dx >= dz) return 0;
+        return dy >= dz ? 1 : 2;
+    }
+
+    /**
+     * Returns whether this {@code BoundingBox} does not contain any point.
+     *
+     * @return {@code true} if this {@code BoundingBox} is empty.
+     */
+    public boolean isEmpty() {
+        return minX > maxX || minY > maxY || minZ > maxZ;
+    }
+
+    /**
+     * Grows this {@code BoundingBox} so that it contains the given point.
+     *
+     * @param x the x coordinate of the point.
+     * @param y the y coordinate of the point.
+     * @param z the z coordinate of the point.
+     */
+    public void include(double x, double y, double z) {
+        if (x < minX) minX = x;
+        if (y < minY) minY = y;
+        if (z < minZ) minZ = z;
+        if (x > maxX) maxX = x;
+        if (y > maxY) maxY = y;
+        if (z > maxZ) maxZ = z;
+    }
+
+    /**
+     * Grows this {@code BoundingBox} so that it contains the given point.
+     *
+     * @param point the point.
+     */
+    public void include(Vector3D point) {
+        include(point.getX(), point.getY(), point.getZ());
+    }
+
+    /**
+     * Grows this {@code BoundingBox} so that it contains the given one.
+     *
+     * @param box the {@code BoundingBox} to contain.
+     */
+    public void include(BoundingBox box) {
+        if (box.minX < minX) minX = box.minX;
+        if (box.minY < minY) minY = box.minY;
+        if (box.minZ < minZ) minZ = box.minZ;
+        if (box.maxX > maxX) maxX = box.maxX;
+        if (box.maxY > maxY) maxY = box.maxY;
+        if (box.maxZ > maxZ) maxZ = box.maxZ;
+    }
+
+    /**
+     * Returns whether this {@code BoundingBox} and the given one overlap. An empty box overlaps nothing.
+     *
+     * @param box the other {@code BoundingBox}.
+     * @return {@code true} if the boxes overlap.
+     */
+    public boolean intersects(BoundingBox box) {
+        return minX <= box.maxX && box.minX <= maxX && minY <= box.maxY && box.minY <= maxY
+                && minZ <= box.maxZ && box.minZ <= maxZ;
+    }
+
+    /**
+     * Returns whether the given {@code BoundingBox} is inside this one. An empty box is inside any box.
+     *
+     * @param box the other {@code BoundingBox}.
+     * @return {@code true} if the given box is inside this one.
+     */
+    public boolean contains(BoundingBox box) {
+        return box.isEmpty() || (minX <= box.minX && box.maxX <= maxX && minY <= box.minY && box.maxY <= maxY
+                && minZ <= box.minZ && box.maxZ <= maxZ);
+    }
+
+    /**
+     * Calculates and returns the distance from the given point to the nearest point of this {@code BoundingBox},
+     * which is {@code 0} if the point is inside.
+     *
+     * @param point the point.
+     * @return the distance from the point to this {@code BoundingBox}, or {@code Double.POSITIVE_INFINITY} if it is
+     * empty.
+     */
+    public double getDistance(Vector3D point) {
+        if (isEmpty()) return Double.POSITIVE_INFINITY;
+        double dx = Math.max(0, Math.max(minX - point.getX(), point.getX() - maxX));
+        double dy = Math.max(0, Math.max(minY - point.getY(), point.getY() - maxY));
+        double dz = Math.max(0, Math.max(minZ - point.getZ(), point.getZ() - maxZ));
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Calculates and returns the surface area of this {@code BoundingBox}. An empty box has no area.
+     *
+     * @return the surface area of this {@code BoundingBox}.
+     */
+    public double getSurfaceArea() {
+        if (isEmpty()) return 0;
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Calculates and returns the distance along the given {@code Ray} at which it enters this {@code BoundingBox}
+     * using the slab method. The inverse of the direction of the ray is given so it is computed once per ray.
+     *
+     * @param ray         the {@code Ray}.
+     * @param invX        the inverse of the x component of the direction of the ray.
+     * @param invY        the inverse of the y component of the direction of the ray.
+     * @param invZ        the inverse of the z component of the direction of the ray.
+     * @param maxDistance the distance beyond which intersections are ignored.
+     * @return the entry distance, {@code 0} if the origin is inside, or {@code Double.POSITIVE_INFINITY} if the ray
+     * misses this {@code BoundingBox} before the given distance.
+     */
+    public double intersect(Ray ray, double invX, double invY, double invZ, double maxDistance) {
+        Vector3D origin = ray.getOrigin();
+        double tNear = 0, tFar = maxDistance;
+        // Comparisons with NaN are false, so rays lying on a slab plane do not discard the box
+        double t1 = (minX - origin.getX()) * invX;
+        double t2 = (maxX - origin.getX()) * invX;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        t1 = (minY - origin.getY()) * invY;
+        t2 = (maxY - origin.getY()) * invY;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        t1 = (minZ - origin.getZ()) * invZ;
+        t2 = (maxZ - origin.getZ()) * invZ;
+        if (t1 > t2) {
+            double t = t1;
+            t1 = t2;
+            t2 = t;
+        }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar) return Double.POSITIVE_INFINITY;
+        return tNear;
+    }
+
+    /**
+     * Returns whether the given object is a {@code BoundingBox} with the same corners as this one.
+     *
+     * @param o the object to compare with.
+     * @return {@code true} if both boxes have the same corners.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BoundingBox)) return false;
+        BoundingBox box = (BoundingBox) o;
+        return minX == box.minX && minY == box.minY && minZ == box.minZ
+                && maxX == box.maxX && maxY == box.maxY && maxZ == box.maxZ;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Returns a string representation of this {@code BoundingBox}.
+     *
+     * @return a string representation of this {@code BoundingBox}.
+     */
+    @Override
+    public String toString() {
+        return "BoundingBox{" +
+                "min=(" + minX + ", " + minY + ", " + minZ + ")" +
+                ", max=(" + maxX + ", " + maxY + ", " + maxZ + ")" +
+                '}';
+    }
+}
@@ -0,0 +1,190 @@
+package com.amr.raytracer.objects;
+
+import com.amr.raytracer.acceleration.BVH;
+import com.amr.raytracer.acceleration.BVHLayout;
+import com.amr.raytracer.acceleration.BVHQuality;
+import com.amr.raytracer.math.BoundingBox;
+import com.amr.raytracer.math.Intersection;
+import com.amr.raytracer.math.Ray;
+import com.amr.raytracer.math.Vector3D;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * The {@code Mesh} class represents the geometry of a 3D model: a set of triangles in model coordinates. A
+ * {@code Mesh} is never modified once constructed, so it can be shared by any number of {@code Model3D} objects,
+ * even from different scenes, each of them placing it at its own position.<br>
+ * The triangles are organized in a {@code BVH} when the {@code Mesh} is constructed, so intersecting a ray only tests
+ * the few triangles whose bounds it hits. The {@code BVH} is shared along with the triangles.
+ *
+ * @author Ángel Martínez
+ * @see Model3D
+ * @see Triangle
+ * @see BVH
+ */
+public class Mesh {
+
+    /**
+     * The {@code BVHQuality} used by meshes that do not specify one.
+     */
+    public static final BVHQuality DEFAULT_QUALITY = BVHQuality.BALANCED;
+
+    /**
+     * The {@code BVHLayout} used by meshes that do not specify one.
+     */
+    public static final BVHLayout DEFAULT_LAYOUT = BVHLayout.BINARY;
+
+    private final List<Triangle> triangles;
+    private final BVH bvh;
+    private final long memorySize;
+
+    /**
+     * Constructs a {@code Mesh} object with the given triangles and builds its {@code BVH} with the default quality
+     * and layout. The triangles, their vertices and their normals must not be modified afterwards.
+     *
+     * @param triangles the triangles in model coordinates.
+     * @see #DEFAULT_QUALITY
+     * @see #DEFAULT_LAYOUT
+     */
+    public Mesh(List<Triangle> triangles) {
+        this(triangles, DEFAULT_QUALITY);
+    }
+
+    /**
+     * Constructs a {@code Mesh} object with the given triangles and builds its {@code BVH} with the given quality and
+     * the default layout. The triangles, their vertices and their normals must not be modified afterwards.
+     *
+     * @param triangles the triangles in model coordinates.
+     * @param quality   the {@code BVHQuality}.
+     */
+    public Mesh(List<Triangle> triangles, BVHQuality quality) {
+        this(triangles, quality, DEFAULT_LAYOUT);
+    }
+
+    /**
+     * Constructs a {@code Mesh} object with the given triangles and builds its {@code BVH} with the given quality and
+     * layout. The triangles, their vertices and their normals must not be modified afterwards.
+     *
+     * @param triangles the triangles in model coordinates.
+     * @param quality   the {@code BVHQuality}.
+     * @param layout    the {@code BVHLayout}.
+     */
+    public Mesh(List<Triangle> triangles, BVHQuality quality, BVHLayout layout) {
+        this.triangles = Collections.unmodifiableList(new ArrayList<>(triangles));
+        this.bvh = BVH.build(getTriangleBounds(this.triangles), quality, layout);
+        this.memorySize = estimateMemorySize(this.triangles) + bvh.getMemorySize();
+    }
+
+    private Mesh(List<Triangle> triangles, BVH bvh, long memorySize) {
+        this.triangles = triangles;
+        this.bvh = bvh;
+        this.memorySize = memorySize;
+    }
+
+    /**
+     * Returns a copy of this {@code Mesh} with the triangles at the given indices replaced by the given ones, such as
+     * after moving a few vertices. The {@code BVH} of the copy is refitted from the one of this {@code Mesh}, so only
+     * the boxes that enclose the replaced triangles are updated, unless refitting degrades it enough to be rebuilt.
+     * This {@code Mesh} is not modified.
+     *
+     * @param indices      the indices of the triangles to replace.
+     * @param replacements the new triangles, in the same order as the indices.
+     * @return the edited copy of this {@code Mesh}.
+     * @throws IllegalArgumentException if there is not one new triangle per index.
+     * @see BVH#refit(int[], List)
+     */
+    public Mesh replaceTriangles(int[] indices, List<Triangle> replacements) {
+        if (indices.length != replacements.size()) {
+            throw new IllegalArgumentException("There must be one new triangle per replaced index.");
+        }
+        ArrayList<Triangle> edited = new ArrayList<>(triangles);
+        for (int i = 0; i < indices.length; i++) edited.set(indices[i], replacements.get(i));
+        List<Triangle> editedTriangles = Collections.unmodifiableList(edited);
+        BVH refitted = bvh.refit(indices, getTriangleBounds(editedTriangles));
+        return new Mesh(editedTriangles, refitted, memorySize - bvh.getMemorySize() + refitted.getMemorySize());
+    }
+
+    /**
+     * Returns the triangles of this {@code Mesh}.
+     *
+     * @return an unmodifiable list with the triangles of this {@code Mesh}.
+     */
+    public List<Triangle> getTriangles() {
+        return triangles;
+    }
+
+    /**
+     * Returns the {@code BVH} of the triangles of this {@code Mesh}.
+     *
+     * @return the {@code BVH} of this {@code Mesh}.
+     */
+    public BVH getBVH() {
+        return bvh;
+    }
+
+    /**
+     * Returns an estimate of the heap memory used by this {@code Mesh}, in bytes.
+     *
+     * @return the estimated memory size of this {@code Mesh}.
+     */
+    public long getMemorySize() {
+        return memorySize;
+    }
+
+    /**
+     * Calculates and returns the nearest intersection of this {@code Mesh} and the given {@code Ray}, both in model
+     * coordinates. The returned {@code Intersection} has no object nor normal; its triangle is returned in the given
+     * array.
+     *
+     * @param ray      the {@code Ray} in model coordinates.
+     * @param triangle an array of length 1 where the intersected {@code Triangle} is stored.
+     * @return the nearest {@code Intersection}, or {@code null} if there is none.
+     */
+    Intersection getIntersection(Ray ray, Triangle[] triangle) {
+        Intersection[] closestIntersection = new Intersection[1];
+        bvh.intersect(ray, Double.POSITIVE_INFINITY, (primitive, r, maxDistance) -> {
+            Triangle candidate = triangles.get(primitive);
+            Intersection intersection = candidate.getIntersection(r);
+            if (intersection == null) return Double.POSITIVE_INFINITY;
+            double distance = intersection.getDistanceFrom(r.getOrigin());
+            if (distance >= maxDistance) return Double.POSITIVE_INFINITY;
+            closestIntersection[0] = intersection;
+            triangle[0] = candidate;
+            return distance;
+        });
+        return closestIntersection[0];
+    }
+
+    /**
+     * Returns a view of the bounds of the given triangles that computes them as they are read, so refitting only
+     * computes the bounds of the triangles it visits.
+     */
+    private static List<BoundingBox> getTriangleBounds(List<Triangle> triangles) {
+        return new AbstractList<BoundingBox>() {
+            @Override
+            public BoundingBox get(int index) {
+                return triangles.get(index).getBounds();
+            }
+
+            @Override
+            public int size() {
+                return triangles.size();
+            }
+        };
+    }
+
+    private static long estimateMemorySize(List<Triangle> triangles) {
+        // Object headers and references of a Triangle and its two arrays, plus every distinct Vector3D
+        IdentityHashMap<Vector3D, Boolean> vectors = new IdentityHashMap<>();
+        for (Triangle triangle : triangles) {
+            for (Vector3D vertex : triangle.getVertices()) vectors.put(vertex, Boolean.TRUE);
+            if (triangle.getNormals() == null) continue;
+            for (Vector3D normal : triangle.getNormals()) vectors.put(normal, Boolean.TRUE);
+        }
+        return triangles.size() * 96L + vectors.size() * 40L;
+    }
+}
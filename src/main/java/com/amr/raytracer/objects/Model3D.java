@@ -1,66 +1,103 @@
 package com.amr.raytracer.objects;
 
+import com.amr.raytracer.math.BoundingBox;
 import com.amr.raytracer.math.Intersection;
 import com.amr.raytracer.math.Ray;
 import com.amr.raytracer.math.Vector3D;
 
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 
 import static com.amr.raytracer.math.Barycentric.getBarycentricCoordinates;
-import static com.amr.raytracer.math.Vector3D.multiply;
+import static com.amr.raytracer.math.Vector3D.*;
 
+/**
+ * The {@code Model3D} class represents a 3D model made of triangles, such as the ones loaded from OBJ files. Its
+ * geometry is a {@code Mesh} in model coordinates that is placed at the position of the {@code Model3D}; rays are
+ * moved to model coordinates instead of moving the vertices, so the same {@code Mesh} can be shared by many models.
+ *
+ * @author Ángel Martínez
+ * @see Mesh
+ * @see Object3D
+ */
 public class Model3D extends Object3D {
 
-    private ArrayList<Triangle> triangles;
+    private Mesh mesh;
 
     public Model3D(Vector3D position, Color color, ArrayList<Triangle> triangles) {
+        this(position, color, new Mesh(triangles));
+    }
+
+    /**
+     * Constructs a {@code Model3D} object that places the given {@code Mesh} at the given position, with the given
+     * {@code Color}.
+     *
+     * @param position the position in space.
+     * @param color    the {@code Color}.
+     * @param mesh     the {@code Mesh}.
+     * @see Mesh
+     */
+    public Model3D(Vector3D position, Color color, Mesh mesh) {
         super(position, color);
-        setTriangles(triangles);
+        setMesh(mesh);
     }
 
-    public ArrayList<Triangle> getTriangles() {
-        return triangles;
+    /**
+     * Returns the {@code Mesh} of this {@code Model3D}.
+     *
+     * @return the {@code Mesh} of this {@code Model3D}.
+     */
+    public Mesh getMesh() {
+        return mesh;
     }
 
-    public void setTriangles(ArrayList<Triangle> triangles) {
-        Vector3D position = getPosition();
-        HashSet<Vector3D> uniqueVertices = new HashSet<>();
-        for(Triangle triangle : triangles){
-            uniqueVertices.addAll(List.of(triangle.getVertices()));
-        }
+    /**
+     * Sets the {@code Mesh} of this {@code Model3D}.
+     *
+     * @param mesh the new {@code Mesh}.
+     */
+    public void setMesh(Mesh mesh) {
+        this.mesh = mesh;
+    }
 
-        for(Vector3D vertex : uniqueVertices){
-            vertex.setX(vertex.getX() + position.getX());
-            vertex.setY(vertex.getY() + position.getY());
-            vertex.setZ(vertex.getZ() + position.getZ());
-        }
+    /**
+     * Returns the triangles of this {@code Model3D} in model coordinates.
+     *
+     * @return the triangles of the {@code Mesh} of this {@code Model3D}.
+     */
+    public List<Triangle> getTriangles() {
+        return getMesh().getTriangles();
+    }
 
-        this.triangles = triangles;
+    public void setTriangles(ArrayList<Triangle> triangles) {
+        setMesh(new Mesh(triangles));
+    }
+
+    @Override
+    public BoundingBox getBounds() {
+        BoundingBox bounds = getMesh().getBVH().getBounds();
+        if (bounds.isEmpty()) return bounds;
+        Vector3D position = getPosition();
+        return new BoundingBox(
+                add(new Vector3D(bounds.getMinX(), bounds.getMinY(), bounds.getMinZ()), position),
+                add(new Vector3D(bounds.getMaxX(), bounds.getMaxY(), bounds.getMaxZ()), position));
     }
 
     @Override
     public Intersection getIntersection(Ray ray) {
-        Intersection closestIntersection = null;
-        for (Triangle triangle : getTriangles()) {
-            Intersection intersection = triangle.getIntersection(ray);
-            if (intersection == null) continue;
-            intersection.setObject(this);
-            Vector3D N = new Vector3D();
-            double[] uVw = getBarycentricCoordinates(intersection.getPosition(), triangle);
-            Vector3D[] normals = triangle.getNormals();
-            for(int i = 0; i < uVw.length; i++) {
-                N = Vector3D.add(N, multiply(normals[i], uVw[i]));
-            }
-            intersection.setNormal(N);
-            double distance = intersection.getDistanceFrom(ray.getOrigin());
-            if (closestIntersection == null) closestIntersection = intersection;
-            else if (distance < closestIntersection.getDistanceFrom(ray.getOrigin())) {
-                closestIntersection = intersection;
-            }
+        Vector3D position = getPosition();
+        Ray localRay = new Ray(subtract(ray.getOrigin(), position), ray.getDirection());
+        Triangle[] triangle = new Triangle[1];
+        Intersection intersection = getMesh().getIntersection(localRay, triangle);
+        if (intersection == null) return null;
+        Vector3D P = intersection.getPosition();
+        Vector3D N = new Vector3D();
+        double[] uVw = getBarycentricCoordinates(P, triangle[0]);
+        Vector3D[] normals = triangle[0].getNormals();
+        for (int i = 0; i < uVw.length; i++) {
+            N = Vector3D.add(N, multiply(normals[i], uVw[i]));
         }
-        return closestIntersection;
+        return new Intersection(ray, this, add(P, position), N);
     }
 }
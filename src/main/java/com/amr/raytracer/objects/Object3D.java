@@ -1,6 +1,9 @@
 package com.amr.raytracer.objects;
 
+import com.amr.raytracer.math.BoundingBox;
 import com.amr.raytracer.math.Vector3D;
+import com.amr.raytracer.rendering.ColorRGB;
+import com.amr.raytracer.rendering.Material;
 
 import java.awt.*;
 
@@ -8,27 +11,50 @@ import java.awt.*;
  * The abstract class {@code Object3D} represents a generic solid object in space. It implements the
  * {@code Intersectable} interface which allows instances of this class to be intersected by a ray regarding a
  * raytracing algorithm. This class can be used to extend functionality to other more specific types of solid
- * objects.
+ * objects. Every {@code Object3D} has a {@code Material} that defines how its surface is shaded. The ambient, diffuse
+ * and specular colors of the object are precomputed whenever its {@code Color} or {@code Material} change.
  *
  * @author Ángel Martínez
  * @see Intersectable
+ * @see Material
  */
 public abstract class Object3D implements Intersectable {
 
     private Vector3D position;
     private Color color;
+    private Material material;
+    private Color ambientColor;
+    private Color diffuseColor;
+    private Color specularColor;
 
     /**
-     * Constructs a {@code Object3D} object with the given position in space and {@code Color}.
+     * Constructs a {@code Object3D} object with the given position in space and {@code Color}, and the default
+     * {@code Material}.
      *
      * @param position the position in space.
      * @param color    the {@code Color}.
      * @see Vector3D
      * @see Color
+     * @see Material#DEFAULT
      */
     public Object3D(Vector3D position, Color color) {
+        this(position, color, Material.DEFAULT);
+    }
+
+    /**
+     * Constructs a {@code Object3D} object with the given position in space, {@code Color} and {@code Material}.
+     *
+     * @param position the position in space.
+     * @param color    the {@code Color}.
+     * @param material the {@code Material}.
+     * @see Vector3D
+     * @see Color
+     * @see Material
+     */
+    public Object3D(Vector3D position, Color color, Material material) {
         setPosition(position);
-        setColor(color);
+        this.color = color;
+        setMaterial(material);
     }
 
     /**
@@ -42,16 +68,28 @@ public abstract class Object3D implements Intersectable {
     }
 
     /**
-     * Sets the position in space of this {@code Object3D}.
+     * Sets the position in space of this {@code Object3D}. Moving an object between renders of the same
+     * {@code Scene} only refits the acceleration structure of the scene.
      *
      * @param position the new position in space.
      * @see Vector3D
      * @see #getPosition()
      */
-    private void setPosition(Vector3D position) {
+    public void setPosition(Vector3D position) {
         this.position = position;
     }
 
+    /**
+     * Returns the {@code BoundingBox} that encloses this {@code Object3D} in space, which lets acceleration structures
+     * skip it for the rays that miss the box. Objects that extend infinitely, such as planes, have no bounds.
+     *
+     * @return the {@code BoundingBox} of this {@code Object3D}, or {@code null} if it is unbounded.
+     * @see BoundingBox
+     */
+    public BoundingBox getBounds() {
+        return null;
+    }
+
     /**
      * Returns the {@code Color} of this {@code Object3D}.
      *
@@ -71,5 +109,69 @@ public abstract class Object3D implements Intersectable {
      */
     protected void setColor(Color color) {
         this.color = color;
+        updateShadingColors();
+    }
+
+    /**
+     * Returns the {@code Material} of this {@code Object3D}.
+     *
+     * @return the {@code Material} of this {@code Object3D}.
+     * @see Material
+     */
+    public Material getMaterial() {
+        return material;
+    }
+
+    /**
+     * Sets the {@code Material} of this {@code Object3D}.
+     *
+     * @param material the new {@code Material}.
+     * @see Material
+     * @see #getMaterial()
+     */
+    public void setMaterial(Material material) {
+        this.material = material;
+        updateShadingColors();
+    }
+
+    /**
+     * Returns the ambient {@code Color} of this {@code Object3D}, which is its {@code Color} multiplied by the ambient
+     * coefficient of its {@code Material}.
+     *
+     * @return the ambient {@code Color} of this {@code Object3D}.
+     */
+    public Color getAmbientColor() {
+        return ambientColor;
+    }
+
+    /**
+     * Returns the diffuse {@code Color} of this {@code Object3D}, which is its {@code Color} multiplied by the diffuse
+     * coefficient of its {@code Material}.
+     *
+     * @return the diffuse {@code Color} of this {@code Object3D}.
+     */
+    public Color getDiffuseColor() {
+        return diffuseColor;
+    }
+
+    /**
+     * Returns the specular {@code Color} of this {@code Object3D}, which is its {@code Color} multiplied by the
+     * specular coefficient of its {@code Material}.
+     *
+     * @return the specular {@code Color} of this {@code Object3D}.
+     */
+    public Color getSpecularColor() {
+        return specularColor;
+    }
+
+    /**
+     * Precomputes the ambient, diffuse and specular colors of this {@code Object3D} from its {@code Color} and its
+     * {@code Material}.
+     */
+    private void updateShadingColors() {
+        if (getColor() == null || getMaterial() == null) return;
+        ambientColor = ColorRGB.multiply(getColor(), getMaterial().getAmbient());
+        diffuseColor = ColorRGB.multiply(getColor(), getMaterial().getDiffuse());
+        specularColor = ColorRGB.multiply(getColor(), getMaterial().getSpecular());
     }
 }
@@ -1,8 +1,10 @@
 package com.amr.raytracer.objects;
 
+import com.amr.raytracer.math.BoundingBox;
 import com.amr.raytracer.math.Intersection;
 import com.amr.raytracer.math.Ray;
 import com.amr.raytracer.math.Vector3D;
+import com.amr.raytracer.rendering.Material;
 
 import java.awt.*;
 
@@ -36,6 +38,22 @@ public class Sphere extends Object3D {
         setRadius(radius);
     }
 
+    /**
+     * Constructs a {@code Sphere} object a the given position, with the given radius, {@code Color} and
+     * {@code Material}.
+     *
+     * @param position the position in space.
+     * @param radius   the radius.
+     * @param color    the {@code Color}.
+     * @param material the {@code Material}.
+     * @see Object3D#Object3D(Vector3D, Color, Material)
+     * @see Sphere#setRadius(double)
+     */
+    public Sphere(Vector3D position, double radius, Color color, Material material) {
+        super(position, color, material);
+        setRadius(radius);
+    }
+
     /**
      * Returns the radius of this {@code Sphere}.
      *
@@ -56,6 +74,12 @@ public class Sphere extends Object3D {
         this.radius = radius;
     }
 
+    @Override
+    public BoundingBox getBounds() {
+        Vector3D extent = new Vector3D(getRadius(), getRadius(), getRadius());
+        return new BoundingBox(subtract(getPosition(), extent), add(getPosition(), extent));
+    }
+
     /**
      * Returns the nearest {@code Intersection} of this {@code Sphere} and the given {@code Ray}. If there are no
      * intersections the return value will be {@code null}.
@@ -1,5 +1,6 @@
 package com.amr.raytracer.objects;
 
+import com.amr.raytracer.math.BoundingBox;
 import com.amr.raytracer.math.Intersection;
 import com.amr.raytracer.math.Ray;
 import com.amr.raytracer.math.Vector3D;
@@ -38,6 +39,17 @@ public class Triangle implements Intersectable {
         this.normals = normals;
     }
 
+    /**
+     * Calculates and returns the {@code BoundingBox} that encloses this {@code Triangle}.
+     *
+     * @return the {@code BoundingBox} of this {@code Triangle}.
+     */
+    public BoundingBox getBounds() {
+        BoundingBox bounds = new BoundingBox();
+        for (Vector3D vertex : getVertices()) bounds.include(vertex);
+        return bounds;
+    }
+
     @Override
     public Intersection getIntersection(Ray ray) {
         Vector3D[] vert = getVertices();
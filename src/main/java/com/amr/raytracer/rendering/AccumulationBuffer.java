@@ -0,0 +1,205 @@
+package com.amr.raytracer.rendering;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * The {@code AccumulationBuffer} class accumulates the samples of a progressive render: every pass renders one more
+ * sample of each pixel, and the buffer keeps the running mean of the samples of every pixel as four floats, red,
+ * green, blue and alpha, where {@code 1} is the brightest value an image can hold. The samples are the radiance of
+ * the pixel before it is clamped, and the mean is kept in floats instead of being quantized to eight bits after every
+ * sample, so the noise of the sampling of the lights averages out over the passes and the mean converges to the
+ * radiance of the pixel, even where it is brighter than the image can show. Only the image of the buffer is clamped.
+ * The alpha of a pixel is the fraction of its samples whose ray hit an object.<br>
+ * Every pixel belongs to a single tile, so the threads of a render write their tiles without any lock. The buffer is
+ * only converted to an image or written to a file once the passes are done. Like a {@code Framebuffer}, it can hold
+ * the whole image or only a window of it, and its pixels are always addressed in the coordinates of the whole image.
+ *
+ * @author Ángel Martínez
+ * @see RenderEngine#accumulate(Scene, int, double, RenderSettings, RenderStatistics, CancellationToken,
+ * AccumulationBuffer)
+ */
+public final class AccumulationBuffer {
+
+    private static final int CHANNELS = 4;
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final float[] pixels;
+    private final int[] samples;
+
+    /**
+     * Constructs an empty {@code AccumulationBuffer} object for a whole image with the given dimensions.
+     *
+     * @param width  the width in pixels.
+     * @param height the height in pixels.
+     * @see RenderEngine#getImageWidth(int, double)
+     */
+    public AccumulationBuffer(int width, int height) {
+        this(0, 0, width, height);
+    }
+
+    /**
+     * Constructs an empty {@code AccumulationBuffer} object for the window of an image given by the given
+     * {@code Tile}.
+     *
+     * @param window the window of the image.
+     */
+    public AccumulationBuffer(Tile window) {
+        this(window.getX(), window.getY(), window.getWidth(), window.getHeight());
+    }
+
+    private AccumulationBuffer(int x, int y, int width, int height) {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("The dimensions cannot be negative.");
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.pixels = new float[width * height * CHANNELS];
+        this.samples = new int[width * height];
+    }
+
+    /**
+     * Returns the horizontal pixel coordinate of the top left corner of this {@code AccumulationBuffer} in the image.
+     *
+     * @return the horizontal coordinate of the corner.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Returns the vertical pixel coordinate of the top left corner of this {@code AccumulationBuffer} in the image.
+     *
+     * @return the vertical coordinate of the corner.
+     */
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns whether every pixel of the given {@code Tile} is inside this {@code AccumulationBuffer}.
+     *
+     * @param tile the {@code Tile}.
+     * @return {@code true} if the tile is inside.
+     */
+    public boolean contains(Tile tile) {
+        return tile.getX() >= x && tile.getY() >= y && tile.getX() + tile.getWidth() <= x + width
+                && tile.getY() + tile.getHeight() <= y + height;
+    }
+
+    /**
+     * Returns the mean of the samples of the given channel of the given pixel of the image.
+     *
+     * @param x       the horizontal pixel coordinate in the image.
+     * @param y       the vertical pixel coordinate in the image.
+     * @param channel the channel: {@code 0} for red, {@code 1} for green, {@code 2} for blue and {@code 3} for alpha.
+     * @return the mean of the channel, or {@code 0} if the pixel has no samples.
+     * @throws IllegalArgumentException if the channel does not exist.
+     */
+    public float get(int x, int y, int channel) {
+        if (channel < 0 || channel >= CHANNELS) {
+            throw new IllegalArgumentException("There is no channel " + channel + ".");
+        }
+        return pixels[getIndex(x, y) * CHANNELS + channel];
+    }
+
+    /**
+     * Returns the number of samples accumulated in the given pixel of the image.
+     *
+     * @param x the horizontal pixel coordinate in the image.
+     * @param y the vertical pixel coordinate in the image.
+     * @return the number of samples of the pixel.
+     */
+    public int getSampleCount(int x, int y) {
+        return samples[getIndex(x, y)];
+    }
+
+    /**
+     * Returns the lowest number of samples accumulated in any pixel, such as the number of passes finished by every
+     * tile of a progressive render.
+     *
+     * @return the lowest number of samples of a pixel.
+     */
+    public int getMinSampleCount() {
+        int min = samples.length == 0 ? 0 : Integer.MAX_VALUE;
+        for (int count : samples) min = Math.min(min, count);
+        return min;
+    }
+
+    /**
+     * Discards every sample, such as when the {@code Scene} changes and the progressive render starts over.
+     */
+    public void clear() {
+        Arrays.fill(pixels, 0);
+        Arrays.fill(samples, 0);
+    }
+
+    /**
+     * Returns the mean of the samples as a {@code BufferedImage} with the dimensions of this
+     * {@code AccumulationBuffer}, clamped and quantized to eight bits per channel, where the pixels without samples
+     * are black.
+     *
+     * @return a {@code BufferedImage} of the mean of the samples.
+     */
+    public BufferedImage toImage() {
+        int[] rgb = new int[width * height];
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] = toByte(pixels[i * CHANNELS]) << 16 | toByte(pixels[i * CHANNELS + 1]) << 8
+                    | toByte(pixels[i * CHANNELS + 2]);
+        }
+        BufferedImage image = new BufferedImage(width, height, TYPE_INT_RGB);
+        image.setRGB(0, 0, width, height, rgb, 0, width);
+        return image;
+    }
+
+    /**
+     * Writes the mean of the color of the samples to the given file as a three channel Portable Float Map, without
+     * clamping or quantizing it.
+     *
+     * @param file the file to write.
+     * @return {@code true} if the image was written.
+     */
+    public boolean writePfm(Path file) {
+        return PortableFloatMap.write(file, pixels, width, height, CHANNELS, 3);
+    }
+
+    /**
+     * Adds a sample with the given unclamped red, green and blue channels to the given pixel of the image, whose ray
+     * hit an object if the given flag is set. Only the thread that renders the tile of the pixel writes it.
+     */
+    void add(int x, int y, float[] rgb, boolean hit) {
+        int index = getIndex(x, y);
+        int count = ++samples[index];
+        int i = index * CHANNELS;
+        // Running mean, which never holds the sum of the samples
+        pixels[i] += (rgb[0] - pixels[i]) / count;
+        pixels[i + 1] += (rgb[1] - pixels[i + 1]) / count;
+        pixels[i + 2] += (rgb[2] - pixels[i + 2]) / count;
+        pixels[i + 3] += ((hit ? 1 : 0) - pixels[i + 3]) / count;
+    }
+
+    private static int toByte(float value) {
+        return Math.max(0, Math.min(255, Math.round(value * 255)));
+    }
+
+    /**
+     * Returns the index of the given pixel of the image, before multiplying it by the number of channels.
+     */
+    private int getIndex(int x, int y) {
+        return (y - this.y) * width + (x - this.x);
+    }
+}
@@ -0,0 +1,62 @@
+package com.amr.raytracer.rendering;
+
+/**
+ * The {@code Aov} enum lists the arbitrary output variables, or passes, that a render can write besides the color of
+ * its pixels, for compositing. Every pass is written in the same trace as the color, for the ray of the camera of each
+ * pixel. The color passes hold the contribution of each term of the shading to the radiance of the pixel before it is
+ * clamped to the image, where {@code 1} is the brightest value the image can hold, so they add up to the
+ * {@code COLOR} pass and can exceed {@code 1}.
+ *
+ * @author Ángel Martínez
+ * @see AovBuffer
+ */
+public enum Aov {
+
+    /**
+     * The color of the pixel, as in the image of the render but before it is clamped.
+     */
+    COLOR(3),
+    /**
+     * The distance from the camera to the surface seen by the pixel, or infinity for the background.
+     */
+    DEPTH(1),
+    /**
+     * The normal of the surface seen by the pixel, or zero for the background.
+     */
+    NORMAL(3),
+    /**
+     * The index in the {@code Scene} plus one of the {@code Object3D} seen by the pixel, or zero for the background.
+     */
+    OBJECT_ID(1),
+    /**
+     * The ambient color of the surface seen by the pixel.
+     */
+    AMBIENT(3),
+    /**
+     * The diffuse color that the lights add to the surface seen by the pixel.
+     */
+    DIFFUSE(3),
+    /**
+     * The specular color that the lights add to the surface seen by the pixel.
+     */
+    SPECULAR(3),
+    /**
+     * The color reflected by the surface seen by the pixel, already weighted by its reflectivity.
+     */
+    REFLECTION(3);
+
+    private final int channels;
+
+    Aov(int channels) {
+        this.channels = channels;
+    }
+
+    /**
+     * Returns the number of float channels of this pass.
+     *
+     * @return the number of channels, {@code 1} or {@code 3}.
+     */
+    public int getChannels() {
+        return channels;
+    }
+}
@@ -0,0 +1,180 @@
+package com.amr.raytracer.rendering;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@code AovBuffer} class holds the passes of a render besides its {@code Framebuffer}, written by the same trace
+ * as the color of its pixels. Every pass is kept as a compact array of floats with its channels interleaved, and only
+ * the passes asked for are kept and computed. Like a {@code Framebuffer}, it can hold the whole image or only a window
+ * of it, and its pixels are always addressed in the coordinates of the whole image; tiles can be rendered into it
+ * from several threads at the same time.<br>
+ * Each pass can be written as a Portable Float Map, the uncompressed float image format read by compositing tools.
+ *
+ * @author Ángel Martínez
+ * @see Aov
+ * @see RenderEngine#render(Scene, int, double, RenderSettings, RenderStatistics, CancellationToken, AovBuffer)
+ */
+public final class AovBuffer {
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final EnumMap<Aov, float[]> passes = new EnumMap<>(Aov.class);
+
+    /**
+     * Constructs an {@code AovBuffer} object for the given passes of a whole image with the given dimensions, with
+     * every pixel set to zero.
+     *
+     * @param width  the width in pixels.
+     * @param height the height in pixels.
+     * @param aovs   the passes to keep.
+     * @see RenderEngine#getImageWidth(int, double)
+     */
+    public AovBuffer(int width, int height, Set<Aov> aovs) {
+        this(0, 0, width, height, aovs);
+    }
+
+    /**
+     * Constructs an {@code AovBuffer} object for the given passes of the window of an image given by the given
+     * {@code Tile}, with every pixel set to zero.
+     *
+     * @param window the window of the image.
+     * @param aovs   the passes to keep.
+     */
+    public AovBuffer(Tile window, Set<Aov> aovs) {
+        this(window.getX(), window.getY(), window.getWidth(), window.getHeight(), aovs);
+    }
+
+    private AovBuffer(int x, int y, int width, int height, Set<Aov> aovs) {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("The dimensions cannot be negative.");
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        for (Aov aov : aovs) passes.put(aov, new float[width * height * aov.getChannels()]);
+    }
+
+    /**
+     * Returns the horizontal pixel coordinate of the top left corner of this {@code AovBuffer} in the image.
+     *
+     * @return the horizontal coordinate of the corner.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Returns the vertical pixel coordinate of the top left corner of this {@code AovBuffer} in the image.
+     *
+     * @return the vertical coordinate of the corner.
+     */
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the passes kept by this {@code AovBuffer}.
+     *
+     * @return an unmodifiable set of the passes.
+     */
+    public Set<Aov> getAovs() {
+        return Collections.unmodifiableSet(passes.keySet());
+    }
+
+    /**
+     * Returns whether every pixel of the given {@code Tile} is inside this {@code AovBuffer}.
+     *
+     * @param tile the {@code Tile}.
+     * @return {@code true} if the tile is inside.
+     */
+    public boolean contains(Tile tile) {
+        return tile.getX() >= x && tile.getY() >= y && tile.getX() + tile.getWidth() <= x + width
+                && tile.getY() + tile.getHeight() <= y + height;
+    }
+
+    /**
+     * Returns the value of the given channel of the given pass at the given pixel of the image.
+     *
+     * @param aov     the pass.
+     * @param x       the horizontal pixel coordinate in the image.
+     * @param y       the vertical pixel coordinate in the image.
+     * @param channel the channel, from {@code 0} to the number of channels of the pass minus one.
+     * @return the value of the channel.
+     * @throws IllegalArgumentException if the pass is not kept or the channel does not exist.
+     */
+    public float get(Aov aov, int x, int y, int channel) {
+        if (channel < 0 || channel >= aov.getChannels()) {
+            throw new IllegalArgumentException("The pass " + aov + " has no channel " + channel + ".");
+        }
+        return getPass(aov)[getIndex(x, y) * aov.getChannels() + channel];
+    }
+
+    /**
+     * Writes every pass to a Portable Float Map in the given directory, named after the given name and the pass, such
+     * as {@code name.depth.pfm}.
+     *
+     * @param directory the directory to write the files at.
+     * @param name      the name of the render.
+     * @return {@code true} if every pass was written.
+     * @see #writePfm(Aov, Path)
+     */
+    public boolean writePfm(Path directory, String name) {
+        boolean written = true;
+        for (Aov aov : passes.keySet()) {
+            Path file = directory.resolve(name + "." + aov.name().toLowerCase(Locale.ROOT) + ".pfm");
+            written &= writePfm(aov, file);
+        }
+        return written;
+    }
+
+    /**
+     * Writes the given pass to the given file as a Portable Float Map, with one or three channels like the pass.
+     *
+     * @param aov  the pass.
+     * @param file the file to write.
+     * @return {@code true} if the pass was written.
+     * @throws IllegalArgumentException if the pass is not kept.
+     */
+    public boolean writePfm(Aov aov, Path file) {
+        return PortableFloatMap.write(file, getPass(aov), width, height, aov.getChannels(), aov.getChannels());
+    }
+
+    /**
+     * Stores the passes of the given {@code AovSample} kept by this {@code AovBuffer} at the given pixel of the image.
+     */
+    void set(int x, int y, AovSample sample) {
+        int index = getIndex(x, y);
+        for (Map.Entry<Aov, float[]> pass : passes.entrySet()) {
+            float[] channels = sample.get(pass.getKey());
+            System.arraycopy(channels, 0, pass.getValue(), index * channels.length, channels.length);
+        }
+    }
+
+    private float[] getPass(Aov aov) {
+        float[] pass = passes.get(aov);
+        if (pass == null) throw new IllegalArgumentException("The pass " + aov + " is not kept.");
+        return pass;
+    }
+
+    /**
+     * Returns the index of the given pixel of the image in the arrays of the passes, before multiplying it by their
+     * number of channels.
+     */
+    private int getIndex(int x, int y) {
+        return (y - this.y) * width + (x - this.x);
+    }
+}
@@ -0,0 +1,97 @@
+package com.amr.raytracer.rendering;
+
+import com.amr.raytracer.math.Vector3D;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * The {@code AovSample} class accumulates the passes of the pixel being rendered on a thread while its ray is traced,
+ * before they are stored in an {@code AovBuffer}. Only the passes asked for are written; the values given for the
+ * rest are ignored. It is reset and reused for every pixel of a tile.
+ *
+ * @author Ángel Martínez
+ * @see Aov
+ * @see AovBuffer
+ */
+final class AovSample {
+
+    private static final Aov[] AOVS = Aov.values();
+
+    private final float[][] values = new float[AOVS.length][];
+    private final boolean[] written = new boolean[AOVS.length];
+
+    /**
+     * Constructs an {@code AovSample} object for the background that writes the given passes.
+     */
+    AovSample(Set<Aov> aovs) {
+        for (Aov aov : AOVS) values[aov.ordinal()] = new float[aov.getChannels()];
+        for (Aov aov : aovs) written[aov.ordinal()] = true;
+        reset();
+    }
+
+    /**
+     * Returns whether the given pass is written, so that computing a value for it can be skipped otherwise.
+     */
+    boolean has(Aov aov) {
+        return written[aov.ordinal()];
+    }
+
+    /**
+     * Resets every pass to its value for the background.
+     */
+    void reset() {
+        for (float[] channels : values) Arrays.fill(channels, 0);
+        values[Aov.DEPTH.ordinal()][0] = Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the channels of the given pass.
+     */
+    float[] get(Aov aov) {
+        return values[aov.ordinal()];
+    }
+
+    /**
+     * Sets the single channel of the given pass.
+     */
+    void set(Aov aov, double value) {
+        if (!written[aov.ordinal()]) return;
+        values[aov.ordinal()][0] = (float) value;
+    }
+
+    /**
+     * Sets the channels of the given pass to the components of the given vector.
+     */
+    void set(Aov aov, Vector3D v) {
+        if (!written[aov.ordinal()]) return;
+        float[] channels = values[aov.ordinal()];
+        channels[0] = (float) v.getX();
+        channels[1] = (float) v.getY();
+        channels[2] = (float) v.getZ();
+    }
+
+    /**
+     * Adds the given unclamped red, green and blue channels multiplied by the given weight to the channels of the
+     * given pass.
+     */
+    void add(Aov aov, double[] rgb, double weight) {
+        if (!written[aov.ordinal()]) return;
+        float[] channels = values[aov.ordinal()];
+        channels[0] += (float) (rgb[0] * weight);
+        channels[1] += (float) (rgb[1] * weight);
+        channels[2] += (float) (rgb[2] * weight);
+    }
+
+    /**
+     * Adds the given {@code Color} multiplied by the given weight to the channels of the given pass.
+     */
+    void add(Aov aov, Color color, double weight) {
+        if (!written[aov.ordinal()]) return;
+        float[] channels = values[aov.ordinal()];
+        channels[0] += (float) (color.getRed() / 255.0 * weight);
+        channels[1] += (float) (color.getGreen() / 255.0 * weight);
+        channels[2] += (float) (color.getBlue() / 255.0 * weight);
+    }
+}
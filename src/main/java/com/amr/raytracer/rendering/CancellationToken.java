@@ -0,0 +1,64 @@
+package com.amr.raytracer.rendering;
+
+import java.time.Duration;
+
+/**
+ * The {@code CancellationToken} class lets a render be stopped before it is complete, either explicitly from any
+ * thread or when an optional deadline passes. The {@code RenderEngine} checks it before starting every tile, so a
+ * stopped render finishes the tiles it is rendering and returns the pixels rendered so far.
+ *
+ * @author Ángel Martínez
+ * @see RenderEngine#render(Scene, int, double, RenderSettings, RenderStatistics, CancellationToken)
+ * @see Framebuffer
+ */
+public final class CancellationToken {
+
+    private final long deadlineNanos;
+    private final boolean hasDeadline;
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a {@code CancellationToken} object without a deadline.
+     */
+    public CancellationToken() {
+        this.deadlineNanos = 0;
+        this.hasDeadline = false;
+    }
+
+    /**
+     * Constructs a {@code CancellationToken} object whose deadline is the given time from now.
+     *
+     * @param timeout the time until the deadline.
+     * @throws IllegalArgumentException if the timeout is negative.
+     */
+    public CancellationToken(Duration timeout) {
+        if (timeout.isNegative()) throw new IllegalArgumentException("The timeout cannot be negative.");
+        this.deadlineNanos = System.nanoTime() + timeout.toNanos();
+        this.hasDeadline = true;
+    }
+
+    /**
+     * Requests the render to stop.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns whether the render should stop, either because it was cancelled or because the deadline passed.
+     *
+     * @return {@code true} if the render should stop.
+     */
+    public boolean isCancelled() {
+        return cancelled || isExpired();
+    }
+
+    /**
+     * Returns whether the deadline passed.
+     *
+     * @return {@code true} if there is a deadline and it passed.
+     */
+    public boolean isExpired() {
+        return hasDeadline && System.nanoTime() - deadlineNanos >= 0;
+    }
+}
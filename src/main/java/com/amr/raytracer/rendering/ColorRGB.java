@@ -28,6 +28,28 @@ public final class ColorRGB {
         return new Color(r, g, b);
     }
 
+    /**
+     * Adds the given {@code Color} multiplied by the given weight to the given unclamped red, green and blue channels,
+     * where {@code 1} is the brightest value of a {@code Color}.
+     */
+    static void add(double[] rgb, Color color, double weight) {
+        rgb[0] += color.getRed() / 255.0 * weight;
+        rgb[1] += color.getGreen() / 255.0 * weight;
+        rgb[2] += color.getBlue() / 255.0 * weight;
+    }
+
+    /**
+     * Clamps the given unclamped red, green and blue channels and returns them as a packed, opaque RGB value, like
+     * {@code Color.getRGB}.
+     */
+    static int toRGB(double[] rgb) {
+        return 0xFF000000 | toByte(rgb[0]) << 16 | toByte(rgb[1]) << 8 | toByte(rgb[2]);
+    }
+
+    private static int toByte(double value) {
+        return (int) Math.max(0, Math.min(255, Math.round(value * 255)));
+    }
+
     private static int clamp(int value) {
         if (value > 255) return 255;
         else if (value < 0) return 0;
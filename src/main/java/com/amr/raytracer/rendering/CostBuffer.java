@@ -0,0 +1,135 @@
+package com.amr.raytracer.rendering;
+
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * The {@code CostBuffer} class holds the cost of every pixel of a render measured by every {@code CostMetric}: the
+ * intersection tests, the nodes visited, the shadow rays and the depth of the reflections of its rays. It is the
+ * output of the debug mode of {@code RenderEngine} that renders the same {@code Scene} and camera as a regular render
+ * while counting the work of each pixel, to find at a glance what makes a render expensive, such as a mesh with too
+ * many triangles or a light whose influence radius makes every surface trace a shadow ray towards it.<br>
+ * Every metric can be turned into a false-color heatmap, from black for the cheapest pixels through purple, red and
+ * orange to pale yellow for the most expensive pixel of the image. The colors follow the logarithm of the cost, since
+ * the cost of a few pixels, such as the silhouettes of meshes, is often orders of magnitude above the rest.
+ *
+ * @author Ángel Martínez
+ * @see CostMetric
+ * @see RenderEngine#renderCost(Scene, int, double, RenderSettings, RenderStatistics, CancellationToken)
+ */
+public final class CostBuffer {
+
+    private static final CostMetric[] METRICS = CostMetric.values();
+
+    /**
+     * The stops of the colormap of the heatmaps, evenly spaced from the lowest to the highest cost.
+     */
+    private static final int[] COLORMAP = {0x000004, 0x57106E, 0xBC3754, 0xF98E09, 0xFCFFA4};
+
+    private final int width;
+    private final int height;
+    private final int[][] costs;
+
+    /**
+     * Constructs a {@code CostBuffer} object for an image with the given dimensions where every pixel costs nothing.
+     */
+    CostBuffer(int width, int height) {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("The dimensions cannot be negative.");
+        this.width = width;
+        this.height = height;
+        this.costs = new int[METRICS.length][width * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the cost of the given pixel measured by the given {@code CostMetric}.
+     *
+     * @param metric the {@code CostMetric}.
+     * @param x      the horizontal pixel coordinate.
+     * @param y      the vertical pixel coordinate.
+     * @return the cost of the pixel.
+     */
+    public int get(CostMetric metric, int x, int y) {
+        return costs[metric.ordinal()][y * width + x];
+    }
+
+    /**
+     * Returns the highest cost of any pixel measured by the given {@code CostMetric}.
+     *
+     * @param metric the {@code CostMetric}.
+     * @return the highest cost of a pixel.
+     */
+    public int getMax(CostMetric metric) {
+        int max = 0;
+        for (int cost : costs[metric.ordinal()]) max = Math.max(max, cost);
+        return max;
+    }
+
+    /**
+     * Returns the sum of the costs of every pixel measured by the given {@code CostMetric}.
+     *
+     * @param metric the {@code CostMetric}.
+     * @return the total cost of the image.
+     */
+    public long getTotal(CostMetric metric) {
+        long total = 0;
+        for (int cost : costs[metric.ordinal()]) total += cost;
+        return total;
+    }
+
+    /**
+     * Returns the costs measured by the given {@code CostMetric} as a false-color heatmap with the dimensions of the
+     * image, scaled from the cheapest pixels, in black, to the most expensive pixel of the image, in pale yellow.
+     *
+     * @param metric the {@code CostMetric}.
+     * @return a {@code BufferedImage} of the heatmap.
+     */
+    public BufferedImage toHeatmap(CostMetric metric) {
+        int[] values = costs[metric.ordinal()];
+        double scale = Math.log1p(getMax(metric));
+        int[] rgb = new int[values.length];
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] = getColor(scale == 0 ? 0 : Math.log1p(values[i]) / scale);
+        }
+        BufferedImage image = new BufferedImage(width, height, TYPE_INT_RGB);
+        image.setRGB(0, 0, width, height, rgb, 0, width);
+        return image;
+    }
+
+    /**
+     * Sets the costs of the given pixel measured by every {@code CostMetric}. Only the thread that renders the tile of
+     * the pixel writes it.
+     */
+    void set(int x, int y, long intersectionTests, long nodeVisits, PixelCost cost) {
+        int i = y * width + x;
+        costs[CostMetric.INTERSECTION_TESTS.ordinal()][i] = (int) Math.min(intersectionTests, Integer.MAX_VALUE);
+        costs[CostMetric.NODE_VISITS.ordinal()][i] = (int) Math.min(nodeVisits, Integer.MAX_VALUE);
+        costs[CostMetric.SHADOW_RAYS.ordinal()][i] = cost.getShadowRays();
+        costs[CostMetric.RAY_DEPTH.ordinal()][i] = cost.getRayDepth();
+    }
+
+    /**
+     * Returns the color of the colormap at the given position, from {@code 0} to {@code 1}, interpolating linearly
+     * between its stops.
+     */
+    private static int getColor(double t) {
+        double position = t * (COLORMAP.length - 1);
+        int stop = Math.min((int) position, COLORMAP.length - 2);
+        double f = position - stop;
+        int from = COLORMAP[stop], to = COLORMAP[stop + 1];
+        int color = 0;
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            int a = from >> shift & 0xFF, b = to >> shift & 0xFF;
+            color |= (int) Math.round(a + (b - a) * f) << shift;
+        }
+        return color;
+    }
+}
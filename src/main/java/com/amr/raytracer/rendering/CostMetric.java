@@ -0,0 +1,30 @@
+package com.amr.raytracer.rendering;
+
+/**
+ * The {@code CostMetric} enum lists the measures of the cost of the pixels of a render that a {@code CostBuffer}
+ * holds. Every measure covers every ray traced for the pixel, including its shadow rays and reflected rays.
+ *
+ * @author Ángel Martínez
+ * @see CostBuffer
+ */
+public enum CostMetric {
+
+    /**
+     * The number of intersection tests of primitives: the objects of the {@code Scene} and the triangles of its
+     * meshes, as well as the unbounded objects tested against every ray.
+     */
+    INTERSECTION_TESTS,
+    /**
+     * The number of nodes visited in the acceleration structures of the {@code Scene} and of its meshes.
+     */
+    NODE_VISITS,
+    /**
+     * The number of shadow rays traced towards the lights, without the ones culled before they are traced.
+     */
+    SHADOW_RAYS,
+    /**
+     * The number of rays along the deepest path of reflections, which is {@code 1} if only the ray of the camera was
+     * traced.
+     */
+    RAY_DEPTH
+}
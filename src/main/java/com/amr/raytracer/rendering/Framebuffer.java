@@ -0,0 +1,250 @@
+package com.amr.raytracer.rendering;
+
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_BINARY;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * The {@code Framebuffer} class holds the pixels of a render as they are rendered, together with a coverage mask that
+ * tells which of them have been rendered. Tiles can be rendered into it from several threads at the same time. A
+ * render that is stopped before it is complete returns its {@code Framebuffer} with only the finished tiles covered.
+ * <br>
+ * A {@code Framebuffer} can also hold only a rectangular window of the image, such as for a crop-window render. Its
+ * pixels are always addressed in the coordinates of the whole image.
+ *
+ * @author Ángel Martínez
+ * @see TileRenderer
+ * @see CancellationToken
+ */
+public final class Framebuffer {
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private final boolean[] coverage;
+
+    /**
+     * Constructs an empty {@code Framebuffer} object for a whole image with the given dimensions, with no pixel
+     * covered.
+     *
+     * @param width  the width in pixels.
+     * @param height the height in pixels.
+     */
+    public Framebuffer(int width, int height) {
+        this(0, 0, width, height);
+    }
+
+    /**
+     * Constructs an empty {@code Framebuffer} object for the window of an image given by the given {@code Tile}, with
+     * no pixel covered.
+     *
+     * @param window the window of the image.
+     */
+    public Framebuffer(Tile window) {
+        this(window.getX(), window.getY(), window.getWidth(), window.getHeight());
+    }
+
+    private Framebuffer(int x, int y, int width, int height) {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("The dimensions cannot be negative.");
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+        this.coverage = new boolean[width * height];
+    }
+
+    /**
+     * Returns the horizontal pixel coordinate of the top left corner of this {@code Framebuffer} in the image.
+     *
+     * @return the horizontal coordinate of the corner.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Returns the vertical pixel coordinate of the top left corner of this {@code Framebuffer} in the image.
+     *
+     * @return the vertical coordinate of the corner.
+     */
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns whether every pixel of the given {@code Tile} is inside this {@code Framebuffer}.
+     *
+     * @param tile the {@code Tile}.
+     * @return {@code true} if the tile is inside.
+     */
+    public boolean contains(Tile tile) {
+        return tile.getX() >= x && tile.getY() >= y && tile.getX() + tile.getWidth() <= x + width
+                && tile.getY() + tile.getHeight() <= y + height;
+    }
+
+    /**
+     * Returns the RGB value of the given pixel of the image, which is black if it is not covered.
+     *
+     * @param x the horizontal pixel coordinate in the image.
+     * @param y the vertical pixel coordinate in the image.
+     * @return the RGB value of the pixel.
+     */
+    public int getRGB(int x, int y) {
+        return pixels[getIndex(x, y)];
+    }
+
+    /**
+     * Returns whether the given pixel of the image has been rendered.
+     *
+     * @param x the horizontal pixel coordinate in the image.
+     * @param y the vertical pixel coordinate in the image.
+     * @return {@code true} if the pixel is covered.
+     */
+    public boolean isCovered(int x, int y) {
+        return coverage[getIndex(x, y)];
+    }
+
+    /**
+     * Returns the number of pixels that have been rendered.
+     *
+     * @return the number of covered pixels.
+     */
+    public int getCoveredPixelCount() {
+        int count = 0;
+        for (boolean covered : coverage) {
+            if (covered) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the fraction of the pixels that have been rendered.
+     *
+     * @return the coverage, from {@code 0} to {@code 1}.
+     */
+    public double getCoverage() {
+        return coverage.length == 0 ? 1 : (double) getCoveredPixelCount() / coverage.length;
+    }
+
+    /**
+     * Returns whether every pixel has been rendered.
+     *
+     * @return {@code true} if every pixel is covered.
+     */
+    public boolean isComplete() {
+        return getCoveredPixelCount() == coverage.length;
+    }
+
+    /**
+     * Returns the pixels as a {@code BufferedImage} with the dimensions of this {@code Framebuffer}, where the pixels
+     * that are not covered are black.
+     *
+     * @return a {@code BufferedImage} of the pixels.
+     */
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(width, height, TYPE_INT_RGB);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+        return image;
+    }
+
+    /**
+     * Returns the coverage mask as a black and white {@code BufferedImage}, where the covered pixels are white.
+     *
+     * @return a {@code BufferedImage} of the coverage mask.
+     */
+    public BufferedImage toCoverageMask() {
+        BufferedImage mask = new BufferedImage(width, height, TYPE_BYTE_BINARY);
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                if (coverage[row * width + column]) mask.setRGB(column, row, 0xFFFFFF);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Copies the covered pixels into the given image of the whole render, at their position in the image, and leaves
+     * the rest of its pixels as they are. So the window of a crop-window render replaces its part of an image rendered
+     * before.
+     *
+     * @param image the {@code BufferedImage} of the whole render.
+     * @throws IllegalArgumentException if this {@code Framebuffer} is not inside the image.
+     */
+    public void compositeInto(BufferedImage image) {
+        if (x + width > image.getWidth() || y + height > image.getHeight()) {
+            throw new IllegalArgumentException("The framebuffer is not inside the image.");
+        }
+        for (int row = 0; row < height; row++) {
+            int column = 0;
+            while (column < width) {
+                // Copies every run of covered pixels of the row at once
+                while (column < width && !coverage[row * width + column]) column++;
+                int end = column;
+                while (end < width && coverage[row * width + end]) end++;
+                if (end > column) {
+                    image.setRGB(x + column, y + row, end - column, 1, pixels, row * width + column, width);
+                }
+                column = end;
+            }
+        }
+    }
+
+    /**
+     * Returns whether every pixel of the given {@code Tile} is covered.
+     */
+    boolean isCovered(Tile tile) {
+        for (int py = tile.getY(); py < tile.getY() + tile.getHeight(); py++) {
+            int start = getIndex(tile.getX(), py);
+            for (int i = start; i < start + tile.getWidth(); i++) {
+                if (!coverage[i]) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores the RGB value of the given pixel of the image without covering it.
+     */
+    void setRGB(int x, int y, int rgb) {
+        pixels[getIndex(x, y)] = rgb;
+    }
+
+    /**
+     * Marks every pixel of the given {@code Tile} as covered.
+     */
+    void cover(Tile tile) {
+        for (int py = tile.getY(); py < tile.getY() + tile.getHeight(); py++) {
+            int start = getIndex(tile.getX(), py);
+            for (int i = start; i < start + tile.getWidth(); i++) coverage[i] = true;
+        }
+    }
+
+    /**
+     * Marks every pixel of the given {@code Tile} as not covered, so that it is rendered again.
+     */
+    void uncover(Tile tile) {
+        for (int py = tile.getY(); py < tile.getY() + tile.getHeight(); py++) {
+            int start = getIndex(tile.getX(), py);
+            for (int i = start; i < start + tile.getWidth(); i++) coverage[i] = false;
+        }
+    }
+
+    /**
+     * Returns the index in the arrays of the given pixel of the image.
+     */
+    private int getIndex(int x, int y) {
+        return (y - this.y) * width + (x - this.x);
+    }
+}
@@ -0,0 +1,345 @@
+package com.amr.raytracer.rendering;
+
+import com.amr.raytracer.math.BoundingBox;
+import com.amr.raytracer.math.Ray;
+import com.amr.raytracer.math.Vector3D;
+import com.amr.raytracer.objects.Object3D;
+import com.amr.raytracer.rendering.cameras.Camera;
+import com.amr.raytracer.rendering.lights.Light;
+import com.amr.raytracer.rendering.lights.PointLight;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.amr.raytracer.math.Vector3D.add;
+import static com.amr.raytracer.math.Vector3D.cross;
+import static com.amr.raytracer.math.Vector3D.dot;
+import static com.amr.raytracer.math.Vector3D.magnitude;
+import static com.amr.raytracer.math.Vector3D.negative;
+import static com.amr.raytracer.math.Vector3D.subtract;
+
+/**
+ * The {@code IncrementalRenderer} class renders the same view of a {@code Scene} again and again as it is edited, such
+ * as in an interactive tool, and only renders again the tiles that an edit can change. While a tile is rendered, its
+ * {@code TileDependencies} record the objects its rays hit, the occluders of its shadow rays and the lights that lit
+ * it, as well as where its shaded points and its shadow and reflection rays are. So the time to update the image
+ * after an edit grows with the area of the screen the edit affects, not with the size of the image.<br>
+ * An edited object changes the tiles that depended on it, the tiles whose shadow or reflection rays it now overlaps
+ * and the tiles whose view it is now in. An edited light changes the tiles it lit and the tiles with shaded points
+ * within its influence radius. But when the render samples its point lights from a {@code LightTree}, every point
+ * light weighs on the choice of the light sampled at every shaded point, whatever its influence radius, so an edited
+ * point light changes every tile with shaded points. Moved objects, added and removed objects and lights, and
+ * changes of their colors, materials and intensities are found by comparing them with how they were in the previous
+ * render; any other edit can be reported with {@code markChanged}. Changing the {@code Camera}, an unbounded object,
+ * such as a plane, or moving an object out of the bounds the scene had in the last full render, renders the whole
+ * image again.
+ *
+ * @author Ángel Martínez
+ * @see TileDependencies
+ * @see RenderEngine
+ */
+public final class IncrementalRenderer {
+
+    /**
+     * The fraction of the size of the scene that its bounds are grown by in every direction, so that objects can be
+     * moved a bit beyond them without rendering the whole image again.
+     */
+    private static final double WORLD_MARGIN = 0.25;
+
+    private static final Vector3D ORIGIN = new Vector3D(0, 0, 0);
+
+    private final Scene scene;
+    private final int resolution;
+    private final double aspectRatio;
+    private final RenderSettings settings;
+    private final Set<Object3D> changedObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Light> changedLights = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final IdentityHashMap<Object3D, List<Object>> objectStates = new IdentityHashMap<>();
+    private final IdentityHashMap<Light, List<Object>> lightStates = new IdentityHashMap<>();
+    private List<Object> viewState;
+    private boolean invalid = true;
+    private Framebuffer framebuffer;
+    private TileDependencies[] dependencies;
+    private BoundingBox world;
+    private int tileColumns;
+    private int renderedTiles;
+
+    /**
+     * Constructs an {@code IncrementalRenderer} object for the image of the given {@code Scene} with the dimensions
+     * that correspond to the given resolution and aspect ratio, using the given {@code RenderSettings}. Its first
+     * render renders the whole image.
+     *
+     * @param scene       the {@code Scene} to render.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @param settings    the {@code RenderSettings}.
+     */
+    public IncrementalRenderer(Scene scene, int resolution, double aspectRatio, RenderSettings settings) {
+        this.scene = scene;
+        this.resolution = resolution;
+        this.aspectRatio = aspectRatio;
+        this.settings = settings;
+    }
+
+    /**
+     * Reports an edit of the given object that cannot be found by comparing it with the previous render, so that the
+     * tiles it can change are rendered again in the next render.
+     *
+     * @param object the edited {@code Object3D}.
+     */
+    public synchronized void markChanged(Object3D object) {
+        changedObjects.add(object);
+    }
+
+    /**
+     * Reports an edit of the given light that cannot be found by comparing it with the previous render, so that the
+     * tiles it can change are rendered again in the next render.
+     *
+     * @param light the edited {@code Light}.
+     */
+    public synchronized void markChanged(Light light) {
+        changedLights.add(light);
+    }
+
+    /**
+     * Makes the next render render the whole image again.
+     */
+    public synchronized void invalidate() {
+        invalid = true;
+    }
+
+    /**
+     * Returns the number of tiles that the last render rendered.
+     *
+     * @return the number of tiles rendered by the last render.
+     */
+    public synchronized int getRenderedTiles() {
+        return renderedTiles;
+    }
+
+    /**
+     * Renders the tiles that the edits of the {@code Scene} since the previous render can change, or the whole image
+     * if it is the first render, and returns the updated image.
+     *
+     * @param statistics the {@code RenderStatistics} to record the render in.
+     * @return a {@code BufferedImage} containing the render.
+     */
+    public synchronized BufferedImage render(RenderStatistics statistics) {
+        TileRenderer renderer = new TileRenderer(scene, resolution, aspectRatio, settings, statistics,
+                tile -> dependencies[getTileIndex(tile)] = new TileDependencies(world), false);
+        findChanges();
+        List<Tile> tiles = renderer.getTiles();
+        if (!invalid) invalid = !invalidateTiles(tiles);
+        if (invalid) {
+            framebuffer = new Framebuffer(renderer.getWidth(), renderer.getHeight());
+            dependencies = new TileDependencies[tiles.size()];
+            tileColumns = (renderer.getWidth() + settings.getTileSize() - 1) / settings.getTileSize();
+            world = getWorld();
+            renderedTiles = tiles.size();
+        }
+        try {
+            TileScheduler.render(renderer, framebuffer, null, new CancellationToken(), null);
+        } catch (RuntimeException | Error e) {
+            invalid = true;
+            throw e;
+        }
+        takeSnapshot();
+        invalid = false;
+        return framebuffer.toImage();
+    }
+
+    /**
+     * Uncovers the tiles that the changed objects and lights can change and returns {@code true}, or returns
+     * {@code false} if the whole image must be rendered again.
+     */
+    private boolean invalidateTiles(List<Tile> tiles) {
+        IdentityHashMap<Object3D, BoundingBox> objects = new IdentityHashMap<>();
+        Set<Object3D> present = Collections.newSetFromMap(new IdentityHashMap<>());
+        present.addAll(scene.getObjects());
+        for (Object3D object : changedObjects) {
+            // A removed object only changes the tiles that depended on it
+            BoundingBox bounds = present.contains(object) ? object.getBounds() : new BoundingBox();
+            if (bounds == null || !world.contains(bounds)) return false;
+            objects.put(object, bounds);
+        }
+        boolean resampled = false;
+        if (isLightSampled()) {
+            for (Light light : changedLights) resampled |= light instanceof PointLight;
+        }
+        Camera camera = scene.getCamera();
+        renderedTiles = 0;
+        for (Tile tile : tiles) {
+            TileDependencies tileDependencies = dependencies[getTileIndex(tile)];
+            boolean dirty = tileDependencies == null;
+            for (Map.Entry<Object3D, BoundingBox> entry : objects.entrySet()) {
+                if (dirty) break;
+                dirty = tileDependencies.dependsOn(entry.getKey(), entry.getValue())
+                        || isInView(camera, tile, entry.getValue());
+            }
+            // A point light sampled from the tree changes the probabilities of the lights sampled everywhere
+            if (!dirty && resampled) dirty = tileDependencies.hasShadedPoints();
+            for (Light light : changedLights) {
+                if (dirty) break;
+                dirty = tileDependencies.dependsOn(light);
+            }
+            if (dirty) {
+                framebuffer.uncover(tile);
+                renderedTiles++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the point lights were sampled from a {@code LightTree} in the previous render or are sampled
+     * from one in this render, that is, whether there are more of them than the light samples per hit.
+     */
+    private boolean isLightSampled() {
+        int samples = settings.getLightSamples();
+        if (samples <= 0) return false;
+        int lights = 0, previousLights = 0;
+        for (Light light : scene.getLights()) {
+            if (light instanceof PointLight) lights++;
+        }
+        for (Light light : lightStates.keySet()) {
+            if (light instanceof PointLight) previousLights++;
+        }
+        return Math.max(lights, previousLights) > samples;
+    }
+
+    /**
+     * Returns whether the given box may be seen by the primary rays of the given tile, that is, whether it is not
+     * entirely outside any side of the pyramid spanned by the rays of its corner pixels.
+     */
+    private boolean isInView(Camera camera, Tile tile, BoundingBox bounds) {
+        if (bounds.isEmpty()) return false;
+        int left = tile.getX(), top = tile.getY();
+        int right = left + tile.getWidth() - 1, bottom = top + tile.getHeight() - 1;
+        Ray[] corners = {makeRay(camera, left, top), makeRay(camera, right, top), makeRay(camera, right, bottom),
+                makeRay(camera, left, bottom)};
+        Ray center = makeRay(camera, (left + right) / 2, (top + bottom) / 2);
+        Vector3D inside = add(center.getOrigin(), center.getDirection());
+        for (int i = 0; i < corners.length; i++) {
+            Ray a = corners[i], b = corners[(i + 1) % corners.length];
+            Vector3D A = a.getOrigin();
+            Vector3D N = cross(a.getDirection(), subtract(add(b.getOrigin(), b.getDirection()), A));
+            if (magnitude(N) < 1e-12) continue;
+            if (dot(N, subtract(inside, A)) < 0) N = negative(N);
+            if (isOutside(bounds, A, N)) return false;
+        }
+        return true;
+    }
+
+    private Ray makeRay(Camera camera, int x, int y) {
+        int width = RenderEngine.getImageWidth(resolution, aspectRatio);
+        double[] uv = RenderEngine.getScreenCoordinates(x, y, width, resolution);
+        return camera.makeRay(uv[0], uv[1]);
+    }
+
+    /**
+     * Returns whether every corner of the given box is behind the plane through the given point with the given
+     * normal.
+     */
+    private static boolean isOutside(BoundingBox bounds, Vector3D point, Vector3D normal) {
+        for (int corner = 0; corner < 8; corner++) {
+            Vector3D v = new Vector3D((corner & 1) == 0 ? bounds.getMinX() : bounds.getMaxX(),
+                    (corner & 2) == 0 ? bounds.getMinY() : bounds.getMaxY(),
+                    (corner & 4) == 0 ? bounds.getMinZ() : bounds.getMaxZ());
+            if (dot(normal, subtract(v, point)) >= 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the bounds of the bounded objects of the {@code Scene}, grown by {@code WORLD_MARGIN}.
+     */
+    private BoundingBox getWorld() {
+        BoundingBox world = new BoundingBox();
+        for (Object3D object : scene.getObjects()) {
+            BoundingBox bounds = object.getBounds();
+            if (bounds != null) world.include(bounds);
+        }
+        if (world.isEmpty()) return world;
+        double margin = 0;
+        for (int axis = 0; axis < 3; axis++) margin = Math.max(margin, world.getMax(axis) - world.getMin(axis));
+        margin *= WORLD_MARGIN;
+        world.include(world.getMinX() - margin, world.getMinY() - margin, world.getMinZ() - margin);
+        world.include(world.getMaxX() + margin, world.getMaxY() + margin, world.getMaxZ() + margin);
+        return world;
+    }
+
+    /**
+     * Adds the objects and lights that changed, were added or were removed since the previous render to the changed
+     * ones, and invalidates the image if the view or the settings changed.
+     */
+    private void findChanges() {
+        if (!getViewState().equals(viewState)) invalid = true;
+        for (Object3D object : scene.getObjects()) {
+            if (!getState(object).equals(objectStates.get(object))) changedObjects.add(object);
+        }
+        Set<Object3D> objects = Collections.newSetFromMap(new IdentityHashMap<>());
+        objects.addAll(scene.getObjects());
+        for (Object3D object : objectStates.keySet()) {
+            if (!objects.contains(object)) changedObjects.add(object);
+        }
+        for (Light light : scene.getLights()) {
+            if (!getState(light).equals(lightStates.get(light))) changedLights.add(light);
+        }
+        Set<Light> lights = Collections.newSetFromMap(new IdentityHashMap<>());
+        lights.addAll(scene.getLights());
+        for (Light light : lightStates.keySet()) {
+            if (!lights.contains(light)) changedLights.add(light);
+        }
+    }
+
+    /**
+     * Remembers the state of the view, the objects and the lights of this render and clears the changes.
+     */
+    private void takeSnapshot() {
+        viewState = getViewState();
+        objectStates.clear();
+        for (Object3D object : scene.getObjects()) objectStates.put(object, getState(object));
+        lightStates.clear();
+        for (Light light : scene.getLights()) lightStates.put(light, getState(light));
+        changedObjects.clear();
+        changedLights.clear();
+    }
+
+    private List<Object> getViewState() {
+        Camera camera = scene.getCamera();
+        int width = RenderEngine.getImageWidth(resolution, aspectRatio);
+        // The rays of two opposite corners capture the position, the orientation and the field of view
+        Ray first = makeRay(camera, 0, 0);
+        Ray last = makeRay(camera, width - 1, resolution - 1);
+        return Arrays.asList(camera.getClass(), camera.getNearClippingPlane(), camera.getFarClippingPlane(),
+                getState(first), getState(last), settings.getTileSize(), settings.getLightSamples());
+    }
+
+    private static List<Object> getState(Object3D object) {
+        return Arrays.asList(object.getBounds(), getState(object.getPosition()), object.getColor(),
+                object.getMaterial());
+    }
+
+    private static List<Object> getState(Light light) {
+        return Arrays.asList(light.getClass(), light.getColor(), light.getIntensity(), light.getCutoff(),
+                getState(light.getDirection(ORIGIN)), light.getDistance(ORIGIN));
+    }
+
+    private static List<Object> getState(Ray ray) {
+        return ray == null ? null : Arrays.asList(getState(ray.getOrigin()), getState(ray.getDirection()));
+    }
+
+    private static List<Object> getState(Vector3D v) {
+        return v == null ? null : Arrays.asList(v.getX(), v.getY(), v.getZ());
+    }
+
+    private int getTileIndex(Tile tile) {
+        int tileSize = settings.getTileSize();
+        return tile.getY() / tileSize * tileColumns + tile.getX() / tileSize;
+    }
+}
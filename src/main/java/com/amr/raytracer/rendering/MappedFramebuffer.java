@@ -0,0 +1,252 @@
+package com.amr.raytracer.rendering;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * The {@code MappedFramebuffer} class holds the pixels of a render in a memory-mapped file instead of the heap, for
+ * images far larger than the heap or than a {@code BufferedImage} can hold, such as print renders of billions of
+ * pixels. The operating system pages the pixels in and out of the file as the tiles are rendered, so the heap used by
+ * the render does not depend on the size of the image.<br>
+ * The file holds a header with the dimensions of the image and a byte per tile that tells whether it has been
+ * rendered, followed by the tiles in rows from the top left corner. The pixels of every tile are contiguous, in rows,
+ * with three bytes each, and the tiles on the right and bottom edges are padded to the full tile size. That is the
+ * layout of the tiles of a tiled TIFF image, so the file is converted into one by streaming it with no per-pixel work.
+ *
+ * @author Ángel Martínez
+ * @see RenderEngine#renderMapped(Scene, int, double, RenderSettings, RenderStatistics, CancellationToken,
+ * MappedFramebuffer)
+ * @see #writeTiff(Path)
+ */
+public final class MappedFramebuffer implements AutoCloseable {
+
+    /**
+     * The maximum size of each of the mappings of the file, which is below the limit of a {@code MappedByteBuffer}.
+     */
+    private static final long MAX_MAPPING_BYTES = 1L << 30;
+
+    private static final int MAGIC = 0x524D4642;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+    private static final int PAGE_BYTES = 4096;
+
+    private final Path file;
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int tilesAcross;
+    private final int tileCount;
+    private final int tileBytes;
+    private final int tilesPerMapping;
+    private final long dataOffset;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] mappings;
+
+    private MappedFramebuffer(Path file, int width, int height, int tileSize, FileChannel channel) throws IOException {
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.tilesAcross = (width + tileSize - 1) / tileSize;
+        this.tileCount = tilesAcross * ((height + tileSize - 1) / tileSize);
+        this.tileBytes = 3 * tileSize * tileSize;
+        this.tilesPerMapping = (int) (MAX_MAPPING_BYTES / tileBytes);
+        // The tiles start on a page so that every tile is mapped at the same offset in its page
+        this.dataOffset = (HEADER_BYTES + tileCount + PAGE_BYTES - 1) / PAGE_BYTES * PAGE_BYTES;
+        this.channel = channel;
+        this.header = channel.map(READ_WRITE, 0, HEADER_BYTES + tileCount);
+        header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(tileSize);
+        this.mappings = new MappedByteBuffer[(tileCount + tilesPerMapping - 1) / tilesPerMapping];
+        for (int i = 0; i < mappings.length; i++) {
+            int tiles = Math.min(tilesPerMapping, tileCount - i * tilesPerMapping);
+            mappings[i] = channel.map(READ_WRITE, dataOffset + (long) i * tilesPerMapping * tileBytes,
+                    (long) tiles * tileBytes);
+        }
+    }
+
+    /**
+     * Creates a {@code MappedFramebuffer} for an image with the given dimensions and tile size in the given file,
+     * which is started over if it exists. The file is sparse where the operating system allows it, so the pixels
+     * take disk space as they are rendered.
+     *
+     * @param file     the file to hold the pixels.
+     * @param width    the width of the image in pixels.
+     * @param height   the height of the image in pixels.
+     * @param tileSize the width and height of the tiles in pixels, a multiple of {@code 16} as TIFF requires.
+     * @return the {@code MappedFramebuffer}, or {@code null} if the file could not be mapped.
+     * @throws IllegalArgumentException if the dimensions are not positive or the tile size is not valid.
+     */
+    public static MappedFramebuffer create(Path file, int width, int height, int tileSize) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("The dimensions must be positive.");
+        if (tileSize <= 0 || tileSize % 16 != 0 || 3L * tileSize * tileSize > MAX_MAPPING_BYTES) {
+            throw new IllegalArgumentException("The tile size must be a positive multiple of 16.");
+        }
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, CREATE, READ, WRITE, TRUNCATE_EXISTING);
+            return new MappedFramebuffer(file, width, height, tileSize, channel);
+        } catch (IOException e) {
+            System.err.println("There was an error mapping the framebuffer." + e);
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException closing) {
+                    System.err.println("There was an error closing the framebuffer." + closing);
+                }
+            }
+            return null;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Returns the number of tiles of the image.
+     *
+     * @return the number of tiles.
+     */
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    /**
+     * Returns the tile with the given index, in rows from the top left corner, cut to fit the image.
+     *
+     * @param index the index of the tile.
+     * @return the {@code Tile}.
+     */
+    public Tile getTile(int index) {
+        int x = index % tilesAcross * tileSize;
+        int y = index / tilesAcross * tileSize;
+        return new Tile(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y));
+    }
+
+    /**
+     * Returns whether the tile with the given index has been rendered.
+     *
+     * @param index the index of the tile.
+     * @return {@code true} if the tile is covered.
+     */
+    public boolean isCovered(int index) {
+        return header.get(HEADER_BYTES + index) != 0;
+    }
+
+    /**
+     * Returns the number of tiles that have been rendered.
+     *
+     * @return the number of covered tiles.
+     */
+    public int getCoveredTileCount() {
+        int count = 0;
+        for (int i = 0; i < tileCount; i++) {
+            if (isCovered(i)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether every tile has been rendered.
+     *
+     * @return {@code true} if every tile is covered.
+     */
+    public boolean isComplete() {
+        return getCoveredTileCount() == tileCount;
+    }
+
+    /**
+     * Returns the RGB value of the given pixel, which is black if it is not covered.
+     *
+     * @param x the horizontal pixel coordinate.
+     * @param y the vertical pixel coordinate.
+     * @return the RGB value of the pixel.
+     */
+    public int getRGB(int x, int y) {
+        int tile = getTileIndex(x, y);
+        MappedByteBuffer mapping = mappings[tile / tilesPerMapping];
+        int i = getOffset(tile, x, y);
+        return (mapping.get(i) & 0xFF) << 16 | (mapping.get(i + 1) & 0xFF) << 8 | mapping.get(i + 2) & 0xFF;
+    }
+
+    /**
+     * Writes the image to the given file as a tiled, uncompressed RGB TIFF image with the tiles of this
+     * {@code MappedFramebuffer}, copying the tiles from file to file without loading them in the heap. Images that do
+     * not fit in the four gigabytes a TIFF file can address are written as BigTIFF.
+     *
+     * @param file the file to write.
+     * @return {@code true} if the image was written.
+     */
+    public boolean writeTiff(Path file) {
+        force();
+        return TiledTiffWriter.write(file, channel, dataOffset, width, height, tileSize, tileCount);
+    }
+
+    /**
+     * Writes the pixels that are still only in memory to the file and closes it. The file is kept, with the tiles
+     * rendered so far.
+     */
+    @Override
+    public void close() {
+        force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("There was an error closing the framebuffer." + e);
+        }
+    }
+
+    /**
+     * Stores the RGB value of the given pixel without covering it.
+     */
+    void setRGB(int x, int y, int rgb) {
+        int tile = getTileIndex(x, y);
+        MappedByteBuffer mapping = mappings[tile / tilesPerMapping];
+        int i = getOffset(tile, x, y);
+        mapping.put(i, (byte) (rgb >> 16)).put(i + 1, (byte) (rgb >> 8)).put(i + 2, (byte) rgb);
+    }
+
+    /**
+     * Marks the given {@code Tile}, which must be one of the tiles of this {@code MappedFramebuffer}, as covered.
+     */
+    void cover(Tile tile) {
+        header.put(HEADER_BYTES + getTileIndex(tile.getX(), tile.getY()), (byte) 1);
+    }
+
+    private void force() {
+        header.force();
+        for (MappedByteBuffer mapping : mappings) mapping.force();
+    }
+
+    private int getTileIndex(int x, int y) {
+        return y / tileSize * tilesAcross + x / tileSize;
+    }
+
+    /**
+     * Returns the offset of the given pixel of the given tile in the mapping of the tile.
+     */
+    private int getOffset(int tile, int x, int y) {
+        return tile % tilesPerMapping * tileBytes + 3 * (y % tileSize * tileSize + x % tileSize);
+    }
+}
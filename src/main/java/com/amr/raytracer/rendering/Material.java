@@ -0,0 +1,119 @@
+package com.amr.raytracer.rendering;
+
+import com.amr.raytracer.objects.Object3D;
+
+import static java.lang.Math.pow;
+
+/**
+ * The {@code Material} class represents the surface properties of an {@code Object3D} regarding the Blinn-Phong
+ * reflection model: the ambient, diffuse and specular coefficients, the shininess (Phong exponent) and the
+ * reflectivity of the surface. Instances of this class are immutable, so a single {@code Material} can be shared by
+ * many objects.<br>
+ * The specular highlight {@code cos^shininess} is precomputed in a lookup table when the material is constructed, so
+ * the render loop does not need to evaluate {@code Math.pow} for every light at every hit.
+ *
+ * @author Ángel Martínez
+ * @see Object3D
+ * @see RenderEngine
+ */
+public final class Material {
+
+    /**
+     * The number of entries of the specular lookup table.
+     */
+    private static final int SPECULAR_TABLE_SIZE = 1024;
+
+    /**
+     * The {@code Material} used by objects that do not specify one.
+     */
+    public static final Material DEFAULT = new Material(0.3, 0.18, 1.9, 200, 0);
+
+    private final double ambient;
+    private final double diffuse;
+    private final double specular;
+    private final double shininess;
+    private final double reflectivity;
+    private final double[] specularTable;
+
+    /**
+     * Constructs a {@code Material} object with the given properties.
+     *
+     * @param ambient      the ambient coefficient.
+     * @param diffuse      the diffuse coefficient.
+     * @param specular     the specular coefficient.
+     * @param shininess    the shininess (Phong exponent).
+     * @param reflectivity the reflectivity, from {@code 0} (matte) to {@code 1} (mirror).
+     */
+    public Material(double ambient, double diffuse, double specular, double shininess, double reflectivity) {
+        this.ambient = ambient;
+        this.diffuse = diffuse;
+        this.specular = specular;
+        this.shininess = shininess;
+        this.reflectivity = reflectivity;
+        this.specularTable = new double[SPECULAR_TABLE_SIZE + 1];
+        for (int i = 0; i <= SPECULAR_TABLE_SIZE; i++) {
+            specularTable[i] = pow((double) i / SPECULAR_TABLE_SIZE, shininess);
+        }
+    }
+
+    /**
+     * Returns the ambient coefficient of this {@code Material}.
+     *
+     * @return the ambient coefficient of this {@code Material}.
+     */
+    public double getAmbient() {
+        return ambient;
+    }
+
+    /**
+     * Returns the diffuse coefficient of this {@code Material}.
+     *
+     * @return the diffuse coefficient of this {@code Material}.
+     */
+    public double getDiffuse() {
+        return diffuse;
+    }
+
+    /**
+     * Returns the specular coefficient of this {@code Material}.
+     *
+     * @return the specular coefficient of this {@code Material}.
+     */
+    public double getSpecular() {
+        return specular;
+    }
+
+    /**
+     * Returns the shininess (Phong exponent) of this {@code Material}.
+     *
+     * @return the shininess of this {@code Material}.
+     */
+    public double getShininess() {
+        return shininess;
+    }
+
+    /**
+     * Returns the reflectivity of this {@code Material}.
+     *
+     * @return the reflectivity of this {@code Material}.
+     */
+    public double getReflectivity() {
+        return reflectivity;
+    }
+
+    /**
+     * Returns the given cosine raised to the shininess of this {@code Material}. The value is linearly interpolated
+     * from the precomputed lookup table. Negative cosines produce no highlight at all.
+     *
+     * @param cosine the cosine between the normal and the half vector.
+     * @return the given cosine raised to the shininess of this {@code Material}.
+     */
+    public double getSpecularFactor(double cosine) {
+        if (cosine <= 0) return 0;
+        if (cosine >= 1) return 1;
+        double x = cosine * SPECULAR_TABLE_SIZE;
+        int i = (int) x;
+        double t = x - i;
+        return specularTable[i] + (specularTable[i + 1] - specularTable[i]) * t;
+    }
+}
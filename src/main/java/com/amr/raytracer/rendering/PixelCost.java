@@ -0,0 +1,44 @@
+package com.amr.raytracer.rendering;
+
+/**
+ * The {@code PixelCost} class counts the shadow rays and the depth of the rays of the pixel being rendered on a
+ * thread, before they are stored in a {@code CostBuffer}. It is reset and reused for every pixel of a tile.
+ *
+ * @author Ángel Martínez
+ * @see CostBuffer
+ */
+final class PixelCost {
+
+    private int shadowRays;
+    private int rayDepth;
+
+    /**
+     * Resets the counts for a new pixel.
+     */
+    void reset() {
+        shadowRays = 0;
+        rayDepth = 0;
+    }
+
+    int getShadowRays() {
+        return shadowRays;
+    }
+
+    int getRayDepth() {
+        return rayDepth;
+    }
+
+    /**
+     * Counts a shadow ray traced towards a light.
+     */
+    void addShadowRay() {
+        shadowRays++;
+    }
+
+    /**
+     * Counts a ray traced after the given number of bounces.
+     */
+    void addRay(int depth) {
+        rayDepth = Math.max(rayDepth, depth + 1);
+    }
+}
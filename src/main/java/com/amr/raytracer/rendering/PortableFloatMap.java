@@ -0,0 +1,63 @@
+package com.amr.raytracer.rendering;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The {@code PortableFloatMap} class writes float images as Portable Float Maps, the uncompressed float image format
+ * read by compositing tools: a text header with the type, {@code Pf} for one channel or {@code PF} for three, the
+ * dimensions and a negative scale, which marks the floats as little-endian, followed by the floats of the rows from
+ * the bottom to the top of the image.
+ *
+ * @author Ángel Martínez
+ * @see AovBuffer
+ * @see AccumulationBuffer
+ */
+final class PortableFloatMap {
+
+    private PortableFloatMap() {
+    }
+
+    /**
+     * Writes the given first channels of every pixel of the given image to the given file. The floats of the image
+     * are in rows from the top left corner, with the given number of floats per pixel.
+     *
+     * @param file     the file to write.
+     * @param pixels   the floats of the image.
+     * @param width    the width of the image.
+     * @param height   the height of the image.
+     * @param stride   the number of floats per pixel.
+     * @param channels the number of channels to write, {@code 1} or {@code 3}.
+     * @return {@code true} if the image was written.
+     */
+    static boolean write(Path file, float[] pixels, int width, int height, int stride, int channels) {
+        String header = (channels == 1 ? "Pf" : "PF") + "\n" + width + " " + height + "\n-1.0\n";
+        ByteBuffer row = ByteBuffer.allocate(width * channels * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            out.write(header.getBytes(StandardCharsets.US_ASCII));
+            for (int y = height - 1; y >= 0; y--) {
+                row.clear();
+                FloatBuffer floats = row.asFloatBuffer();
+                if (stride == channels) {
+                    floats.put(pixels, y * width * stride, width * stride);
+                } else {
+                    for (int i = y * width * stride; i < (y + 1) * width * stride; i += stride) {
+                        floats.put(pixels, i, channels);
+                    }
+                }
+                out.write(row.array());
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("There was an error writing the float image." + e);
+            return false;
+        }
+    }
+}
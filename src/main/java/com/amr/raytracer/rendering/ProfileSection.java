@@ -0,0 +1,46 @@
+package com.amr.raytracer.rendering;
+
+/**
+ * The {@code ProfileSection} enum lists the sections of the work of a render that a {@code RenderProfiler} times.
+ * Sections nest as the work does, such as the intersection tests of the objects inside the traversal of the
+ * {@code SceneBVH}, or a whole reflected ray inside the shading of the surface that reflects it.
+ *
+ * @author Ángel Martínez
+ * @see RenderProfiler
+ */
+public enum ProfileSection {
+
+    /**
+     * The rendering of a tile, outside any other section.
+     */
+    TILE,
+    /**
+     * The generation of the rays of the camera.
+     */
+    RAY_GENERATION,
+    /**
+     * The search of the closest intersection of a ray in the {@code SceneBVH}.
+     */
+    TRAVERSAL,
+    /**
+     * The intersection tests of the objects, such as the triangle tests of a mesh, including its own acceleration
+     * structure.
+     */
+    OBJECT_INTERSECTION,
+    /**
+     * The shading of a hit by the lights, outside the shadow rays and the reflected ray.
+     */
+    SHADING,
+    /**
+     * The tracing of a shadow ray towards a light.
+     */
+    SHADOW,
+    /**
+     * The tracing and shading of a reflected ray, including every bounce after it.
+     */
+    REFLECTION,
+    /**
+     * The writing of the pixels into the framebuffer.
+     */
+    FRAMEBUFFER_WRITE
+}
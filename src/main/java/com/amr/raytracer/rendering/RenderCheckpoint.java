@@ -0,0 +1,313 @@
+package com.amr.raytracer.rendering;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * The {@code RenderCheckpoint} class keeps the finished tiles of a render in a file, so that a render that is
+ * interrupted, even by the death of the process, can be resumed from where it was. The file starts with a header that
+ * identifies the render: the hash of its {@code Scene}, the dimensions of the image and the settings that change the
+ * pixels. It is followed by one record per finished tile with its position and its pixels, three bytes each, and a
+ * checksum.<br>
+ * The records are appended as the tiles are finished and the file is synchronized with the disk only once per
+ * interval, by the thread that finishes a tile after the interval has passed, while the other threads keep
+ * rendering. A render that resumes from a checkpoint with the same header restores every intact record and only
+ * renders the tiles that are missing; a checkpoint with a different header is started over. A checkpoint is used by
+ * one render at a time.
+ *
+ * @author Ángel Martínez
+ * @see RenderEngine#render(Scene, int, double, RenderSettings, RenderStatistics, CancellationToken, RenderCheckpoint)
+ * @see com.amr.raytracer.tools.SceneReader#getSceneHash(String)
+ */
+public final class RenderCheckpoint {
+
+    /**
+     * The interval between synchronizations with the disk, unless another one is given.
+     */
+    public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(10);
+
+    private static final int MAGIC = 0x52544331;
+    private static final int VERSION = 1;
+    private static final int RECORD_HEADER_BYTES = 4 * Integer.BYTES;
+
+    private final Path file;
+    private final String sceneHash;
+    private final long intervalNanos;
+
+    // The state of the render using the checkpoint
+    private final Object lock = new Object();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private ArrayList<ByteBuffer> pendingRecords = new ArrayList<>();
+    private FileChannel channel;
+    private volatile long lastSyncNanos;
+    private int restoredTiles;
+    private long writeNanos;
+
+    /**
+     * Constructs a {@code RenderCheckpoint} object that keeps the render of the {@code Scene} with the given hash in
+     * the given file, synchronizing it with the disk every {@code DEFAULT_INTERVAL}.
+     *
+     * @param file      the checkpoint file.
+     * @param sceneHash the hash that identifies the contents of the {@code Scene}.
+     * @see #DEFAULT_INTERVAL
+     */
+    public RenderCheckpoint(Path file, String sceneHash) {
+        this(file, sceneHash, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Constructs a {@code RenderCheckpoint} object that keeps the render of the {@code Scene} with the given hash in
+     * the given file, synchronizing it with the disk every given interval.
+     *
+     * @param file      the checkpoint file.
+     * @param sceneHash the hash that identifies the contents of the {@code Scene}.
+     * @param interval  the interval between synchronizations with the disk.
+     * @throws IllegalArgumentException if the file or the hash are {@code null} or the interval is negative.
+     */
+    public RenderCheckpoint(Path file, String sceneHash, Duration interval) {
+        if (file == null || sceneHash == null) {
+            throw new IllegalArgumentException("The file and the scene hash cannot be null.");
+        }
+        if (interval.isNegative()) throw new IllegalArgumentException("The interval cannot be negative.");
+        this.file = file;
+        this.sceneHash = sceneHash;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public String getSceneHash() {
+        return sceneHash;
+    }
+
+    /**
+     * Returns the number of tiles restored from the file by the last render that used this checkpoint.
+     *
+     * @return the number of restored tiles.
+     */
+    public int getRestoredTiles() {
+        synchronized (lock) {
+            return restoredTiles;
+        }
+    }
+
+    /**
+     * Returns the time spent writing and synchronizing the file by the last render that used this checkpoint, in
+     * nanoseconds.
+     *
+     * @return the write time in nanoseconds.
+     */
+    public long getWriteNanos() {
+        synchronized (lock) {
+            return writeNanos;
+        }
+    }
+
+    /**
+     * Deletes the checkpoint file, such as once the image of a complete render is saved.
+     *
+     * @return {@code true} if the file was deleted, or {@code false} if it did not exist or could not be deleted.
+     */
+    public boolean delete() {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("There was an error deleting the checkpoint." + e);
+            return false;
+        }
+    }
+
+    /**
+     * Opens the file for the render into the given {@code Framebuffer} with the given {@code RenderSettings}. If it
+     * holds a checkpoint of the same render, its intact tiles are restored into the {@code Framebuffer} and the new
+     * tiles are appended after them; otherwise it is started over. If the file cannot be used, the render goes on
+     * without a checkpoint.
+     */
+    void open(Framebuffer framebuffer, RenderSettings settings) {
+        synchronized (lock) {
+            pendingRecords = new ArrayList<>();
+            restoredTiles = 0;
+            writeNanos = 0;
+            try {
+                channel = FileChannel.open(file, CREATE, READ, WRITE);
+                byte[] header = getHeader(framebuffer, settings);
+                long end = restore(framebuffer, header);
+                if (end < 0) {
+                    channel.truncate(0);
+                    channel.write(ByteBuffer.wrap(header), 0);
+                    end = header.length;
+                } else {
+                    // Drops the torn record a crash may have left at the end
+                    channel.truncate(end);
+                }
+                channel.position(end);
+                channel.force(false);
+            } catch (IOException e) {
+                System.err.println("There was an error opening the checkpoint." + e);
+                closeChannel();
+            }
+            lastSyncNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Appends the given finished {@code Tile} of the given {@code Framebuffer} to the file, and synchronizes the file
+     * with the disk if the interval has passed and no other thread is doing it.
+     */
+    void record(Tile tile, Framebuffer framebuffer) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + 3 * tile.getPixelCount() + Integer.BYTES);
+        record.putInt(tile.getX()).putInt(tile.getY()).putInt(tile.getWidth()).putInt(tile.getHeight());
+        for (int y = tile.getY(); y < tile.getY() + tile.getHeight(); y++) {
+            for (int x = tile.getX(); x < tile.getX() + tile.getWidth(); x++) {
+                int rgb = framebuffer.getRGB(x, y);
+                record.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        record.flip();
+        synchronized (lock) {
+            if (channel == null) return;
+            pendingRecords.add(record);
+        }
+        if (System.nanoTime() - lastSyncNanos >= intervalNanos) sync(false);
+    }
+
+    /**
+     * Writes the pending tiles and synchronizes the file with the disk, then closes it. Called once the render ends.
+     */
+    void close() {
+        sync(true);
+        synchronized (lock) {
+            closeChannel();
+        }
+    }
+
+    /**
+     * Writes the pending tiles and synchronizes the file with the disk, unless another thread is doing it and the
+     * caller does not have to wait for it. The tiles finished meanwhile are queued without waiting for the disk.
+     */
+    private void sync(boolean wait) {
+        if (wait) {
+            writeLock.lock();
+        } else if (!writeLock.tryLock()) {
+            return;
+        }
+        try {
+            ArrayList<ByteBuffer> records;
+            FileChannel channel;
+            synchronized (lock) {
+                if (this.channel == null || (!wait && System.nanoTime() - lastSyncNanos < intervalNanos)) return;
+                records = pendingRecords;
+                pendingRecords = new ArrayList<>();
+                channel = this.channel;
+            }
+            long start = System.nanoTime();
+            lastSyncNanos = start;
+            try {
+                ByteBuffer[] buffers = records.toArray(new ByteBuffer[0]);
+                while (buffers.length > 0 && buffers[buffers.length - 1].hasRemaining()) channel.write(buffers);
+                channel.force(false);
+            } catch (IOException e) {
+                System.err.println("There was an error writing the checkpoint." + e);
+                synchronized (lock) {
+                    closeChannel();
+                }
+            }
+            synchronized (lock) {
+                writeNanos += System.nanoTime() - start;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Restores the intact tiles of the file into the given {@code Framebuffer} if the file starts with the given
+     * header, and returns the position after the last of them, or {@code -1} if the file holds another render.
+     */
+    private long restore(Framebuffer framebuffer, byte[] header) throws IOException {
+        if (channel.size() < header.length) return -1;
+        channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        byte[] fileHeader = new byte[header.length];
+        in.readFully(fileHeader);
+        if (!Arrays.equals(header, fileHeader)) return -1;
+        long end = header.length;
+        while (true) {
+            try {
+                int x = in.readInt();
+                int y = in.readInt();
+                int width = in.readInt();
+                int height = in.readInt();
+                if (x < 0 || y < 0 || width <= 0 || height <= 0 || x + width > framebuffer.getWidth()
+                        || y + height > framebuffer.getHeight()) {
+                    return end;
+                }
+                byte[] pixels = new byte[3 * width * height];
+                in.readFully(pixels);
+                int checksum = in.readInt();
+                CRC32 crc = new CRC32();
+                crc.update(ByteBuffer.allocate(RECORD_HEADER_BYTES).putInt(x).putInt(y).putInt(width)
+                        .putInt(height).array());
+                crc.update(pixels);
+                if ((int) crc.getValue() != checksum) return end;
+                Tile tile = new Tile(x, y, width, height);
+                int i = 0;
+                for (int py = y; py < y + height; py++) {
+                    for (int px = x; px < x + width; px++, i += 3) {
+                        framebuffer.setRGB(px, py, (pixels[i] & 0xFF) << 16 | (pixels[i + 1] & 0xFF) << 8
+                                | pixels[i + 2] & 0xFF);
+                    }
+                }
+                framebuffer.cover(tile);
+                restoredTiles++;
+                end += RECORD_HEADER_BYTES + pixels.length + Integer.BYTES;
+            } catch (EOFException e) {
+                return end;
+            }
+        }
+    }
+
+    /**
+     * Returns the header that identifies the render into the given {@code Framebuffer} with the given
+     * {@code RenderSettings}.
+     */
+    private byte[] getHeader(Framebuffer framebuffer, RenderSettings settings) {
+        byte[] hash = sceneHash.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(6 * Integer.BYTES + hash.length);
+        header.putInt(MAGIC).putInt(VERSION).putInt(hash.length).put(hash);
+        header.putInt(framebuffer.getWidth()).putInt(framebuffer.getHeight()).putInt(settings.getLightSamples());
+        return header.array();
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("There was an error closing the checkpoint." + e);
+        }
+        channel = null;
+    }
+}
@@ -0,0 +1,212 @@
+package com.amr.raytracer.rendering;
+
+import com.amr.raytracer.objects.Object3D;
+import com.amr.raytracer.rendering.lights.Light;
+import com.amr.raytracer.rendering.lights.LightTree;
+import com.amr.raytracer.rendering.lights.PointLight;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * The {@code RenderContext} class holds the state shared by every ray of a single render: the {@code Scene}, the
+ * {@code RenderSettings} and the structures derived from them before the first ray is cast, such as the
+ * {@code SceneBVH}, as well as the caches kept by each rendering thread and, for an {@code IncrementalRenderer}, the
+ * {@code TileDependencies} of the tile each thread is rendering, for a {@code RenderProfiler}, the
+ * {@code ThreadProfile} of each thread and, for a render of the cost of the pixels, the {@code PixelCost} of the pixel
+ * each thread is rendering.
+ *
+ * @author Ángel Martínez
+ * @see RenderEngine
+ */
+final class RenderContext {
+
+    private final Scene scene;
+    private final RenderSettings settings;
+    private final RenderStatistics statistics;
+    private final SceneBVH sceneBVH;
+    private final ArrayList<Light> unsampledLights;
+    private final LightTree lightTree;
+    private final IdentityHashMap<Light, Integer> lightIndices;
+    private final IdentityHashMap<Object3D, Integer> objectIds;
+    private final ThreadLocal<Object3D[]> lastOccluders;
+    private final ThreadLocal<TileDependencies> dependencies;
+    private final RenderProfiler profiler;
+    private final ThreadLocal<PixelCost> costs;
+
+    /**
+     * Constructs a {@code RenderContext} object for the given {@code Scene} and {@code RenderSettings}, updating the
+     * {@code SceneBVH} of its objects. If light sampling is enabled and the {@code Scene} has more point lights than
+     * the light samples per hit, they are organized in a {@code LightTree}.
+     *
+     * @param scene      the {@code Scene} to render.
+     * @param settings   the {@code RenderSettings}.
+     * @param statistics the {@code RenderStatistics} to record the render in.
+     */
+    RenderContext(Scene scene, RenderSettings settings, RenderStatistics statistics) {
+        this(scene, settings, statistics, false, false);
+    }
+
+    /**
+     * Constructs a {@code RenderContext} object like {@link #RenderContext(Scene, RenderSettings, RenderStatistics)},
+     * which records the {@code TileDependencies} of the rays cast and counts the {@code PixelCost} of the pixels if
+     * the given flags are set.
+     *
+     * @param scene               the {@code Scene} to render.
+     * @param settings            the {@code RenderSettings}.
+     * @param statistics          the {@code RenderStatistics} to record the render in.
+     * @param recordsDependencies whether the dependencies of the tiles are recorded.
+     * @param measuresCost        whether the cost of the pixels is counted.
+     */
+    RenderContext(Scene scene, RenderSettings settings, RenderStatistics statistics, boolean recordsDependencies,
+                  boolean measuresCost) {
+        this.scene = scene;
+        this.settings = settings;
+        this.statistics = statistics;
+        this.sceneBVH = scene.updateSceneBVH(settings.getSceneLayout());
+        this.unsampledLights = new ArrayList<>();
+        ArrayList<PointLight> sampledLights = new ArrayList<>();
+        for (Light light : scene.getLights()) {
+            if (light instanceof PointLight) sampledLights.add((PointLight) light);
+            else unsampledLights.add(light);
+        }
+        if (settings.getLightSamples() > 0 && sampledLights.size() > settings.getLightSamples()) {
+            lightTree = new LightTree(sampledLights);
+        } else {
+            lightTree = null;
+            unsampledLights.clear();
+            unsampledLights.addAll(scene.getLights());
+        }
+        lightIndices = new IdentityHashMap<>();
+        for (Light light : scene.getLights()) {
+            lightIndices.putIfAbsent(light, lightIndices.size());
+        }
+        objectIds = new IdentityHashMap<>();
+        for (Object3D object : scene.getObjects()) {
+            objectIds.putIfAbsent(object, objectIds.size() + 1);
+        }
+        lastOccluders = ThreadLocal.withInitial(() -> new Object3D[lightIndices.size()]);
+        dependencies = recordsDependencies ? new ThreadLocal<>() : null;
+        profiler = statistics instanceof RenderProfiler ? (RenderProfiler) statistics : null;
+        costs = measuresCost ? ThreadLocal.withInitial(PixelCost::new) : null;
+    }
+
+    Scene getScene() {
+        return scene;
+    }
+
+    RenderSettings getSettings() {
+        return settings;
+    }
+
+    RenderStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns the acceleration structure of the objects of the {@code Scene}.
+     *
+     * @return the {@code SceneBVH}.
+     */
+    SceneBVH getSceneBVH() {
+        return sceneBVH;
+    }
+
+    /**
+     * Returns the lights that must be evaluated at every hit.
+     *
+     * @return the lights that must be evaluated at every hit.
+     */
+    ArrayList<Light> getUnsampledLights() {
+        return unsampledLights;
+    }
+
+    /**
+     * Returns the {@code LightTree} of the lights that are sampled at every hit, or {@code null} if every light is
+     * evaluated.
+     *
+     * @return the {@code LightTree}, or {@code null}.
+     */
+    LightTree getLightTree() {
+        return lightTree;
+    }
+
+    /**
+     * Returns the index of the given light in the {@code Scene}.
+     *
+     * @param light the light.
+     * @return the index of the given light.
+     */
+    int getLightIndex(Light light) {
+        return lightIndices.get(light);
+    }
+
+    /**
+     * Returns the identifier of the given {@code Object3D} in the passes of the render, which is its index in the
+     * {@code Scene} plus one, since zero is the background.
+     *
+     * @param object the {@code Object3D}.
+     * @return the identifier of the given object.
+     * @see Aov#OBJECT_ID
+     */
+    int getObjectId(Object3D object) {
+        return objectIds.get(object);
+    }
+
+    /**
+     * Returns the last {@code Object3D} that occluded each light on the current thread, indexed by light index.
+     *
+     * @return the last occluders of the current thread.
+     * @see #getLightIndex(Light)
+     */
+    Object3D[] getLastOccluders() {
+        return lastOccluders.get();
+    }
+
+    /**
+     * Returns the {@code TileDependencies} of the tile being rendered on the current thread, or {@code null} if they
+     * are not recorded.
+     *
+     * @return the {@code TileDependencies} of the current tile, or {@code null}.
+     */
+    TileDependencies getDependencies() {
+        return dependencies == null ? null : dependencies.get();
+    }
+
+    /**
+     * Returns the {@code RenderProfiler} of the render, or {@code null} if it is not profiled.
+     *
+     * @return the {@code RenderProfiler}, or {@code null}.
+     */
+    RenderProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Returns the {@code ThreadProfile} of the current thread, or {@code null} if the render is not profiled.
+     *
+     * @return the {@code ThreadProfile} of the current thread, or {@code null}.
+     */
+    ThreadProfile getProfile() {
+        return profiler == null ? null : profiler.getThreadProfile();
+    }
+
+    /**
+     * Returns the {@code PixelCost} of the pixel being rendered on the current thread, or {@code null} if the cost of
+     * the pixels is not counted.
+     *
+     * @return the {@code PixelCost} of the current pixel, or {@code null}.
+     */
+    PixelCost getCost() {
+        return costs == null ? null : costs.get();
+    }
+
+    /**
+     * Sets the {@code TileDependencies} of the tile being rendered on the current thread.
+     *
+     * @param tileDependencies the {@code TileDependencies} of the current tile, or {@code null} once it is rendered.
+     */
+    void setDependencies(TileDependencies tileDependencies) {
+        dependencies.set(tileDependencies);
+    }
+}
@@ -6,14 +6,15 @@ import com.amr.raytracer.math.Vector3D;
 import com.amr.raytracer.objects.Object3D;
 import com.amr.raytracer.rendering.cameras.Camera;
 import com.amr.raytracer.rendering.lights.Light;
+import com.amr.raytracer.rendering.lights.LightSample;
+import com.amr.raytracer.rendering.lights.LightTree;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
 
 import static com.amr.raytracer.math.Vector3D.*;
-import static java.awt.image.BufferedImage.TYPE_INT_RGB;
 import static java.lang.Math.max;
-import static java.lang.Math.pow;
 
 /**
  * The {@code RenderEngine} class can render {@code Scene} objects using raytracing. It handles from the creation of
@@ -25,6 +26,11 @@ import static java.lang.Math.pow;
  */
 public final class RenderEngine {
 
+    /**
+     * The maximum number of times a ray can bounce off reflective surfaces.
+     */
+    private static final int MAX_RAY_DEPTH = 5;
+
     /**
      * Computes and returns the render of the given {@code Scene} as a {@code BufferedImage} with the dimensions that
      * correspond to the given resolution and aspect ratio.
@@ -37,20 +43,359 @@ public final class RenderEngine {
      * @see BufferedImage
      */
     public static BufferedImage render(Scene scene, int resolution, double aspectRatio) {
-        BufferedImage image = new BufferedImage((int) (resolution * aspectRatio), resolution, TYPE_INT_RGB);
+        return render(scene, resolution, aspectRatio, new RenderSettings());
+    }
 
-        int imageWidth = image.getWidth();
-        int imageHeight = image.getHeight();
+    /**
+     * Computes and returns the render of the given {@code Scene} as a {@code BufferedImage} with the dimensions that
+     * correspond to the given resolution and aspect ratio, using the given {@code RenderSettings}.
+     *
+     * @param scene       the {@code Scene} to render.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @param settings    the {@code RenderSettings}.
+     * @return a {@code BufferedImage} containing the render.
+     * @see Scene
+     * @see RenderSettings
+     * @see BufferedImage
+     */
+    public static BufferedImage render(Scene scene, int resolution, double aspectRatio, RenderSettings settings) {
+        return render(scene, resolution, aspectRatio, settings, new RenderStatistics());
+    }
 
-        for (int x = 0; x < imageWidth; x++) {
-            for (int y = 0; y < imageHeight; y++) {
-                double[] uv = getScreenCoordinates(x, y, imageWidth, imageHeight);
-                Color color = computeColor(scene, uv[0], uv[1]);
-                image.setRGB(x, y, color.getRGB());
+    /**
+     * Computes and returns the render of the given {@code Scene} as a {@code BufferedImage} with the dimensions that
+     * correspond to the given resolution and aspect ratio, using the given {@code RenderSettings}. The work done
+     * during the render is recorded in the given {@code RenderStatistics}. The render starts once every object of the
+     * {@code Scene} that is still being loaded is ready. The image is split into tiles that are rendered by the number
+     * of threads of the settings.
+     *
+     * @param scene       the {@code Scene} to render.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @param settings    the {@code RenderSettings}.
+     * @param statistics  the {@code RenderStatistics} to record the render in.
+     * @return a {@code BufferedImage} containing the render.
+     * @see Scene
+     * @see RenderSettings
+     * @see RenderStatistics
+     * @see TileRenderer
+     * @see TileScheduler
+     * @see BufferedImage
+     */
+    public static BufferedImage render(Scene scene, int resolution, double aspectRatio, RenderSettings settings,
+                                       RenderStatistics statistics) {
+        return render(scene, resolution, aspectRatio, settings, statistics, new CancellationToken()).toImage();
+    }
+
+    /**
+     * Computes the render of the given {@code Scene} with the dimensions that correspond to the given resolution and
+     * aspect ratio, using the given {@code RenderSettings}, until it is complete or the given token is cancelled. The
+     * token is checked before every tile is started, so a cancelled render returns once the tiles being rendered are
+     * done, with only the finished tiles covered in the returned {@code Framebuffer}.
+     *
+     * @param scene       the {@code Scene} to render.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @param settings    the {@code RenderSettings}.
+     * @param statistics  the {@code RenderStatistics} to record the render in.
+     * @param token       the {@code CancellationToken} that stops the render.
+     * @return a {@code Framebuffer} containing the render, complete unless the token was cancelled.
+     * @see CancellationToken
+     * @see Framebuffer
+     */
+    public static Framebuffer render(Scene scene, int resolution, double aspectRatio, RenderSettings settings,
+                                     RenderStatistics statistics, CancellationToken token) {
+        TileRenderer renderer = new TileRenderer(scene, resolution, aspectRatio, settings, statistics);
+        Framebuffer framebuffer = new Framebuffer(renderer.getWidth(), renderer.getHeight());
+        TileScheduler.render(renderer, framebuffer, null, token, null);
+        return framebuffer;
+    }
+
+    /**
+     * Computes the render of the given {@code Scene} like
+     * {@link #render(Scene, int, double, RenderSettings, RenderStatistics, CancellationToken)}, keeping the finished
+     * tiles in the given {@code RenderCheckpoint}. If the checkpoint holds tiles of the same render, such as one that
+     * was interrupted, they are restored instead of rendered again.
+     *
+     * @param scene       the {@code Scene} to render.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @param settings    the {@code RenderSettings}.
+     * @param statistics  the {@code RenderStatistics} to record the render in.
+     * @param token       the {@code CancellationToken} that stops the render.
+     * @param checkpoint  the {@code RenderCheckpoint} to resume from and to keep the finished tiles in.
+     * @return a {@code Framebuffer} containing the render, complete unless the token was cancelled.
+     * @see RenderCheckpoint
+     */
+    public static Framebuffer render(Scene scene, int resolution, double aspectRatio, RenderSettings settings,
+                                     RenderStatistics statistics, CancellationToken token,
+                                     RenderCheckpoint checkpoint) {
+        TileRenderer renderer = new TileRenderer(scene, resolution, aspectRatio, settings, statistics);
+        Framebuffer framebuffer = new Framebuffer(renderer.getWidth(), renderer.getHeight());
+        checkpoint.open(framebuffer, settings);
+        try {
+            TileScheduler.render(renderer, framebuffer, null, token, checkpoint);
+        } finally {
+            checkpoint.close();
+        }
+        return framebuffer;
+    }
+
+    /**
+     * Computes the render of the given {@code Scene} like
+     * {@link #render(Scene, int, double, RenderSettings, RenderStatistics, CancellationToken)}, writing the passes kept
+     * by the given {@code AovBuffer} in the same trace as the color of the pixels, so a single render produces every
+     * pass for compositing.
+     *
+     * @param scene       the {@code Scene} to render.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @param settings    the {@code RenderSettings}.
+     * @param statistics  the {@code RenderStatistics} to record the render in.
+     * @param token       the {@code CancellationToken} that stops the render.
+     * @param aovs        the {@code AovBuffer} to write the passes in, with the dimensions of the image.
+     * @return a {@code Framebuffer} containing the render, complete unless the token was cancelled.
+     * @throws IllegalArgumentException if the {@code AovBuffer} does not have the dimensions of the image.
+     * @see Aov
+     * @see AovBuffer
+     */
+    public static Framebuffer render(Scene scene, int resolution, double aspectRatio, RenderSettings settings,
+                                     RenderStatistics statistics, CancellationToken token, AovBuffer aovs) {
+        if (aovs.getX() != 0 || aovs.getY() != 0 || aovs.getWidth() != getImageWidth(resolution, aspectRatio)
+                || aovs.getHeight() != resolution) {
+            throw new IllegalArgumentException("The AOV buffer does not have the dimensions of the image.");
+        }
+        TileRenderer renderer = new TileRenderer(scene, resolution, aspectRatio, settings, statistics);
+        Framebuffer framebuffer = new Framebuffer(renderer.getWidth(), renderer.getHeight());
+        TileScheduler.render(renderer, framebuffer, aovs, token, null);
+        return framebuffer;
+    }
+
+    /**
+     * Computes the render of the given {@code Scene} like
+     * {@link #render(Scene, int, double, RenderSettings, RenderStatistics, CancellationToken)} into the given
+     * {@code MappedFramebuffer}, whose file holds the pixels instead of the heap, for images larger than the heap can
+     * hold. The image is split into the tiles of the {@code MappedFramebuffer} instead of the tile size of the
+     * settings, and the tiles it already covers are not rendered again.
+     *
+     * @param scene       the {@code Scene} to render.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @param settings    the {@code RenderSettings}.
+     * @param statistics  the {@code RenderStatistics} to record the render in.
+     * @param token       the {@code CancellationToken} that stops the render.
+     * @param framebuffer the {@code MappedFramebuffer} to render into, with the dimensions of the image.
+     * @throws IllegalArgumentException if the {@code MappedFramebuffer} does not have the dimensions of the image.
+     * @see MappedFramebuffer#writeTiff(java.nio.file.Path)
+     */
+    public static void renderMapped(Scene scene, int resolution, double aspectRatio, RenderSettings settings,
+                                    RenderStatistics statistics, CancellationToken token,
+                                    MappedFramebuffer framebuffer) {
+        if (framebuffer.getWidth() != getImageWidth(resolution, aspectRatio) || framebuffer.getHeight() != resolution) {
+            throw new IllegalArgumentException("The framebuffer does not have the dimensions of the image.");
+        }
+        TileRenderer renderer = new TileRenderer(scene, resolution, aspectRatio, settings, statistics);
+        TileScheduler.renderMapped(renderer, framebuffer, token);
+    }
+
+    /**
+     * Renders one more sample of every pixel of the image of the given {@code Scene} with the dimensions that
+     * correspond to the given resolution and aspect ratio, using the given {@code RenderSettings}, and adds it to the
+     * running mean of the pixel in the given {@code AccumulationBuffer}, until every tile is done or the given token is
+     * cancelled. Every pass samples the lights again, so calling it repeatedly renders the image progressively, with
+     * less noise after every pass; the tiles a cancelled pass did not reach just have one sample less.
+     *
+     * @param scene       the {@code Scene} to render.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @param settings    the {@code RenderSettings}.
+     * @param statistics  the {@code RenderStatistics} to record the pass in.
+     * @param token       the {@code CancellationToken} that stops the pass.
+     * @param buffer      the {@code AccumulationBuffer} of the image or of a window of it.
+     * @throws IllegalArgumentException if the {@code AccumulationBuffer} is not inside the image.
+     * @see AccumulationBuffer
+     * @see RenderSettings#setLightSamples(int)
+     */
+    public static void accumulate(Scene scene, int resolution, double aspectRatio, RenderSettings settings,
+                                  RenderStatistics statistics, CancellationToken token, AccumulationBuffer buffer) {
+        if (buffer.getX() + buffer.getWidth() > getImageWidth(resolution, aspectRatio)
+                || buffer.getY() + buffer.getHeight() > resolution) {
+            throw new IllegalArgumentException("The accumulation buffer is not inside the image.");
+        }
+        TileRenderer renderer = new TileRenderer(scene, resolution, aspectRatio, settings, statistics);
+        TileScheduler.accumulate(renderer, buffer, token);
+    }
+
+    /**
+     * Renders the image of the given {@code Scene} with the dimensions that correspond to the given resolution and
+     * aspect ratio, using the given {@code RenderSettings}, as a debug mode that measures the cost of every pixel
+     * instead of its color, until it is complete or the given token is cancelled. The pixels trace the same rays as in
+     * a regular render of the same {@code Scene} and camera, while the intersection tests, the nodes visited, the
+     * shadow rays and the depth of the reflections of their rays are counted. The heatmaps of the returned
+     * {@code CostBuffer} show at a glance the meshes, lights or reflective surfaces that make the render expensive.
+     *
+     * @param scene       the {@code Scene} to render.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @param settings    the {@code RenderSettings}.
+     * @param statistics  the {@code RenderStatistics} to record the render in.
+     * @param token       the {@code CancellationToken} that stops the render.
+     * @return a {@code CostBuffer} containing the cost of the pixels, complete unless the token was cancelled.
+     * @see CostMetric
+     * @see CostBuffer#toHeatmap(CostMetric)
+     */
+    public static CostBuffer renderCost(Scene scene, int resolution, double aspectRatio, RenderSettings settings,
+                                        RenderStatistics statistics, CancellationToken token) {
+        TileRenderer renderer = new TileRenderer(scene, resolution, aspectRatio, settings, statistics, null, true);
+        CostBuffer buffer = new CostBuffer(renderer.getWidth(), renderer.getHeight());
+        TileScheduler.renderCost(renderer, buffer, token);
+        return buffer;
+    }
+
+    /**
+     * Computes the render of the given window of the image of the given {@code Scene} with the dimensions that
+     * correspond to the given resolution and aspect ratio, using the given {@code RenderSettings}, until it is complete
+     * or the given token is cancelled. Only the pixels of the window are rendered, with the same screen coordinates as
+     * in the render of the whole image, so they are identical to the same pixels of it. The returned
+     * {@code Framebuffer} can be composited into an image of the whole render, such as to render again only the part
+     * of a frame that changed.
+     *
+     * @param scene       the {@code Scene} to render.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @param settings    the {@code RenderSettings}.
+     * @param statistics  the {@code RenderStatistics} to record the render in.
+     * @param token       the {@code CancellationToken} that stops the render.
+     * @param window      the window of the image to render.
+     * @return a {@code Framebuffer} containing the render of the window, complete unless the token was cancelled.
+     * @throws IllegalArgumentException if the window is not inside the image.
+     * @see Framebuffer#compositeInto(BufferedImage)
+     */
+    public static Framebuffer renderWindow(Scene scene, int resolution, double aspectRatio, RenderSettings settings,
+                                           RenderStatistics statistics, CancellationToken token, Tile window) {
+        if (window.getX() + window.getWidth() > getImageWidth(resolution, aspectRatio)
+                || window.getY() + window.getHeight() > resolution) {
+            throw new IllegalArgumentException("The window is not inside the image.");
+        }
+        TileRenderer renderer = new TileRenderer(scene, resolution, aspectRatio, settings, statistics);
+        Framebuffer framebuffer = new Framebuffer(window);
+        TileScheduler.render(renderer, framebuffer, null, token, null);
+        return framebuffer;
+    }
+
+    /**
+     * Computes and returns the pixels of the given {@code Tile} of the render of the given {@code Scene} with the
+     * dimensions that correspond to the given resolution and aspect ratio, using the given {@code RenderSettings}. The
+     * pixels are packed RGB values in rows from the top left corner of the tile, as {@code BufferedImage.setRGB}
+     * takes them. Rendering every tile of an image gives the same pixels as rendering the whole image.
+     *
+     * @param scene       the {@code Scene} to render.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @param settings    the {@code RenderSettings}.
+     * @param statistics  the {@code RenderStatistics} to record the render in.
+     * @param tile        the {@code Tile} to render.
+     * @return the RGB values of the pixels of the tile.
+     * @throws IllegalArgumentException if the tile is not inside the image.
+     * @see Tile
+     * @see #render(Scene, int, double, RenderSettings, RenderStatistics)
+     */
+    public static int[] renderTile(Scene scene, int resolution, double aspectRatio, RenderSettings settings,
+                                   RenderStatistics statistics, Tile tile) {
+        int imageWidth = getImageWidth(resolution, aspectRatio);
+        if (tile.getX() + tile.getWidth() > imageWidth || tile.getY() + tile.getHeight() > resolution) {
+            throw new IllegalArgumentException("The tile is not inside the image.");
+        }
+        scene.awaitObjects();
+        RenderContext context = new RenderContext(scene, settings, statistics);
+        int[] pixels = new int[tile.getPixelCount()];
+        for (int y = 0; y < tile.getHeight(); y++) {
+            for (int x = 0; x < tile.getWidth(); x++) {
+                pixels[y * tile.getWidth() + x] = computePixel(context, tile.getX() + x, tile.getY() + y,
+                        imageWidth, resolution);
             }
         }
+        return pixels;
+    }
+
+    /**
+     * Returns the width in pixels of the image of a render with the given resolution and aspect ratio.
+     *
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @return the width of the image in pixels.
+     */
+    public static int getImageWidth(int resolution, double aspectRatio) {
+        return (int) (resolution * aspectRatio);
+    }
+
+    /**
+     * Calculates and returns the RGB value of the given pixel of an image with the given dimensions.
+     *
+     * @param context     the {@code RenderContext}.
+     * @param x           the horizontal pixel coordinate.
+     * @param y           the vertical pixel coordinate.
+     * @param imageWidth  the width of the image.
+     * @param imageHeight the height of the image.
+     * @return the RGB value of the pixel.
+     */
+    static int computePixel(RenderContext context, int x, int y, int imageWidth, int imageHeight) {
+        return computePixel(context, x, y, imageWidth, imageHeight, null);
+    }
+
+    /**
+     * Calculates and returns the RGB value of the given pixel of an image with the given dimensions like
+     * {@link #computePixel(RenderContext, int, int, int, int)}, writing its passes in the given {@code AovSample},
+     * unless it is {@code null}.
+     *
+     * @param context     the {@code RenderContext}.
+     * @param x           the horizontal pixel coordinate.
+     * @param y           the vertical pixel coordinate.
+     * @param imageWidth  the width of the image.
+     * @param imageHeight the height of the image.
+     * @param aovs        the {@code AovSample} of the pixel, reset, or {@code null}.
+     * @return the RGB value of the pixel.
+     */
+    static int computePixel(RenderContext context, int x, int y, int imageWidth, int imageHeight, AovSample aovs) {
+        return computePixel(context, x, y, imageWidth, imageHeight, 0, aovs);
+    }
+
+    /**
+     * Calculates and returns the RGB value of the given sample of the given pixel of an image with the given
+     * dimensions like {@link #computePixel(RenderContext, int, int, int, int, AovSample)}. The lights sampled for the
+     * pixel only depend on the pixel and the sample index, so the pixel is the same whichever thread, process or tile
+     * renders it, while every sample of a progressive render samples the lights again.
+     *
+     * @param context     the {@code RenderContext}.
+     * @param x           the horizontal pixel coordinate.
+     * @param y           the vertical pixel coordinate.
+     * @param imageWidth  the width of the image.
+     * @param imageHeight the height of the image.
+     * @param sample      the index of the sample of the pixel, {@code 0} for a single sample.
+     * @param aovs        the {@code AovSample} of the pixel, reset, or {@code null}.
+     * @return the RGB value of the pixel.
+     */
+    static int computePixel(RenderContext context, int x, int y, int imageWidth, int imageHeight, int sample,
+                            AovSample aovs) {
+        double[] uv = getScreenCoordinates(x, y, imageWidth, imageHeight);
+        double[] radiance = new double[3];
+        SplittableRandom random = context.getLightTree() == null ? null : getPixelRandom(x, y, sample);
+        computeRadiance(context, uv[0], uv[1], random, radiance, aovs);
+        int rgb = ColorRGB.toRGB(radiance);
+        if (aovs != null) aovs.add(Aov.COLOR, radiance, 1);
+        return rgb;
+    }
 
-        return image;
+    /**
+     * Returns the random stream of the lights sampled for the given sample of the given pixel, seeded from a hash of
+     * its coordinates and index so that the streams of different pixels and samples are not correlated.
+     */
+    private static SplittableRandom getPixelRandom(int x, int y, int sample) {
+        long seed = ((long) y << 32 | x & 0xFFFFFFFFL) ^ (long) sample * 0x9E3779B97F4A7C15L;
+        seed = (seed ^ seed >>> 33) * 0xFF51AFD7ED558CCDL;
+        seed = (seed ^ seed >>> 33) * 0xC4CEB9FE1A85EC53L;
+        return new SplittableRandom(seed ^ seed >>> 33);
     }
 
     /**
@@ -63,7 +408,7 @@ public final class RenderEngine {
      * @param height the height of the image.
      * @return an array with the corresponding UV screen coordinates.
      */
-    private static double[] getScreenCoordinates(int x, int y, int width, int height) {
+    static double[] getScreenCoordinates(int x, int y, int width, int height) {
         double u, v;
         if (width > height) {
             u = (double) (x - width / 2 + height / 2) / height * 2 - 1;
@@ -76,80 +421,216 @@ public final class RenderEngine {
     }
 
     /**
-     * Calculates and returns the {@code Color} that should be colored at the given UV coordinates of the screen
-     * regarding the given {@code Scene}.
+     * Calculates the radiance seen at the given UV coordinates of the screen regarding the given
+     * {@code RenderContext} and adds it to the given red, green and blue channels.
      *
-     * @param scene the {@code Scene}.
-     * @param u     the horizontal screen coordinate.
-     * @param v     the vertical screen coordinate.
-     * @return the {@code Color} that should be colored.
+     * @param context  the {@code RenderContext}.
+     * @param u        the horizontal screen coordinate.
+     * @param v        the vertical screen coordinate.
+     * @param random   the random stream of the lights sampled for the pixel, or {@code null} if they are not sampled.
+     * @param radiance the unclamped channels of the pixel, from {@code 0} to {@code 1} for a color the image can hold.
+     * @param aovs     the {@code AovSample} of the pixel, or {@code null}.
      */
-    private static Color computeColor(Scene scene, double u, double v) {
-        Camera camera = scene.getCamera();
+    private static void computeRadiance(RenderContext context, double u, double v, SplittableRandom random,
+                                        double[] radiance, AovSample aovs) {
+        Camera camera = context.getScene().getCamera();
+        ThreadProfile profile = context.getProfile();
+        if (profile != null) profile.enter(ProfileSection.RAY_GENERATION);
         Ray ray = camera.makeRay(u, v);
-        return raycast(ray, scene, null);
+        if (profile != null) profile.exit();
+        context.getStatistics().addPrimaryRay();
+        raycast(ray, context, null, 0, 1, random, radiance, aovs);
     }
 
-    private static Color raycast(Ray ray, Scene scene, Object3D caster) {
-        Camera camera = scene.getCamera();
-        Intersection intersection = getClosestIntersection(ray, scene, caster);
-        if (intersection == null) return Color.BLACK; // Background is black
+    /**
+     * Casts the given {@code Ray} into the {@code Scene} of the given {@code RenderContext} and adds the radiance
+     * seen along it, multiplied by the given weight, to the given channels. Secondary rays are only spawned for
+     * surfaces whose {@code Material} is reflective, and their contribution is weighted by the reflectivity of the
+     * surface. If light sampling is enabled, only the configured number of lights are chosen from the
+     * {@code LightTree} and their contribution is divided by their probability. Every contribution is added unclamped;
+     * only the color of the pixel is clamped once its radiance is complete. The passes of the ray are written in the
+     * given {@code AovSample}, unless it is {@code null}.
+     *
+     * @param ray      the cast {@code Ray}.
+     * @param context  the {@code RenderContext}.
+     * @param caster   the {@code Object3D} that cast the ray, or {@code null} for camera rays.
+     * @param depth    the number of bounces the ray has already done.
+     * @param weight   the weight of the ray in the color of the pixel.
+     * @param random   the random stream of the lights sampled for the pixel, or {@code null} if they are not sampled.
+     * @param radiance the unclamped channels of the pixel to add the radiance to.
+     * @param aovs     the {@code AovSample} of the pixel for camera rays, or {@code null}.
+     * @see Material#getReflectivity()
+     * @see RenderSettings#setLightSamples(int)
+     */
+    private static void raycast(Ray ray, RenderContext context, Object3D caster, int depth, double weight,
+                                SplittableRandom random, double[] radiance, AovSample aovs) {
+        ThreadProfile profile = context.getProfile();
+        if (profile != null) profile.enter(ProfileSection.TRAVERSAL);
+        Intersection intersection = getClosestIntersection(ray, context, caster, profile);
+        if (profile != null) profile.exit();
+        PixelCost cost = context.getCost();
+        if (cost != null) cost.addRay(depth);
+        TileDependencies dependencies = context.getDependencies();
+        if (dependencies != null) {
+            if (caster != null) {
+                dependencies.addSecondaryRay(ray, intersection == null
+                        ? context.getScene().getCamera().getFarClippingPlane()
+                        : intersection.getDistanceFrom(ray.getOrigin()));
+            }
+            if (intersection != null) dependencies.addHit(intersection.getObject(), intersection.getPosition());
+        }
+        if (intersection == null) return; // Background is black
+        if (profile != null) profile.enter(ProfileSection.SHADING);
 
-        Color pixelColor = Color.BLACK;
         Color ambient = getAmbient(intersection);
-        pixelColor = ColorRGB.add(pixelColor, ambient);
+        ColorRGB.add(radiance, ambient, weight);
         Object3D object = intersection.getObject();
         Vector3D P = intersection.getPosition();
+        if (aovs != null) {
+            aovs.set(Aov.DEPTH, intersection.getDistanceFrom(ray.getOrigin()));
+            aovs.set(Aov.NORMAL, intersection.getNormal());
+            if (aovs.has(Aov.OBJECT_ID)) aovs.set(Aov.OBJECT_ID, context.getObjectId(object));
+            aovs.add(Aov.AMBIENT, ambient, 1);
+        }
+
+        for (Light light : context.getUnsampledLights()) {
+            addLighting(intersection, light, context, weight, radiance, aovs);
+        }
+
+        LightTree lightTree = context.getLightTree();
+        if (lightTree != null) {
+            int samples = context.getSettings().getLightSamples();
+            for (int i = 0; i < samples; i++) {
+                LightSample sample = lightTree.sample(P, random.nextDouble());
+                if (sample == null) break;
+                double lightWeight = 1 / (sample.getPdf() * samples);
+                addLighting(intersection, sample.getLight(), context, weight * lightWeight, radiance, aovs);
+            }
+        }
 
-        for (Light light : scene.getLights()) {
-            Vector3D L = light.getDirection(P);
-            Ray rayToLight = new Ray(P, L);
-            if (getClosestIntersection(rayToLight, scene, object) != null) continue;
-            Color diffuse = getDiffuse(intersection, light);
-            Color specular = getSpecular(intersection, camera, light);
-            pixelColor = ColorRGB.add(pixelColor, diffuse, specular);
+        double reflectivity = object.getMaterial().getReflectivity();
+        if (reflectivity > 0 && depth < MAX_RAY_DEPTH) {
+            Ray reflectionRay = getReflectionRay(intersection);
+            if (profile != null) profile.enter(ProfileSection.REFLECTION);
+            // The reflection of a camera ray is traced on its own to write its pass
+            boolean separate = aovs != null && aovs.has(Aov.REFLECTION);
+            double[] reflection = separate ? new double[3] : radiance;
+            raycast(reflectionRay, context, object, depth + 1, weight * reflectivity, random, reflection, null);
+            if (profile != null) profile.exit();
+            if (separate) {
+                for (int i = 0; i < 3; i++) radiance[i] += reflection[i];
+                aovs.add(Aov.REFLECTION, reflection, 1);
+            }
+        }
+        if (profile != null) profile.exit();
+    }
+
+    /**
+     * Calculates the diffuse and specular color that the given light adds at the given intersection and adds them,
+     * multiplied by the given weight, to the given channels and to their passes in the given {@code AovSample},
+     * unless it is {@code null}. If the intersection is outside the influence radius of the light, faces away from it
+     * or the light is occluded by any {@code Object3D} of the {@code Scene}, it adds nothing. The shadow ray is only
+     * traced when the light can actually contribute.
+     *
+     * @param intersection the intersection.
+     * @param light        the light.
+     * @param context      the {@code RenderContext}.
+     * @param weight       the weight of the light in the color of the pixel.
+     * @param radiance     the unclamped channels of the pixel to add the light to.
+     * @param aovs         the {@code AovSample} of the pixel, or {@code null}.
+     * @see Light#getInfluenceRadius()
+     */
+    private static void addLighting(Intersection intersection, Light light, RenderContext context, double weight,
+                                    double[] radiance, AovSample aovs) {
+        Vector3D P = intersection.getPosition();
+        Vector3D L = light.getDirection(P);
+        if (light.getDistance(P) > light.getInfluenceRadius() || dot(intersection.getNormal(), L) <= 0) {
+            context.getStatistics().addCulledShadowRay();
+            return;
         }
+        Ray rayToLight = new Ray(P, L);
+        context.getStatistics().addShadowRay();
+        PixelCost cost = context.getCost();
+        if (cost != null) cost.addShadowRay();
+        ThreadProfile profile = context.getProfile();
+        if (profile != null) profile.enter(ProfileSection.SHADOW);
+        boolean occluded = isOccluded(rayToLight, light, context, intersection.getObject(), profile);
+        if (profile != null) profile.exit();
+        if (occluded) return;
+        TileDependencies dependencies = context.getDependencies();
+        if (dependencies != null) dependencies.addLight(light);
+        Color lightColor = light.getColor(P);
+        Color diffuse = getDiffuse(intersection, L, lightColor);
+        Color specular = getSpecular(intersection, L, lightColor);
+        ColorRGB.add(radiance, diffuse, weight);
+        ColorRGB.add(radiance, specular, weight);
+        if (aovs != null) {
+            aovs.add(Aov.DIFFUSE, diffuse, weight);
+            aovs.add(Aov.SPECULAR, specular, weight);
+        }
+    }
 
-        Ray reflectionRay = getReflectionRay(intersection, scene);
-        Color reflectionColor = raycast(reflectionRay, scene, object);
-        pixelColor = ColorRGB.add(pixelColor, reflectionColor);
-        return pixelColor;
+    /**
+     * Returns whether the given shadow {@code Ray} hits any {@code Object3D} of the {@code Scene} before reaching the
+     * given light or the far clipping plane of the {@code Camera}. The last object that occluded the light on the
+     * current thread is tested first, since neighbouring pixels are usually shadowed by the same object; the rest of
+     * the objects are only searched in the {@code SceneBVH} if it does not occlude the ray.
+     *
+     * @param ray     the shadow {@code Ray}.
+     * @param light   the light the ray is cast towards.
+     * @param context the {@code RenderContext}.
+     * @param caster  the {@code Object3D} that cast the ray.
+     * @param profile the {@code ThreadProfile} of the current thread, or {@code null}.
+     * @return {@code true} if the ray is occluded.
+     * @see RenderContext#getLastOccluders()
+     */
+    private static boolean isOccluded(Ray ray, Light light, RenderContext context, Object3D caster,
+                                      ThreadProfile profile) {
+        double maxDistance = Math.min(light.getDistance(ray.getOrigin()),
+                context.getScene().getCamera().getFarClippingPlane());
+        TileDependencies dependencies = context.getDependencies();
+        if (dependencies != null) dependencies.addSecondaryRay(ray, maxDistance);
+        Object3D[] lastOccluders = context.getLastOccluders();
+        int lightIndex = context.getLightIndex(light);
+        Object3D lastOccluder = lastOccluders[lightIndex];
+        if (lastOccluder != null) context.getStatistics().addOccluderCacheLookup();
+        if (lastOccluder != null && !lastOccluder.equals(caster)
+                && SceneBVH.occludes(lastOccluder, ray, maxDistance, profile)) {
+            context.getStatistics().addOccluderCacheHit();
+            if (dependencies != null) dependencies.addOccluder(lastOccluder);
+            return true;
+        }
+        Object3D occluder = context.getSceneBVH().findOccluder(ray, caster, lastOccluder, maxDistance,
+                profile);
+        if (occluder == null) return false;
+        lastOccluders[lightIndex] = occluder;
+        if (dependencies != null) dependencies.addOccluder(occluder);
+        return true;
     }
 
     /**
      * Calculates and returns the closest {@code Intersection} regarding the origin of the given {@code Ray} and all
-     * the {@code Object3D} in this {@code Scene}. Intersections that may occur outside the clipping planes of the
-     * {@code Camera} of this scene will be omitted, except if it is a shadow ray.
+     * the {@code Object3D} in the {@code Scene}, using its {@code SceneBVH}. Intersections that may occur outside the
+     * clipping planes of the {@code Camera} of the scene will be omitted, except the near plane for secondary rays.
      *
-     * @param ray    the cast {@code Ray}.
-     * @param scene  the scene.
-     * @param caster the {@code Object3D} that cast the ray.
+     * @param ray     the cast {@code Ray}.
+     * @param context the {@code RenderContext}.
+     * @param caster  the {@code Object3D} that cast the ray.
+     * @param profile the {@code ThreadProfile} of the current thread, or {@code null}.
      * @return the closest {@code Intersection}. If no intersection, {@code null}.
      * @see Intersection
      * @see Ray
      * @see Object3D
      * @see Camera
+     * @see SceneBVH
      */
-    private static Intersection getClosestIntersection(Ray ray, Scene scene, Object3D caster) {
-        double nearPlane = scene.getCamera().getNearClippingPlane();
-        double farPlane = scene.getCamera().getFarClippingPlane();
-        Intersection closestIntersection = null;
-        for (Object3D object : scene.getObjects()) {
-            // Avoid colliding with yourself
-            if (object.equals(caster)) continue;
-            Intersection intersection = object.getIntersection(ray);
-            if (intersection == null) continue;
-            double distance = intersection.getDistanceFrom(ray.getOrigin());
-            // Intersections outside the clipping planes range of the camera are omitted
-            // Only when the camera is the caster (when caster is null)
-            if (caster == null && distance <= nearPlane || distance >= farPlane)
-                continue;
-            if (closestIntersection == null) closestIntersection = intersection;
-            else if (distance < closestIntersection.getDistanceFrom(ray.getOrigin())) {
-                closestIntersection = intersection;
-            }
-        }
-        return closestIntersection;
+    private static Intersection getClosestIntersection(Ray ray, RenderContext context, Object3D caster,
+                                                       ThreadProfile profile) {
+        Camera camera = context.getScene().getCamera();
+        // Only when the camera is the caster (when caster is null) the near clipping plane applies
+        double nearPlane = caster == null ? camera.getNearClippingPlane() : Double.NEGATIVE_INFINITY;
+        return context.getSceneBVH().getClosestIntersection(ray, caster, nearPlane, camera.getFarClippingPlane(),
+                profile);
     }
 
     /**
@@ -157,57 +638,59 @@ public final class RenderEngine {
      *
      * @param intersection the intersection.
      * @return the ambient color.
+     * @see Object3D#getAmbientColor()
      */
     private static Color getAmbient(Intersection intersection) {
-        Color objectColor = intersection.getObject().getColor();
-        double ambient = 0.3; // TODO: Get from object material
-        return ColorRGB.multiply(objectColor, ambient);
+        return intersection.getObject().getAmbientColor();
     }
 
     /**
-     * Calculates and returns the diffuse color regarding the given intersection and light.
+     * Calculates and returns the diffuse color regarding the given intersection and the direction and color of a
+     * light at the intersection.
      *
      * @param intersection the intersection.
-     * @param light the light.
+     * @param L the direction to the light.
+     * @param lightColor the color of the light at the intersection.
      * @return the diffuse color.
+     * @see Object3D#getDiffuseColor()
      */
-    private static Color getDiffuse(Intersection intersection, Light light) {
+    private static Color getDiffuse(Intersection intersection, Vector3D L, Color lightColor) {
         Vector3D N = intersection.getNormal();
-        Vector3D P = intersection.getPosition();
-        Vector3D L = light.getDirection(P);
-        Color lightColor = light.getColor(P);
-        Color objectColor = intersection.getObject().getColor();
-        Color diffuseColor = ColorRGB.multiply(objectColor, 0.18); // TODO: Get from individual objects
+        Color diffuseColor = intersection.getObject().getDiffuseColor();
         return ColorRGB.multiply(ColorRGB.add(diffuseColor, lightColor), max(0, dot(N, L)));
     }
 
     /**
-     * Calculates and returns the specular color regarding the given intersection, camera and light.
+     * Calculates and returns the specular color regarding the given intersection and the direction and color of a
+     * light at the intersection. The viewer is the origin of the {@code Ray} that produced the intersection.
      *
      * @param intersection the intersection.
-     * @param camera the camera.
-     * @param light the light.
+     * @param L the direction to the light.
+     * @param lightColor the color of the light at the intersection.
      * @return the specular color.
+     * @see Object3D#getSpecularColor()
+     * @see Material#getSpecularFactor(double)
      */
-    private static Color getSpecular(Intersection intersection, Camera camera, Light light) {
-        Vector3D P = intersection.getPosition();
-        Vector3D V = normalize(subtract(camera.getPosition(), P));
-        Vector3D L = light.getDirection(P);
+    private static Color getSpecular(Intersection intersection, Vector3D L, Color lightColor) {
+        Vector3D V = negative(intersection.getRay().getDirection());
         Vector3D H = normalize(add(L, V));
         Vector3D N = intersection.getNormal();
-        Color objectColor = intersection.getObject().getColor();
-        Color lightColor = light.getColor(P);
-        Color specularColor = ColorRGB.multiply(objectColor, 1.9); // TODO: Get from individual objects
-        double phongExponent = 200; // TODO: Get from individual objects
-        double shininess = pow(dot(N, H), phongExponent);
-        return ColorRGB.multiply(ColorRGB.multiply(specularColor, lightColor), shininess);
+        Object3D object = intersection.getObject();
+        double shininess = object.getMaterial().getSpecularFactor(dot(N, H));
+        return ColorRGB.multiply(ColorRGB.multiply(object.getSpecularColor(), lightColor), shininess);
     }
 
-    private static Ray getReflectionRay(Intersection intersection, Scene scene) {
-        Camera camera = scene.getCamera();
+    /**
+     * Calculates and returns the {@code Ray} reflected at the given intersection regarding the incident {@code Ray}
+     * that produced it.
+     *
+     * @param intersection the intersection.
+     * @return the reflected {@code Ray}.
+     */
+    private static Ray getReflectionRay(Intersection intersection) {
         Vector3D N = intersection.getNormal();
         Vector3D P = intersection.getPosition();
-        Vector3D D = normalize(subtract(P, camera.getPosition()));
+        Vector3D D = intersection.getRay().getDirection();
         Vector3D R = subtract(D , multiply(N, 2 * dot(D, N)));
         return new Ray(P, R);
     }
@@ -0,0 +1,156 @@
+package com.amr.raytracer.rendering;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The {@code RenderProfiler} class is a {@code RenderStatistics} that also times where the time of a render goes:
+ * the generation of the rays, the traversal of the {@code SceneBVH}, the intersection tests of the objects, the
+ * shading, the shadow rays, the reflections and the writes into the framebuffer. A render is profiled by passing a
+ * {@code RenderProfiler} as its {@code RenderStatistics}; with any other statistics the timers are skipped at the cost
+ * of a single check each.<br>
+ * Every rendering thread times the sections it enters in its own call tree, without any synchronization, so the
+ * profile of a render is only complete once it ends. The profile can be written as collapsed stacks, the input of
+ * flame graph tools, and as a table of the time of every tile split into sections, from the slowest tile, to find the
+ * tiles that take the longest and why. Timing every section of every pixel slows the render down, so the times are
+ * meant to be compared with each other rather than with the ones of a render that is not profiled.
+ *
+ * @author Ángel Martínez
+ * @see ProfileSection
+ * @see TileProfile
+ */
+public final class RenderProfiler extends RenderStatistics {
+
+    private static final ProfileSection[] SECTIONS = ProfileSection.values();
+
+    private final ConcurrentLinkedQueue<ThreadProfile> threadProfiles = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<TileProfile> tileProfiles = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<ThreadProfile> profiles = ThreadLocal.withInitial(() -> {
+        ThreadProfile profile = new ThreadProfile();
+        threadProfiles.add(profile);
+        return profile;
+    });
+
+    /**
+     * Returns the time spent in the given section by every thread, outside the sections nested in it, in nanoseconds.
+     *
+     * @param section the section.
+     * @return the time of the section in nanoseconds.
+     */
+    public long getSectionNanos(ProfileSection section) {
+        long nanos = 0;
+        for (ThreadProfile profile : threadProfiles) nanos += profile.getSectionNanos()[section.ordinal()];
+        return nanos;
+    }
+
+    /**
+     * Returns the profiles of the tiles rendered, from the slowest to the fastest.
+     *
+     * @return the profiles of the tiles.
+     */
+    public List<TileProfile> getTileProfiles() {
+        List<TileProfile> profiles = new ArrayList<>(tileProfiles);
+        profiles.sort(Comparator.comparingLong(TileProfile::getNanos).reversed());
+        return profiles;
+    }
+
+    /**
+     * Returns the collapsed stacks of the render: every path of nested sections of the call trees of the threads,
+     * with its sections separated by semicolons from the outermost one, mapped to the time spent in its last section
+     * outside the sections nested in it, in nanoseconds.
+     *
+     * @return the collapsed stacks, sorted by path.
+     */
+    public Map<String, Long> getCollapsedStacks() {
+        TreeMap<String, Long> stacks = new TreeMap<>();
+        for (ThreadProfile profile : threadProfiles) collapse(profile.getRoot(), "", stacks);
+        return stacks;
+    }
+
+    /**
+     * Writes the collapsed stacks of the render to the given file, one per line followed by its time in nanoseconds,
+     * as flame graph tools read them.
+     *
+     * @param file the file to write.
+     * @return {@code true} if the stacks were written.
+     * @see #getCollapsedStacks()
+     */
+    public boolean writeCollapsedStacks(Path file) {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Long> stack : getCollapsedStacks().entrySet()) {
+                out.println(stack.getKey() + " " + stack.getValue());
+            }
+            return !out.checkError();
+        } catch (IOException e) {
+            System.err.println("There was an error writing the collapsed stacks." + e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes a table of the profiles of the tiles to the given file, from the slowest tile, with the position and
+     * dimensions of every tile, its time and its time in every section, in milliseconds.
+     *
+     * @param file the file to write.
+     * @return {@code true} if the table was written.
+     * @see #getTileProfiles()
+     */
+    public boolean writeTileTable(Path file) {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            StringBuilder header = new StringBuilder(String.format("%6s %6s %6s %6s %10s", "x", "y", "width",
+                    "height", "total"));
+            for (ProfileSection section : SECTIONS) header.append(String.format(" %19s", getName(section)));
+            out.println(header);
+            for (TileProfile profile : getTileProfiles()) {
+                Tile tile = profile.getTile();
+                StringBuilder row = new StringBuilder(String.format(Locale.ROOT, "%6d %6d %6d %6d %10.3f",
+                        tile.getX(), tile.getY(), tile.getWidth(), tile.getHeight(), profile.getNanos() / 1e6));
+                for (ProfileSection section : SECTIONS) {
+                    row.append(String.format(Locale.ROOT, " %19.3f", profile.getSectionNanos(section) / 1e6));
+                }
+                out.println(row);
+            }
+            return !out.checkError();
+        } catch (IOException e) {
+            System.err.println("There was an error writing the tile table." + e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the profile of the current thread.
+     */
+    ThreadProfile getThreadProfile() {
+        return profiles.get();
+    }
+
+    /**
+     * Records the profile of the given {@code Tile} with the time it spent in every section, indexed by ordinal.
+     */
+    void addTile(Tile tile, long[] sectionNanos) {
+        tileProfiles.add(new TileProfile(tile, sectionNanos));
+    }
+
+    private static void collapse(ThreadProfile.Node node, String path, Map<String, Long> stacks) {
+        for (ThreadProfile.Node child : node.getChildren()) {
+            if (child == null) continue;
+            String childPath = path.isEmpty() ? getName(child.getSection()) : path + ";" + getName(child.getSection());
+            if (child.getNanos() > 0) stacks.merge(childPath, child.getNanos(), Long::sum);
+            collapse(child, childPath, stacks);
+        }
+    }
+
+    private static String getName(ProfileSection section) {
+        return section.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,151 @@
+package com.amr.raytracer.rendering;
+
+import com.amr.raytracer.acceleration.BVHLayout;
+import com.amr.raytracer.rendering.lights.LightTree;
+
+/**
+ * The {@code RenderSettings} class holds the options that control how the {@code RenderEngine} renders a
+ * {@code Scene}. A default instance renders exactly like {@code RenderEngine.render(Scene, int, double)}.
+ *
+ * @author Ángel Martínez
+ * @see RenderEngine
+ */
+public class RenderSettings {
+
+    /**
+     * The default width and height of the tiles the image is split into, in pixels.
+     */
+    public static final int DEFAULT_TILE_SIZE = 16;
+
+    private int lightSamples;
+    private BVHLayout sceneLayout;
+    private int threads;
+    private int tileSize;
+    private boolean costOrdered;
+
+    /**
+     * Constructs a {@code RenderSettings} object with the default options: every light is evaluated at every hit, the
+     * objects of the {@code Scene} are organized in a binary {@code BVH}, and the image is rendered by one thread per
+     * processor in tiles of {@code DEFAULT_TILE_SIZE} pixels, the most expensive ones first.
+     */
+    public RenderSettings() {
+        setLightSamples(0);
+        setSceneLayout(BVHLayout.BINARY);
+        setThreads(Runtime.getRuntime().availableProcessors());
+        setTileSize(DEFAULT_TILE_SIZE);
+        setCostOrdered(true);
+    }
+
+    /**
+     * Returns the number of lights sampled per hit. If {@code 0}, every light of the {@code Scene} is evaluated at
+     * every hit.
+     *
+     * @return the number of lights sampled per hit.
+     * @see #setLightSamples(int)
+     */
+    public int getLightSamples() {
+        return lightSamples;
+    }
+
+    /**
+     * Sets the number of lights sampled per hit. When it is greater than {@code 0}, the point lights of the
+     * {@code Scene} are organized in a {@code LightTree} and only the given number of them are chosen stochastically at
+     * each hit, weighted by the inverse of their probability. The weighted contributions are added unclamped and the
+     * color of a pixel is only clamped once it is complete, so the estimate of its radiance is unbiased. Lights
+     * without a position are always evaluated.
+     *
+     * @param lightSamples the number of lights sampled per hit, or {@code 0} to evaluate every light.
+     * @see LightTree
+     */
+    public void setLightSamples(int lightSamples) {
+        if (lightSamples < 0) throw new IllegalArgumentException("The number of light samples cannot be negative.");
+        this.lightSamples = lightSamples;
+    }
+
+    /**
+     * Returns the {@code BVHLayout} of the acceleration structure of the objects of the {@code Scene}.
+     *
+     * @return the {@code BVHLayout} of the objects of the {@code Scene}.
+     * @see #setSceneLayout(BVHLayout)
+     */
+    public BVHLayout getSceneLayout() {
+        return sceneLayout;
+    }
+
+    /**
+     * Sets the {@code BVHLayout} of the acceleration structure of the objects of the {@code Scene}. The layout of the
+     * triangles of each model is chosen when its {@code Mesh} is built.
+     *
+     * @param sceneLayout the {@code BVHLayout} of the objects of the {@code Scene}.
+     * @see com.amr.raytracer.objects.Mesh
+     */
+    public void setSceneLayout(BVHLayout sceneLayout) {
+        if (sceneLayout == null) throw new IllegalArgumentException("The scene layout cannot be null.");
+        this.sceneLayout = sceneLayout;
+    }
+
+    /**
+     * Returns the number of threads that render the tiles of the image.
+     *
+     * @return the number of rendering threads.
+     * @see #setThreads(int)
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads that render the tiles of the image. The thread that calls the {@code RenderEngine}
+     * is one of them.
+     *
+     * @param threads the number of rendering threads.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("There must be at least one rendering thread.");
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the width and height of the tiles the image is split into, in pixels.
+     *
+     * @return the tile size in pixels.
+     * @see #setTileSize(int)
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Sets the width and height of the tiles the image is split into, in pixels. Smaller tiles balance the work
+     * between the threads better, at the cost of more scheduling.
+     *
+     * @param tileSize the tile size in pixels.
+     * @see Tile
+     */
+    public void setTileSize(int tileSize) {
+        if (tileSize < 1) throw new IllegalArgumentException("The tile size must be positive.");
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Returns whether the tiles are rendered from the most to the least expensive.
+     *
+     * @return {@code true} if the tiles are ordered by their estimated cost.
+     * @see #setCostOrdered(boolean)
+     */
+    public boolean isCostOrdered() {
+        return costOrdered;
+    }
+
+    /**
+     * Sets whether the tiles are rendered from the most to the least expensive, as estimated by timing a sparse grid
+     * of pixels of every tile before the render. Otherwise they are rendered in rows from the top left corner. The
+     * expensive tiles are only worth starting first when there are several threads, so that the frame does not end
+     * waiting for one of them.
+     *
+     * @param costOrdered whether the tiles are ordered by their estimated cost.
+     */
+    public void setCostOrdered(boolean costOrdered) {
+        this.costOrdered = costOrdered;
+    }
+}
@@ -0,0 +1,193 @@
+package com.amr.raytracer.rendering;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code RenderStatistics} class collects counters about the work done by the {@code RenderEngine} during a
+ * render. Its counters can be updated concurrently by every thread that takes part in the render.<br>
+ * Besides the rays, it records how long every frame and tile took, and the tail of every frame: the time from when
+ * the first rendering thread ran out of tiles until the last one finished, during which processors were left idle.
+ *
+ * @author Ángel Martínez
+ * @see RenderEngine
+ */
+public class RenderStatistics {
+
+    private final LongAdder primaryRays = new LongAdder();
+    private final LongAdder shadowRays = new LongAdder();
+    private final LongAdder culledShadowRays = new LongAdder();
+    private final LongAdder occluderCacheLookups = new LongAdder();
+    private final LongAdder occluderCacheHits = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder frameNanos = new LongAdder();
+    private final LongAdder tailNanos = new LongAdder();
+    private final LongAdder tiles = new LongAdder();
+    private final LongAccumulator maxTileNanos = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Returns the number of rays cast from the camera.
+     *
+     * @return the number of rays cast from the camera.
+     */
+    public long getPrimaryRays() {
+        return primaryRays.sum();
+    }
+
+    /**
+     * Returns the number of shadow rays traced towards the lights.
+     *
+     * @return the number of shadow rays traced.
+     */
+    public long getShadowRays() {
+        return shadowRays.sum();
+    }
+
+    /**
+     * Returns the number of shadow rays that were not traced because the light could not contribute to the shaded
+     * point, either because the point was outside its influence radius or because the surface faced away from it.
+     *
+     * @return the number of culled shadow rays.
+     */
+    public long getCulledShadowRays() {
+        return culledShadowRays.sum();
+    }
+
+    /**
+     * Returns the number of shadow rays traced towards a light that had a last occluder cached on the thread, which
+     * was tested before searching the rest of the objects.
+     *
+     * @return the number of occluder cache lookups.
+     */
+    public long getOccluderCacheLookups() {
+        return occluderCacheLookups.sum();
+    }
+
+    /**
+     * Returns the number of shadow rays that were found occluded by testing only the last object that occluded the
+     * same light.
+     *
+     * @return the number of occluder cache hits.
+     */
+    public long getOccluderCacheHits() {
+        return occluderCacheHits.sum();
+    }
+
+    /**
+     * Returns the fraction of the occluder cache lookups that found the shadow ray occluded by the cached object.
+     *
+     * @return the occluder cache hit rate, from {@code 0} to {@code 1}.
+     * @see #getOccluderCacheLookups()
+     */
+    public double getOccluderCacheHitRate() {
+        long lookups = getOccluderCacheLookups();
+        return lookups == 0 ? 0 : (double) getOccluderCacheHits() / lookups;
+    }
+
+    /**
+     * Returns the number of frames rendered.
+     *
+     * @return the number of frames.
+     */
+    public long getFrames() {
+        return frames.sum();
+    }
+
+    /**
+     * Returns the total time spent rendering frames, in nanoseconds.
+     *
+     * @return the frame time in nanoseconds.
+     */
+    public long getFrameNanos() {
+        return frameNanos.sum();
+    }
+
+    /**
+     * Returns the total time at the end of the frames during which some rendering threads had no tiles left while
+     * others were still rendering, in nanoseconds.
+     *
+     * @return the tail time in nanoseconds.
+     */
+    public long getTailNanos() {
+        return tailNanos.sum();
+    }
+
+    /**
+     * Returns the fraction of the frame time spent in the tail of the frames.
+     *
+     * @return the tail fraction, from {@code 0} to {@code 1}.
+     * @see #getTailNanos()
+     */
+    public double getTailFraction() {
+        long frameNanos = getFrameNanos();
+        return frameNanos == 0 ? 0 : (double) getTailNanos() / frameNanos;
+    }
+
+    /**
+     * Returns the number of tiles rendered.
+     *
+     * @return the number of tiles.
+     */
+    public long getTiles() {
+        return tiles.sum();
+    }
+
+    /**
+     * Returns the time the slowest tile took to render, in nanoseconds.
+     *
+     * @return the maximum tile time in nanoseconds.
+     */
+    public long getMaxTileNanos() {
+        return maxTileNanos.get();
+    }
+
+    void addPrimaryRay() {
+        primaryRays.increment();
+    }
+
+    void addShadowRay() {
+        shadowRays.increment();
+    }
+
+    void addCulledShadowRay() {
+        culledShadowRays.increment();
+    }
+
+    void addOccluderCacheLookup() {
+        occluderCacheLookups.increment();
+    }
+
+    void addOccluderCacheHit() {
+        occluderCacheHits.increment();
+    }
+
+    void addFrame(long nanos, long tailNanos) {
+        frames.increment();
+        frameNanos.add(nanos);
+        this.tailNanos.add(tailNanos);
+    }
+
+    void addTile(long nanos) {
+        tiles.increment();
+        maxTileNanos.accumulate(nanos);
+    }
+
+    /**
+     * Returns a string representation of this {@code RenderStatistics}.
+     *
+     * @return a string representation of this {@code RenderStatistics}.
+     */
+    @Override
+    public String toString() {
+        return "RenderStatistics{" +
+                "primaryRays=" + getPrimaryRays() +
+                ", shadowRays=" + getShadowRays() +
+                ", culledShadowRays=" + getCulledShadowRays() +
+                ", occluderCacheHitRate=" + String.format("%.3f", getOccluderCacheHitRate()) +
+                ", frames=" + getFrames() +
+                ", frameMs=" + String.format("%.1f", getFrameNanos() / 1e6) +
+                ", tailFraction=" + String.format("%.3f", getTailFraction()) +
+                ", maxTileMs=" + String.format("%.2f", getMaxTileNanos() / 1e6) +
+                '}';
+    }
+}
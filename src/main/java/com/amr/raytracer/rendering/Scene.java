@@ -1,14 +1,22 @@
 package com.amr.raytracer.rendering;
 
+import com.amr.raytracer.acceleration.BVHLayout;
 import com.amr.raytracer.objects.Object3D;
 import com.amr.raytracer.rendering.cameras.Camera;
 import com.amr.raytracer.rendering.lights.Light;
 
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * The {@code Scene} class represents a scene with a camera, solid objects and lights positioned somewhere in space.
- * Instances of this class can be rendered using the {@code RenderEngine} class.
+ * Instances of this class can be rendered using the {@code RenderEngine} class.<br>
+ * Objects can also be registered while they are still being loaded or built, as a {@code CompletableFuture}. They
+ * become part of the scene, in the order they were registered, once {@code awaitObjects} is called, which the
+ * {@code RenderEngine} does before the first ray is cast.<br>
+ * The acceleration structure of the objects is kept between renders, so rendering the same {@code Scene} again after
+ * moving some of its objects, such as in an animation, only refits it.
  *
  * @author Ángel Martínez
  * @see RenderEngine
@@ -16,8 +24,10 @@ import java.util.ArrayList;
 public class Scene {
 
     private ArrayList<Object3D> objects;
+    private final ArrayList<CompletableFuture<? extends Object3D>> pendingObjects = new ArrayList<>();
     private ArrayList<Light> lights;
     private Camera camera;
+    private SceneBVH sceneBVH;
 
     /**
      * Constructs a {@code Scene} object with the given {@code Camera}. There will not be any solid objects and
@@ -78,9 +88,46 @@ public class Scene {
      * @see #getObjects()
      */
     public void addObject(Object3D object) {
+        synchronized (pendingObjects) {
+            // Keep the registration order if there are objects still being loaded
+            if (!pendingObjects.isEmpty()) {
+                pendingObjects.add(CompletableFuture.completedFuture(object));
+                return;
+            }
+        }
         getObjects().add(object);
     }
 
+    /**
+     * Registers the {@code Object3D} that the given {@code CompletableFuture} will produce. It will be added to this
+     * {@code Scene} when {@code awaitObjects} is called. Futures that complete with {@code null} are ignored.
+     *
+     * @param object the {@code CompletableFuture} of the {@code Object3D} that will be added.
+     * @see #awaitObjects()
+     */
+    public void addObject(CompletableFuture<? extends Object3D> object) {
+        synchronized (pendingObjects) {
+            pendingObjects.add(object);
+        }
+    }
+
+    /**
+     * Waits for every {@code Object3D} registered as a {@code CompletableFuture} to be ready and adds them to the
+     * {@code ArrayList} of {@code Object3D} of this {@code Scene}, in the order they were registered.
+     *
+     * @throws CompletionException if loading any of the objects failed.
+     * @see #addObject(CompletableFuture)
+     */
+    public void awaitObjects() {
+        synchronized (pendingObjects) {
+            for (CompletableFuture<? extends Object3D> pendingObject : pendingObjects) {
+                Object3D object = pendingObject.join();
+                if (object != null) getObjects().add(object);
+            }
+            pendingObjects.clear();
+        }
+    }
+
     /**
      * Returns the {@code ArrayList} of {@code Light} objects of this {@code Scene}.
      *
@@ -135,4 +182,17 @@ public class Scene {
     public void setCamera(Camera camera) {
         this.camera = camera;
     }
+
+    /**
+     * Updates and returns the {@code SceneBVH} of the objects of this {@code Scene} with the given layout. The one of
+     * the previous render is refitted to the objects that moved since then, or built again if objects were added.
+     *
+     * @param layout the {@code BVHLayout}.
+     * @return the {@code SceneBVH} of the current objects.
+     * @see SceneBVH#update(java.util.List, BVHLayout)
+     */
+    synchronized SceneBVH updateSceneBVH(BVHLayout layout) {
+        sceneBVH = sceneBVH == null ? new SceneBVH(getObjects(), layout) : sceneBVH.update(getObjects(), layout);
+        return sceneBVH;
+    }
 }
@@ -0,0 +1,196 @@
+package com.amr.raytracer.rendering;
+
+import com.amr.raytracer.acceleration.BVH;
+import com.amr.raytracer.acceleration.BVHLayout;
+import com.amr.raytracer.acceleration.BVHQuality;
+import com.amr.raytracer.acceleration.TraversalCounter;
+import com.amr.raytracer.math.BoundingBox;
+import com.amr.raytracer.math.Intersection;
+import com.amr.raytracer.math.Ray;
+import com.amr.raytracer.objects.Object3D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code SceneBVH} class is the acceleration structure of the objects of a {@code Scene}. The objects with bounds
+ * are organized in a {@code BVH}, while the unbounded ones, such as planes, are tested against every ray.<br>
+ * A {@code SceneBVH} is never modified once built, so a render can keep using it while the {@code Scene} changes. The
+ * {@code Scene} keeps the last one and updates it before every render: if only the bounds of some objects changed, the
+ * {@code BVH} is refitted to them; if objects were added or removed, it is built again.
+ *
+ * @author Ángel Martínez
+ * @see BVH
+ * @see RenderContext
+ */
+final class SceneBVH {
+
+    private final Object3D[] objects;
+    private final Object3D[] boundedObjects;
+    private final Object3D[] unboundedObjects;
+    private final BoundingBox[] bounds;
+    private final BVH bvh;
+
+    /**
+     * Constructs a {@code SceneBVH} object over the given objects with the given layout.
+     *
+     * @param objects the objects of the {@code Scene}.
+     * @param layout  the {@code BVHLayout}.
+     */
+    SceneBVH(List<Object3D> objects, BVHLayout layout) {
+        ArrayList<Object3D> bounded = new ArrayList<>();
+        ArrayList<Object3D> unbounded = new ArrayList<>();
+        ArrayList<BoundingBox> bounds = new ArrayList<>();
+        for (Object3D object : objects) {
+            BoundingBox box = object.getBounds();
+            if (box == null) {
+                unbounded.add(object);
+            } else {
+                bounded.add(object);
+                bounds.add(box);
+            }
+        }
+        this.objects = objects.toArray(new Object3D[0]);
+        this.boundedObjects = bounded.toArray(new Object3D[0]);
+        this.unboundedObjects = unbounded.toArray(new Object3D[0]);
+        this.bounds = bounds.toArray(new BoundingBox[0]);
+        this.bvh = BVH.build(bounds, BVHQuality.BALANCED, layout);
+    }
+
+    private SceneBVH(SceneBVH sceneBVH, BoundingBox[] bounds, BVH bvh) {
+        this.objects = sceneBVH.objects;
+        this.boundedObjects = sceneBVH.boundedObjects;
+        this.unboundedObjects = sceneBVH.unboundedObjects;
+        this.bounds = bounds;
+        this.bvh = bvh;
+    }
+
+    /**
+     * Returns a {@code SceneBVH} for the given objects and layout based on this one. If they are the same objects in
+     * the same order, only the ones whose bounds changed are refitted in the {@code BVH}, and this same
+     * {@code SceneBVH} is returned if none did. Otherwise a new one is built.
+     *
+     * @param objects the objects of the {@code Scene}.
+     * @param layout  the {@code BVHLayout}.
+     * @return the updated {@code SceneBVH}.
+     * @see BVH#refit(int[], List)
+     */
+    SceneBVH update(List<Object3D> objects, BVHLayout layout) {
+        if (layout != bvh.getLayout() || !hasObjects(objects)) return new SceneBVH(objects, layout);
+        BoundingBox[] updatedBounds = bounds.clone();
+        int[] changed = new int[boundedObjects.length];
+        int changedCount = 0;
+        for (int i = 0; i < boundedObjects.length; i++) {
+            BoundingBox box = boundedObjects[i].getBounds();
+            if (box == null) return new SceneBVH(objects, layout);
+            if (box.equals(bounds[i])) continue;
+            updatedBounds[i] = box;
+            changed[changedCount++] = i;
+        }
+        if (changedCount == 0) return this;
+        BVH refitted = bvh.refit(Arrays.copyOf(changed, changedCount), Arrays.asList(updatedBounds));
+        return new SceneBVH(this, updatedBounds, refitted);
+    }
+
+    /**
+     * Calculates and returns the closest {@code Intersection} of the given {@code Ray} with any object but the caster.
+     * Intersections at or closer than the minimum distance, or at or farther than the maximum distance, are omitted.
+     *
+     * @param ray         the {@code Ray}.
+     * @param caster      the {@code Object3D} that cast the ray, or {@code null}.
+     * @param minDistance the distance at or below which intersections are omitted.
+     * @param maxDistance the distance at or beyond which intersections are omitted.
+     * @param profile     the {@code ThreadProfile} to time the intersection tests in, or {@code null}.
+     * @return the closest {@code Intersection}, or {@code null} if there is none.
+     */
+    Intersection getClosestIntersection(Ray ray, Object3D caster, double minDistance, double maxDistance,
+                                        ThreadProfile profile) {
+        Intersection[] closestIntersection = new Intersection[1];
+        double closest = maxDistance;
+        if (unboundedObjects.length > 0) TraversalCounter.record(0, unboundedObjects.length);
+        for (Object3D object : unboundedObjects) {
+            double distance = intersect(object, ray, caster, minDistance, closest, closestIntersection, profile);
+            if (distance < closest) closest = distance;
+        }
+        bvh.intersect(ray, closest, (primitive, r, distance) ->
+                intersect(boundedObjects[primitive], r, caster, minDistance, distance, closestIntersection, profile));
+        return closestIntersection[0];
+    }
+
+    /**
+     * Returns any object but the caster and the given one to skip that intersects the given {@code Ray} closer than
+     * the given distance.
+     *
+     * @param ray         the {@code Ray}.
+     * @param caster      the {@code Object3D} that cast the ray.
+     * @param skipped     an {@code Object3D} that is known not to intersect the ray, or {@code null}.
+     * @param maxDistance the distance at or beyond which intersections are omitted.
+     * @param profile     the {@code ThreadProfile} to time the intersection tests in, or {@code null}.
+     * @return an {@code Object3D} that intersects the ray, or {@code null} if there is none.
+     */
+    Object3D findOccluder(Ray ray, Object3D caster, Object3D skipped, double maxDistance, ThreadProfile profile) {
+        for (Object3D object : unboundedObjects) {
+            if (object.equals(caster) || object.equals(skipped)) continue;
+            TraversalCounter.record(0, 1);
+            if (occludes(object, ray, maxDistance, profile)) return object;
+        }
+        int occluder = bvh.intersectAny(ray, maxDistance, (primitive, r, distance) -> {
+            Object3D object = boundedObjects[primitive];
+            if (object.equals(caster) || object.equals(skipped)) return Double.POSITIVE_INFINITY;
+            Intersection intersection = getIntersection(object, r, profile);
+            return intersection == null ? Double.POSITIVE_INFINITY : intersection.getDistanceFrom(r.getOrigin());
+        });
+        return occluder < 0 ? null : boundedObjects[occluder];
+    }
+
+    /**
+     * Returns whether the given {@code Object3D} intersects the given {@code Ray} closer than the given distance.
+     *
+     * @param object      the {@code Object3D}.
+     * @param ray         the {@code Ray}.
+     * @param maxDistance the maximum distance from the origin of the ray.
+     * @param profile     the {@code ThreadProfile} to time the intersection test in, or {@code null}.
+     * @return {@code true} if the object intersects the ray closer than the given distance.
+     */
+    static boolean occludes(Object3D object, Ray ray, double maxDistance, ThreadProfile profile) {
+        Intersection intersection = getIntersection(object, ray, profile);
+        return intersection != null && intersection.getDistanceFrom(ray.getOrigin()) < maxDistance;
+    }
+
+    private boolean hasObjects(List<Object3D> objects) {
+        if (objects.size() != this.objects.length) return false;
+        for (int i = 0; i < this.objects.length; i++) {
+            if (objects.get(i) != this.objects[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Intersects the given object and stores the intersection if it is within the given range. Returns its distance,
+     * or {@code Double.POSITIVE_INFINITY} if it is not stored.
+     */
+    private static double intersect(Object3D object, Ray ray, Object3D caster, double minDistance,
+                                    double maxDistance, Intersection[] closestIntersection, ThreadProfile profile) {
+        // Avoid colliding with yourself
+        if (object.equals(caster)) return Double.POSITIVE_INFINITY;
+        Intersection intersection = getIntersection(object, ray, profile);
+        if (intersection == null) return Double.POSITIVE_INFINITY;
+        double distance = intersection.getDistanceFrom(ray.getOrigin());
+        if (distance <= minDistance || distance >= maxDistance) return Double.POSITIVE_INFINITY;
+        closestIntersection[0] = intersection;
+        return distance;
+    }
+
+    /**
+     * Returns the {@code Intersection} of the given {@code Ray} with the given object, timing the test in the given
+     * {@code ThreadProfile} unless it is {@code null}.
+     */
+    private static Intersection getIntersection(Object3D object, Ray ray, ThreadProfile profile) {
+        if (profile == null) return object.getIntersection(ray);
+        profile.enter(ProfileSection.OBJECT_INTERSECTION);
+        Intersection intersection = object.getIntersection(ray);
+        profile.exit();
+        return intersection;
+    }
+}
@@ -0,0 +1,122 @@
+package com.amr.raytracer.rendering;
+
+import java.util.Arrays;
+
+/**
+ * The {@code ThreadProfile} class times the sections of the work done by a single rendering thread for a
+ * {@code RenderProfiler}. It keeps a tree of the nested sections entered by the thread, the call tree, where every
+ * node holds the time spent in its section outside its children, and the same time added up per section.
+ *
+ * @author Ángel Martínez
+ * @see RenderProfiler
+ * @see ProfileSection
+ */
+final class ThreadProfile {
+
+    private static final ProfileSection[] SECTIONS = ProfileSection.values();
+
+    private final Node root = new Node(null, null);
+    private final long[] sectionNanos = new long[SECTIONS.length];
+    private Node current = root;
+    private long[] tileStart = new long[SECTIONS.length];
+
+    // The start and the time spent in children of every section entered
+    private long[] starts = new long[16];
+    private long[] childNanos = new long[16];
+    private int depth;
+
+    /**
+     * Enters the given section inside the current one.
+     */
+    void enter(ProfileSection section) {
+        Node child = current.children[section.ordinal()];
+        if (child == null) {
+            child = new Node(section, current);
+            current.children[section.ordinal()] = child;
+        }
+        current = child;
+        if (depth == starts.length) {
+            starts = Arrays.copyOf(starts, 2 * depth);
+            childNanos = Arrays.copyOf(childNanos, 2 * depth);
+        }
+        childNanos[depth] = 0;
+        starts[depth++] = System.nanoTime();
+    }
+
+    /**
+     * Exits the current section and adds the time spent in it outside its children to it.
+     */
+    void exit() {
+        long elapsed = System.nanoTime() - starts[--depth];
+        long self = elapsed - childNanos[depth];
+        current.nanos += self;
+        sectionNanos[current.section.ordinal()] += self;
+        if (depth > 0) childNanos[depth - 1] += elapsed;
+        current = current.parent;
+    }
+
+    /**
+     * Enters the section of a new tile, dropping the sections left open by a tile that failed.
+     */
+    void beginTile() {
+        current = root;
+        depth = 0;
+        tileStart = sectionNanos.clone();
+        enter(ProfileSection.TILE);
+    }
+
+    /**
+     * Exits the section of the current tile and returns the time spent by it in every section, indexed by ordinal.
+     */
+    long[] endTile() {
+        exit();
+        long[] nanos = new long[SECTIONS.length];
+        for (int i = 0; i < nanos.length; i++) nanos[i] = sectionNanos[i] - tileStart[i];
+        return nanos;
+    }
+
+    /**
+     * Returns the time spent in every section, indexed by ordinal.
+     */
+    long[] getSectionNanos() {
+        return sectionNanos;
+    }
+
+    /**
+     * Returns the root of the call tree, which has no section.
+     */
+    Node getRoot() {
+        return root;
+    }
+
+    /**
+     * A node of the call tree: a section entered inside the sections of its ancestors.
+     */
+    static final class Node {
+
+        private final ProfileSection section;
+        private final Node parent;
+        private final Node[] children = new Node[SECTIONS.length];
+        private long nanos;
+
+        private Node(ProfileSection section, Node parent) {
+            this.section = section;
+            this.parent = parent;
+        }
+
+        ProfileSection getSection() {
+            return section;
+        }
+
+        Node[] getChildren() {
+            return children;
+        }
+
+        /**
+         * Returns the time spent in the section of this node outside its children.
+         */
+        long getNanos() {
+            return nanos;
+        }
+    }
+}
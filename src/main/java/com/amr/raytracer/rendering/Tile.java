@@ -0,0 +1,111 @@
+package com.amr.raytracer.rendering;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code Tile} class represents a rectangular region of the pixels of a render, in image coordinates with the
+ * origin at the top left corner. A render can be split into tiles that are rendered independently, in any order and
+ * on any thread or process, and then assembled into the final image.
+ *
+ * @author Ángel Martínez
+ * @see RenderEngine#renderTile(Scene, int, double, RenderSettings, RenderStatistics, Tile)
+ */
+public final class Tile {
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    /**
+     * Constructs a {@code Tile} object with the given top left corner and dimensions.
+     *
+     * @param x      the horizontal pixel coordinate of the top left corner.
+     * @param y      the vertical pixel coordinate of the top left corner.
+     * @param width  the width in pixels.
+     * @param height the height in pixels.
+     * @throws IllegalArgumentException if the corner is negative or the tile is empty.
+     */
+    public Tile(int x, int y, int width, int height) {
+        if (x < 0 || y < 0) throw new IllegalArgumentException("The corner of a tile cannot be negative.");
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("A tile cannot be empty.");
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Splits an image with the given dimensions into square tiles of the given size, in rows from the top left
+     * corner. The tiles on the right and bottom edges are cut to fit the image.
+     *
+     * @param imageWidth  the width of the image in pixels.
+     * @param imageHeight the height of the image in pixels.
+     * @param tileSize    the width and height of the tiles in pixels.
+     * @return the tiles that cover the image.
+     * @throws IllegalArgumentException if the tile size is not positive.
+     */
+    public static List<Tile> split(int imageWidth, int imageHeight, int tileSize) {
+        return split(0, 0, imageWidth, imageHeight, tileSize);
+    }
+
+    /**
+     * Splits the window of an image with the given top left corner and dimensions into square tiles of the given
+     * size, in rows from its top left corner. The tiles on the right and bottom edges are cut to fit the window.
+     *
+     * @param x        the horizontal pixel coordinate of the top left corner of the window.
+     * @param y        the vertical pixel coordinate of the top left corner of the window.
+     * @param width    the width of the window in pixels.
+     * @param height   the height of the window in pixels.
+     * @param tileSize the width and height of the tiles in pixels.
+     * @return the tiles that cover the window.
+     * @throws IllegalArgumentException if the tile size is not positive.
+     */
+    public static List<Tile> split(int x, int y, int width, int height, int tileSize) {
+        if (tileSize <= 0) throw new IllegalArgumentException("The tile size must be positive.");
+        ArrayList<Tile> tiles = new ArrayList<>();
+        for (int tileY = y; tileY < y + height; tileY += tileSize) {
+            for (int tileX = x; tileX < x + width; tileX += tileSize) {
+                tiles.add(new Tile(tileX, tileY, Math.min(tileSize, x + width - tileX),
+                        Math.min(tileSize, y + height - tileY)));
+            }
+        }
+        return tiles;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of pixels of this {@code Tile}.
+     *
+     * @return the number of pixels.
+     */
+    public int getPixelCount() {
+        return width * height;
+    }
+
+    /**
+     * Returns a string representation of this {@code Tile}.
+     *
+     * @return a string representation of this {@code Tile}.
+     */
+    @Override
+    public String toString() {
+        return "Tile{" + "x=" + x + ", y=" + y + ", width=" + width + ", height=" + height + '}';
+    }
+}
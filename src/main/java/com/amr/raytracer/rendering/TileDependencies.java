@@ -0,0 +1,113 @@
+package com.amr.raytracer.rendering;
+
+import com.amr.raytracer.math.BoundingBox;
+import com.amr.raytracer.math.Ray;
+import com.amr.raytracer.math.Vector3D;
+import com.amr.raytracer.objects.Object3D;
+import com.amr.raytracer.rendering.lights.Light;
+import com.amr.raytracer.rendering.lights.PointLight;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * The {@code TileDependencies} class records what the pixels of a tile depended on when they were rendered: the
+ * objects hit by their rays, including reflections and the occluders of their shadow rays, the lights that lit them,
+ * the box of the points that were shaded and the box of the parts of their shadow and reflection rays inside the
+ * bounds of the scene. An {@code IncrementalRenderer} uses them to find the tiles that an edit of the {@code Scene}
+ * can change.
+ *
+ * @author Ángel Martínez
+ * @see IncrementalRenderer
+ */
+final class TileDependencies {
+
+    private final BoundingBox world;
+    private final Set<Object3D> objects = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Light> lights = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final BoundingBox shadedPoints = new BoundingBox();
+    private final BoundingBox secondaryRays = new BoundingBox();
+
+    /**
+     * Constructs an empty {@code TileDependencies} object whose secondary rays are clipped to the given bounds of the
+     * scene.
+     */
+    TileDependencies(BoundingBox world) {
+        this.world = world;
+    }
+
+    /**
+     * Records that a ray of the tile hit the given object at the given point, which is shaded.
+     */
+    void addHit(Object3D object, Vector3D point) {
+        objects.add(object);
+        shadedPoints.include(point);
+    }
+
+    /**
+     * Records that a shadow ray of the tile was occluded by the given object.
+     */
+    void addOccluder(Object3D object) {
+        objects.add(object);
+    }
+
+    /**
+     * Records that the given light lit a point of the tile.
+     */
+    void addLight(Light light) {
+        lights.add(light);
+    }
+
+    /**
+     * Records the part inside the bounds of the scene of the given shadow or reflection ray up to the given distance.
+     */
+    void addSecondaryRay(Ray ray, double length) {
+        Vector3D origin = ray.getOrigin();
+        Vector3D direction = ray.getDirection();
+        double near = 0, far = length;
+        for (int axis = 0; axis < 3 && near <= far; axis++) {
+            double o = get(origin, axis), d = get(direction, axis);
+            if (d == 0) {
+                if (o < world.getMin(axis) || o > world.getMax(axis)) return;
+                continue;
+            }
+            double t1 = (world.getMin(axis) - o) / d, t2 = (world.getMax(axis) - o) / d;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        if (near > far) return;
+        secondaryRays.include(Vector3D.add(origin, Vector3D.multiply(direction, near)));
+        secondaryRays.include(Vector3D.add(origin, Vector3D.multiply(direction, far)));
+    }
+
+    /**
+     * Returns whether any point of the tile was shaded.
+     */
+    boolean hasShadedPoints() {
+        return !shadedPoints.isEmpty();
+    }
+
+    /**
+     * Returns whether the pixels of the tile may change if the given object, with the given bounds inside the bounds
+     * of the scene, changed: if it was hit by their rays, or if it now overlaps their shadow or reflection rays.
+     */
+    boolean dependsOn(Object3D object, BoundingBox bounds) {
+        return objects.contains(object) || secondaryRays.intersects(bounds);
+    }
+
+    /**
+     * Returns whether the pixels of the tile may change if the given light changed: if it lit them, or if any of
+     * their shaded points is now within its influence radius.
+     */
+    boolean dependsOn(Light light) {
+        if (lights.contains(light)) return true;
+        if (shadedPoints.isEmpty()) return false;
+        if (!(light instanceof PointLight) || Double.isInfinite(light.getInfluenceRadius())) return true;
+        return shadedPoints.getDistance(((PointLight) light).getPosition()) <= light.getInfluenceRadius();
+    }
+
+    private static double get(Vector3D v, int axis) {
+        return axis == 0 ? v.getX() : axis == 1 ? v.getY() : v.getZ();
+    }
+}
@@ -0,0 +1,49 @@
+package com.amr.raytracer.rendering;
+
+/**
+ * The {@code TileProfile} class holds the time a tile of a render took, split into the sections of its work.
+ *
+ * @author Ángel Martínez
+ * @see RenderProfiler#getTileProfiles()
+ */
+public final class TileProfile {
+
+    private final Tile tile;
+    private final long[] sectionNanos;
+    private final long nanos;
+
+    /**
+     * Constructs a {@code TileProfile} object for the given {@code Tile} with the time spent in every section, indexed
+     * by ordinal.
+     */
+    TileProfile(Tile tile, long[] sectionNanos) {
+        this.tile = tile;
+        this.sectionNanos = sectionNanos;
+        long nanos = 0;
+        for (long section : sectionNanos) nanos += section;
+        this.nanos = nanos;
+    }
+
+    public Tile getTile() {
+        return tile;
+    }
+
+    /**
+     * Returns the time the tile took, in nanoseconds.
+     *
+     * @return the time of the tile in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Returns the time the tile spent in the given section outside the sections nested in it, in nanoseconds.
+     *
+     * @param section the section.
+     * @return the time of the section in nanoseconds.
+     */
+    public long getSectionNanos(ProfileSection section) {
+        return sectionNanos[section.ordinal()];
+    }
+}
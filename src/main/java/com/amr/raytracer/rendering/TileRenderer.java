@@ -0,0 +1,229 @@
+package com.amr.raytracer.rendering;
+
+import com.amr.raytracer.acceleration.TraversalCounter;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The {@code TileRenderer} class renders the tiles of a single image of a {@code Scene}. Everything the rays need is
+ * prepared once when it is constructed, so its tiles can then be rendered in any order, on any thread and
+ * interleaved with the tiles of other images, such as by a service that shares its threads between several renders.
+ *
+ * @author Ángel Martínez
+ * @see RenderEngine
+ * @see Tile
+ * @see Framebuffer
+ */
+public final class TileRenderer {
+
+    private final RenderContext context;
+    private final int width;
+    private final int height;
+    private final Function<Tile, TileDependencies> dependencies;
+
+    /**
+     * Constructs a {@code TileRenderer} object for the image of the given {@code Scene} with the dimensions that
+     * correspond to the given resolution and aspect ratio, using the given {@code RenderSettings}. It waits for every
+     * object of the {@code Scene} that is still being loaded.
+     *
+     * @param scene       the {@code Scene} to render.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @param settings    the {@code RenderSettings}.
+     * @param statistics  the {@code RenderStatistics} to record the render in.
+     */
+    public TileRenderer(Scene scene, int resolution, double aspectRatio, RenderSettings settings,
+                        RenderStatistics statistics) {
+        this(scene, resolution, aspectRatio, settings, statistics, null, false);
+    }
+
+    /**
+     * Constructs a {@code TileRenderer} object like
+     * {@link #TileRenderer(Scene, int, double, RenderSettings, RenderStatistics)}, which records what the pixels of
+     * every tile depend on in the {@code TileDependencies} the given function returns for the tile, unless it is
+     * {@code null}, and which can measure the cost of the pixels if the given flag is set.
+     */
+    TileRenderer(Scene scene, int resolution, double aspectRatio, RenderSettings settings,
+                 RenderStatistics statistics, Function<Tile, TileDependencies> dependencies, boolean measuresCost) {
+        scene.awaitObjects();
+        this.context = new RenderContext(scene, settings, statistics, dependencies != null, measuresCost);
+        this.width = RenderEngine.getImageWidth(resolution, aspectRatio);
+        this.height = resolution;
+        this.dependencies = dependencies;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the tiles of the image, with the tile size of the {@code RenderSettings}, in rows from the top left
+     * corner.
+     *
+     * @return the tiles of the image.
+     * @see RenderSettings#getTileSize()
+     */
+    public List<Tile> getTiles() {
+        return Tile.split(width, height, context.getSettings().getTileSize());
+    }
+
+    /**
+     * Renders the given {@code Tile} into the given {@code Framebuffer}, which holds the whole image or a window of it,
+     * and covers its pixels once they are all rendered. Several tiles can be rendered into the same
+     * {@code Framebuffer} at the same time.
+     *
+     * @param tile        the {@code Tile} to render.
+     * @param framebuffer the {@code Framebuffer} of the image.
+     * @throws IllegalArgumentException if the tile is not inside the image or the framebuffer.
+     */
+    public void render(Tile tile, Framebuffer framebuffer) {
+        render(tile, framebuffer, null);
+    }
+
+    /**
+     * Renders the given {@code Tile} into the given {@code Framebuffer} like {@link #render(Tile, Framebuffer)},
+     * writing its passes in the same trace into the given {@code AovBuffer}, unless it is {@code null}.
+     *
+     * @param tile        the {@code Tile} to render.
+     * @param framebuffer the {@code Framebuffer} of the image.
+     * @param aovs        the {@code AovBuffer} of the image, or {@code null}.
+     * @throws IllegalArgumentException if the tile is not inside the image, the framebuffer or the AOV buffer.
+     * @see Aov
+     */
+    public void render(Tile tile, Framebuffer framebuffer, AovBuffer aovs) {
+        checkInside(tile);
+        if (!framebuffer.contains(tile)) throw new IllegalArgumentException("The tile is not inside the framebuffer.");
+        if (aovs != null && !aovs.contains(tile)) {
+            throw new IllegalArgumentException("The tile is not inside the AOV buffer.");
+        }
+        long start = System.nanoTime();
+        ThreadProfile profile = context.getProfile();
+        if (profile != null) profile.beginTile();
+        if (dependencies != null) context.setDependencies(dependencies.apply(tile));
+        try {
+            AovSample sample = aovs == null ? null : new AovSample(aovs.getAovs());
+            for (int y = tile.getY(); y < tile.getY() + tile.getHeight(); y++) {
+                for (int x = tile.getX(); x < tile.getX() + tile.getWidth(); x++) {
+                    if (sample != null) sample.reset();
+                    int rgb = RenderEngine.computePixel(context, x, y, width, height, sample);
+                    if (profile != null) profile.enter(ProfileSection.FRAMEBUFFER_WRITE);
+                    framebuffer.setRGB(x, y, rgb);
+                    if (sample != null) aovs.set(x, y, sample);
+                    if (profile != null) profile.exit();
+                }
+            }
+        } finally {
+            if (dependencies != null) context.setDependencies(null);
+        }
+        framebuffer.cover(tile);
+        if (profile != null) context.getProfiler().addTile(tile, profile.endTile());
+        context.getStatistics().addTile(System.nanoTime() - start);
+    }
+
+    /**
+     * Renders the given {@code Tile}, which must be one of the tiles of the given {@code MappedFramebuffer}, into it
+     * and covers it once its pixels are all rendered. Several tiles can be rendered into the same
+     * {@code MappedFramebuffer} at the same time.
+     *
+     * @param tile        the {@code Tile} to render.
+     * @param framebuffer the {@code MappedFramebuffer} of the image.
+     * @throws IllegalArgumentException if the tile is not inside the image.
+     * @see MappedFramebuffer#getTile(int)
+     */
+    public void render(Tile tile, MappedFramebuffer framebuffer) {
+        checkInside(tile);
+        long start = System.nanoTime();
+        ThreadProfile profile = context.getProfile();
+        if (profile != null) profile.beginTile();
+        for (int y = tile.getY(); y < tile.getY() + tile.getHeight(); y++) {
+            for (int x = tile.getX(); x < tile.getX() + tile.getWidth(); x++) {
+                int rgb = RenderEngine.computePixel(context, x, y, width, height);
+                if (profile != null) profile.enter(ProfileSection.FRAMEBUFFER_WRITE);
+                framebuffer.setRGB(x, y, rgb);
+                if (profile != null) profile.exit();
+            }
+        }
+        framebuffer.cover(tile);
+        if (profile != null) context.getProfiler().addTile(tile, profile.endTile());
+        context.getStatistics().addTile(System.nanoTime() - start);
+    }
+
+    /**
+     * Renders one more sample of every pixel of the given {@code Tile} and adds it to the running mean of the pixel in
+     * the given {@code AccumulationBuffer}. Several tiles can be accumulated into the same
+     * {@code AccumulationBuffer} at the same time.
+     *
+     * @param tile   the {@code Tile} to render.
+     * @param buffer the {@code AccumulationBuffer} of the image.
+     * @throws IllegalArgumentException if the tile is not inside the image or the accumulation buffer.
+     */
+    public void accumulate(Tile tile, AccumulationBuffer buffer) {
+        checkInside(tile);
+        if (!buffer.contains(tile)) {
+            throw new IllegalArgumentException("The tile is not inside the accumulation buffer.");
+        }
+        long start = System.nanoTime();
+        ThreadProfile profile = context.getProfile();
+        if (profile != null) profile.beginTile();
+        // The color of the sample is its radiance before it is clamped, and its depth tells whether the ray hit an
+        // object
+        AovSample sample = new AovSample(EnumSet.of(Aov.COLOR, Aov.DEPTH));
+        for (int y = tile.getY(); y < tile.getY() + tile.getHeight(); y++) {
+            for (int x = tile.getX(); x < tile.getX() + tile.getWidth(); x++) {
+                sample.reset();
+                RenderEngine.computePixel(context, x, y, width, height, buffer.getSampleCount(x, y), sample);
+                if (profile != null) profile.enter(ProfileSection.FRAMEBUFFER_WRITE);
+                buffer.add(x, y, sample.get(Aov.COLOR), !Float.isInfinite(sample.get(Aov.DEPTH)[0]));
+                if (profile != null) profile.exit();
+            }
+        }
+        if (profile != null) context.getProfiler().addTile(tile, profile.endTile());
+        context.getStatistics().addTile(System.nanoTime() - start);
+    }
+
+    /**
+     * Renders the given {@code Tile} counting the cost of each of its pixels, which is stored in the given
+     * {@code CostBuffer} instead of its color. The {@code TileRenderer} must measure the cost of the pixels.
+     */
+    void renderCost(Tile tile, CostBuffer buffer) {
+        checkInside(tile);
+        long start = System.nanoTime();
+        ThreadProfile profile = context.getProfile();
+        if (profile != null) profile.beginTile();
+        PixelCost cost = context.getCost();
+        TraversalCounter counter = new TraversalCounter();
+        counter.start();
+        try {
+            for (int y = tile.getY(); y < tile.getY() + tile.getHeight(); y++) {
+                for (int x = tile.getX(); x < tile.getX() + tile.getWidth(); x++) {
+                    cost.reset();
+                    long tests = counter.getPrimitiveTests(), visits = counter.getNodeVisits();
+                    RenderEngine.computePixel(context, x, y, width, height);
+                    if (profile != null) profile.enter(ProfileSection.FRAMEBUFFER_WRITE);
+                    buffer.set(x, y, counter.getPrimitiveTests() - tests, counter.getNodeVisits() - visits, cost);
+                    if (profile != null) profile.exit();
+                }
+            }
+        } finally {
+            counter.stop();
+        }
+        if (profile != null) context.getProfiler().addTile(tile, profile.endTile());
+        context.getStatistics().addTile(System.nanoTime() - start);
+    }
+
+    RenderContext getContext() {
+        return context;
+    }
+
+    private void checkInside(Tile tile) {
+        if (tile.getX() + tile.getWidth() > width || tile.getY() + tile.getHeight() > height) {
+            throw new IllegalArgumentException("The tile is not inside the image.");
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.amr.raytracer.rendering;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.IntFunction;
+
+/**
+ * The {@code TileScheduler} class renders the image of a {@code TileRenderer} on several threads. The image is split
+ * into small tiles that the threads claim one at a time from a shared cursor, so a thread that finishes its tile
+ * early takes the next one instead of waiting for the others.<br>
+ * The cost of the pixels of an image is very uneven: background pixels are done as soon as their ray misses, while
+ * pixels covered by a detailed model test many triangles. If an expensive tile is claimed last, the frame ends waiting
+ * for it on a single thread. So before the render, a sparse grid of pixels of every tile is timed, and the tiles are
+ * claimed from the most to the least expensive.<br>
+ * The threads are the calling thread and the threads of a pool shared by every render, with one thread per processor,
+ * so concurrent renders share the processors instead of oversubscribing them.
+ *
+ * @author Ángel Martínez
+ * @see RenderSettings#setThreads(int)
+ * @see RenderSettings#setCostOrdered(boolean)
+ */
+final class TileScheduler {
+
+    /**
+     * The distance in pixels between the pixels timed to estimate the cost of a tile.
+     */
+    private static final int SAMPLE_SPACING = 8;
+
+    /**
+     * The pool of daemon threads shared by every render.
+     */
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "RenderEngine-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private TileScheduler() {
+    }
+
+    /**
+     * Renders the tiles of the window of the image of the given {@code TileRenderer} held by the given
+     * {@code Framebuffer} that are not covered yet, until they are all done or the given token is cancelled, and
+     * records the frame in the {@code RenderStatistics} of the render. Every finished tile is recorded in the given
+     * checkpoint, and the passes of the tiles are written into the given {@code AovBuffer}, unless they are
+     * {@code null}.
+     */
+    static void render(TileRenderer renderer, Framebuffer framebuffer, AovBuffer aovs, CancellationToken token,
+                       RenderCheckpoint checkpoint) {
+        long start = System.nanoTime();
+        Tile[] tiles = Tile.split(framebuffer.getX(), framebuffer.getY(), framebuffer.getWidth(),
+                framebuffer.getHeight(), renderer.getContext().getSettings().getTileSize()).stream()
+                .filter(tile -> !framebuffer.isCovered(tile)).toArray(Tile[]::new);
+        renderTiles(renderer, tiles, token, start, (index, tile) -> {
+            renderer.render(tile, framebuffer, aovs);
+            if (checkpoint != null) checkpoint.record(tile, framebuffer);
+        });
+    }
+
+    /**
+     * Renders one more sample of every pixel of the window of the image of the given {@code TileRenderer} held by the
+     * given {@code AccumulationBuffer}, until every tile is done or the given token is cancelled, and records the frame
+     * in the {@code RenderStatistics} of the render.
+     */
+    static void accumulate(TileRenderer renderer, AccumulationBuffer buffer, CancellationToken token) {
+        long start = System.nanoTime();
+        Tile[] tiles = Tile.split(buffer.getX(), buffer.getY(), buffer.getWidth(), buffer.getHeight(),
+                renderer.getContext().getSettings().getTileSize()).toArray(new Tile[0]);
+        renderTiles(renderer, tiles, token, start, (index, tile) -> renderer.accumulate(tile, buffer));
+    }
+
+    /**
+     * Renders every tile of the image of the given {@code TileRenderer} counting the cost of its pixels into the given
+     * {@code CostBuffer}, until they are all done or the given token is cancelled, and records the frame in the
+     * {@code RenderStatistics} of the render.
+     */
+    static void renderCost(TileRenderer renderer, CostBuffer buffer, CancellationToken token) {
+        long start = System.nanoTime();
+        Tile[] tiles = renderer.getTiles().toArray(new Tile[0]);
+        renderTiles(renderer, tiles, token, start, (index, tile) -> renderer.renderCost(tile, buffer));
+    }
+
+    /**
+     * Renders the tiles of the image of the given {@code TileRenderer} held by the given {@code MappedFramebuffer}
+     * that are not covered yet, until they are all done or the given token is cancelled, and records the frame in the
+     * {@code RenderStatistics} of the render. The tiles are claimed in the order of the file, which keeps the pages
+     * being written close together, and are only created as they are claimed, so the heap used does not depend on
+     * the size of the image.
+     */
+    static void renderMapped(TileRenderer renderer, MappedFramebuffer framebuffer, CancellationToken token) {
+        long start = System.nanoTime();
+        int threads = Math.min(renderer.getContext().getSettings().getThreads(), framebuffer.getTileCount());
+        long firstIdle = forEachTile(framebuffer.getTileCount(), framebuffer::getTile, threads, token,
+                (index, tile) -> {
+                    if (!framebuffer.isCovered(index)) renderer.render(tile, framebuffer);
+                });
+        long end = System.nanoTime();
+        renderer.getContext().getStatistics().addFrame(end - start, end - firstIdle);
+    }
+
+    /**
+     * Runs the given action on every given tile of the image of the given {@code TileRenderer}, ordered by cost if
+     * the settings ask for it, and records the frame started at the given time.
+     */
+    private static void renderTiles(TileRenderer renderer, Tile[] tiles, CancellationToken token, long start,
+                                    TileAction action) {
+        RenderContext context = renderer.getContext();
+        RenderSettings settings = context.getSettings();
+        int threads = Math.min(settings.getThreads(), tiles.length);
+        Tile[] ordered = threads > 1 && settings.isCostOrdered()
+                ? sortByCost(context, tiles, renderer.getWidth(), renderer.getHeight(), token) : tiles;
+        long firstIdle = forEachTile(ordered.length, i -> ordered[i], threads, token, action);
+        long end = System.nanoTime();
+        context.getStatistics().addFrame(end - start, end - firstIdle);
+    }
+
+    /**
+     * Times the pixels of a sparse grid of every tile and returns the tiles sorted from the most to the least
+     * expensive. The pixels are rendered with their own {@code RenderStatistics} and then discarded.
+     */
+    private static Tile[] sortByCost(RenderContext context, Tile[] tiles, int imageWidth, int imageHeight,
+                                     CancellationToken token) {
+        RenderContext sampling = new RenderContext(context.getScene(), context.getSettings(), new RenderStatistics());
+        long[] costs = new long[tiles.length];
+        forEachTile(tiles.length, i -> tiles[i], context.getSettings().getThreads(), token, (index, tile) -> {
+            long start = System.nanoTime();
+            for (int y = tile.getY() + getSampleOffset(tile.getHeight()); y < tile.getY() + tile.getHeight();
+                 y += SAMPLE_SPACING) {
+                for (int x = tile.getX() + getSampleOffset(tile.getWidth()); x < tile.getX() + tile.getWidth();
+                     x += SAMPLE_SPACING) {
+                    RenderEngine.computePixel(sampling, x, y, imageWidth, imageHeight);
+                }
+            }
+            costs[index] = System.nanoTime() - start;
+        });
+        Integer[] order = new Integer[tiles.length];
+        for (int i = 0; i < tiles.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(costs[b], costs[a]));
+        Tile[] sorted = new Tile[tiles.length];
+        for (int i = 0; i < order.length; i++) sorted[i] = tiles[order[i]];
+        return sorted;
+    }
+
+    /**
+     * Returns the offset of the first timed pixel of a tile side, so that every tile has at least one.
+     */
+    private static int getSampleOffset(int size) {
+        return Math.min(SAMPLE_SPACING, size) / 2;
+    }
+
+    /**
+     * Runs the given action on the given number of tiles, in order, on the given number of threads, and returns the
+     * time at which the first thread found no tiles left. The tiles are created from their index as they are claimed.
+     * The token is checked before every tile; once it is cancelled, the tiles left are skipped. If the action fails on
+     * any tile, the rest are skipped too and the exception is rethrown once every running tile is done.
+     */
+    private static long forEachTile(int count, IntFunction<Tile> tiles, int threads, CancellationToken token,
+                                    TileAction action) {
+        AtomicInteger cursor = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(count);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        LongAccumulator firstIdle = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        Runnable worker = () -> {
+            for (int i = cursor.getAndIncrement(); i < count; i = cursor.getAndIncrement()) {
+                if (token.isCancelled()) {
+                    // Claim every tile left at once so that the frame ends as soon as the running tiles are done
+                    int claimed = Math.min(cursor.getAndSet(count), count);
+                    for (int j = claimed; j < count; j++) done.countDown();
+                    done.countDown();
+                    break;
+                }
+                try {
+                    if (error.get() == null) action.render(i, tiles.apply(i));
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+            firstIdle.accumulate(System.nanoTime());
+        };
+        // Threads that start once every tile is claimed find nothing to do and return at once
+        for (int i = 1; i < threads; i++) WORKERS.execute(worker);
+        worker.run();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                // The tiles being rendered still write into the image, so they must be waited for
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        Throwable e = error.get();
+        if (e instanceof Error) throw (Error) e;
+        if (e != null) throw (RuntimeException) e;
+        return firstIdle.get();
+    }
+
+    @FunctionalInterface
+    private interface TileAction {
+        void render(int index, Tile tile);
+    }
+}
@@ -0,0 +1,133 @@
+package com.amr.raytracer.rendering;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * The {@code TiledTiffWriter} class writes tiled, uncompressed RGB TIFF images whose tiles are already laid out as
+ * TIFF expects them in another file, such as the file of a {@code MappedFramebuffer}. The header, the directory and
+ * the tables of the tiles are computed as they are written, and the tiles are copied from file to file, so the heap
+ * used does not depend on the size of the image. Images whose file would not fit in the four gigabytes a TIFF file
+ * can address are written as BigTIFF, which has the same structure with wider offsets.
+ *
+ * @author Ángel Martínez
+ * @see MappedFramebuffer#writeTiff(Path)
+ */
+final class TiledTiffWriter {
+
+    private static final short SHORT = 3;
+    private static final short LONG = 4;
+    private static final short LONG8 = 16;
+    private static final int ENTRIES = 11;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private TiledTiffWriter() {
+    }
+
+    /**
+     * Writes the image with the given dimensions and tile size, whose tiles are in the given channel from the given
+     * offset, to the given file.
+     *
+     * @param file       the file to write.
+     * @param source     the channel of the file that holds the tiles.
+     * @param dataOffset the offset of the first tile in the source.
+     * @param width      the width of the image in pixels.
+     * @param height     the height of the image in pixels.
+     * @param tileSize   the width and height of the tiles in pixels.
+     * @param tileCount  the number of tiles.
+     * @return {@code true} if the image was written.
+     */
+    static boolean write(Path file, FileChannel source, long dataOffset, int width, int height, int tileSize,
+                         int tileCount) {
+        long tileBytes = 3L * tileSize * tileSize;
+        long dataBytes = tileBytes * tileCount;
+        boolean big = dataBytes + 16L * tileCount + 1024 > 0xFFFFFFFFL;
+        int offsetBytes = big ? 8 : 4;
+        int entryBytes = big ? 20 : 12;
+        long directoryOffset = big ? 16 : 8;
+        long bitsOffset = directoryOffset + (big ? 8 : 2) + ENTRIES * entryBytes + offsetBytes;
+        long offsetsOffset = bitsOffset + 8;
+        long countsOffset = offsetsOffset + (long) offsetBytes * tileCount;
+        long tilesOffset = countsOffset + (long) offsetBytes * tileCount;
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel out = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            // Header
+            buffer.put((byte) 'I').put((byte) 'I');
+            if (big) {
+                buffer.putShort((short) 43).putShort((short) 8).putShort((short) 0).putLong(directoryOffset);
+            } else {
+                buffer.putShort((short) 42).putInt((int) directoryOffset);
+            }
+            // Directory, with its entries sorted by tag
+            if (big) buffer.putLong(ENTRIES);
+            else buffer.putShort((short) ENTRIES);
+            short offsetType = big ? LONG8 : LONG;
+            putEntry(buffer, big, 256, LONG, 1, width);
+            putEntry(buffer, big, 257, LONG, 1, height);
+            // Three eight-bit samples fit in the entry of a BigTIFF but not in the one of a TIFF
+            putEntry(buffer, big, 258, SHORT, 3, big ? 0x0008_0008_0008L : bitsOffset);
+            putEntry(buffer, big, 259, SHORT, 1, 1);
+            putEntry(buffer, big, 262, SHORT, 1, 2);
+            putEntry(buffer, big, 277, SHORT, 1, 3);
+            putEntry(buffer, big, 284, SHORT, 1, 1);
+            putEntry(buffer, big, 322, LONG, 1, tileSize);
+            putEntry(buffer, big, 323, LONG, 1, tileSize);
+            putEntry(buffer, big, 324, offsetType, tileCount, tileCount == 1 ? tilesOffset : offsetsOffset);
+            putEntry(buffer, big, 325, offsetType, tileCount, tileCount == 1 ? tileBytes : countsOffset);
+            if (big) buffer.putLong(0);
+            else buffer.putInt(0);
+            buffer.putShort((short) 8).putShort((short) 8).putShort((short) 8).putShort((short) 0);
+            // Tables of the offsets and sizes of the tiles
+            for (int table = 0; table < 2; table++) {
+                for (int i = 0; i < tileCount; i++) {
+                    if (buffer.remaining() < offsetBytes) flush(buffer, out);
+                    long value = table == 0 ? tilesOffset + i * tileBytes : tileBytes;
+                    if (big) buffer.putLong(value);
+                    else buffer.putInt((int) value);
+                }
+            }
+            flush(buffer, out);
+            // Tiles
+            for (long copied = 0; copied < dataBytes; ) {
+                long count = source.transferTo(dataOffset + copied, dataBytes - copied, out);
+                if (count <= 0) throw new IOException("The tiles end before the image.");
+                copied += count;
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("There was an error writing the TIFF image." + e);
+            return false;
+        }
+    }
+
+    /**
+     * Puts a directory entry with the given tag, type, number of values and value, or offset of the values if they
+     * do not fit in the entry.
+     */
+    private static void putEntry(ByteBuffer buffer, boolean big, int tag, short type, long count, long value) {
+        buffer.putShort((short) tag).putShort(type);
+        if (big) {
+            buffer.putLong(count);
+            buffer.putLong(value);
+        } else {
+            buffer.putInt((int) count);
+            // A single short is stored in the first two bytes of the entry
+            if (type == SHORT && count == 1) buffer.putShort((short) value).putShort((short) 0);
+            else buffer.putInt((int) value);
+        }
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) out.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,93 @@
+package com.amr.raytracer.rendering.animation;
+
+import com.amr.raytracer.math.Vector3D;
+import com.amr.raytracer.objects.Object3D;
+import com.amr.raytracer.rendering.Scene;
+import com.amr.raytracer.rendering.cameras.Camera;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static java.lang.Math.toRadians;
+
+/**
+ * The {@code Animation} class describes how the {@code Camera} and the objects of a {@code Scene} move over time as a
+ * set of keyframes. Between two keyframes the position and the rotation are interpolated linearly.<br>
+ * Applying an {@code Animation} only changes the pose of the {@code Camera} and the position of the animated objects
+ * of the {@code Scene}; everything else, such as the meshes, the materials and the acceleration structures, is kept
+ * between frames.
+ *
+ * @author Ángel Martínez
+ * @see SequenceRenderer
+ */
+public class Animation {
+
+    private final Track cameraTrack = new Track();
+    private final IdentityHashMap<Object3D, Track> objectTracks = new IdentityHashMap<>();
+
+    /**
+     * Adds a keyframe for the {@code Camera} of the {@code Scene} at the given time.
+     *
+     * @param time         the time in seconds.
+     * @param position     the position of the camera.
+     * @param yawDegrees   the rotation angle in degrees in the y-axis.
+     * @param pitchDegrees the rotation angle in degrees in the x-axis.
+     * @throws IllegalArgumentException if the time is negative.
+     * @see Camera
+     */
+    public void addCameraKeyframe(double time, Vector3D position, double yawDegrees, double pitchDegrees) {
+        checkTime(time);
+        cameraTrack.put(time, position.getX(), position.getY(), position.getZ(), yawDegrees, pitchDegrees);
+    }
+
+    /**
+     * Adds a keyframe for the given {@code Object3D} at the given time.
+     *
+     * @param object   the {@code Object3D} to move.
+     * @param time     the time in seconds.
+     * @param position the position of the object.
+     * @throws IllegalArgumentException if the time is negative.
+     * @see Object3D#setPosition(Vector3D)
+     */
+    public void addObjectKeyframe(Object3D object, double time, Vector3D position) {
+        checkTime(time);
+        objectTracks.computeIfAbsent(object, o -> new Track())
+                .put(time, position.getX(), position.getY(), position.getZ());
+    }
+
+    /**
+     * Returns the time of the last keyframe of this {@code Animation}.
+     *
+     * @return the duration in seconds.
+     */
+    public double getDuration() {
+        double duration = cameraTrack.getEndTime();
+        for (Track track : objectTracks.values()) duration = Math.max(duration, track.getEndTime());
+        return duration;
+    }
+
+    /**
+     * Moves the {@code Camera} and the animated objects of the given {@code Scene} to where they are at the given
+     * time. Objects without keyframes are left where they are.
+     *
+     * @param scene the {@code Scene}.
+     * @param time  the time in seconds.
+     */
+    public void apply(Scene scene, double time) {
+        Camera camera = scene.getCamera();
+        if (camera != null && !cameraTrack.isEmpty()) {
+            double[] values = cameraTrack.getValues(time);
+            camera.setPosition(new Vector3D(values[0], values[1], values[2]));
+            camera.setYawRadians(toRadians(values[3]));
+            camera.setPitchRadians(toRadians(values[4]));
+        }
+        for (Map.Entry<Object3D, Track> entry : objectTracks.entrySet()) {
+            double[] values = entry.getValue().getValues(time);
+            entry.getKey().setPosition(new Vector3D(values[0], values[1], values[2]));
+        }
+    }
+
+    private static void checkTime(double time) {
+        if (!(time >= 0)) throw new IllegalArgumentException("The time of a keyframe cannot be negative.");
+    }
+}
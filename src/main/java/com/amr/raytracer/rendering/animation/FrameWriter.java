@@ -0,0 +1,41 @@
+package com.amr.raytracer.rendering.animation;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The {@code FrameWriter} interface receives the frames of a sequence once they are rendered, in order and on a
+ * single thread, while the next frames are being rendered.
+ *
+ * @author Ángel Martínez
+ * @see SequenceRenderer
+ */
+@FunctionalInterface
+public interface FrameWriter {
+
+    /**
+     * Writes the given frame.
+     *
+     * @param frame the index of the frame, starting at {@code 0}.
+     * @param image the render of the frame.
+     * @throws IOException if the frame could not be written.
+     */
+    void write(int frame, BufferedImage image) throws IOException;
+
+    /**
+     * Returns a {@code FrameWriter} that saves every frame as a PNG in the given folder, named with the given prefix
+     * followed by the index of the frame, such as {@code prefix0007.png}.
+     *
+     * @param folder the folder to save the frames in.
+     * @param prefix the prefix of the file names.
+     * @return a {@code FrameWriter} that saves PNG files.
+     */
+    static FrameWriter png(File folder, String prefix) {
+        return (frame, image) -> {
+            File file = new File(folder, String.format("%s%04d.png", prefix, frame));
+            ImageIO.write(image, "png", file);
+        };
+    }
+}
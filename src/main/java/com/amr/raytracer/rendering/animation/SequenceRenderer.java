@@ -0,0 +1,114 @@
+package com.amr.raytracer.rendering.animation;
+
+import com.amr.raytracer.rendering.RenderEngine;
+import com.amr.raytracer.rendering.RenderSettings;
+import com.amr.raytracer.rendering.Scene;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The {@code SequenceRenderer} class renders the frames of an {@code Animation} of a {@code Scene}. The same
+ * {@code Scene} is rendered for every frame after moving its {@code Camera} and objects, so the meshes, materials and
+ * acceleration structures are kept between frames, and the {@code SceneBVH} is only refitted to the objects that moved.
+ * <br>
+ * Frames are rendered and written in a pipeline: while a frame is being written on a separate thread, the next one is
+ * already being rendered. At most {@code PIPELINE_DEPTH} rendered frames wait to be written at any time, so a slow
+ * {@code FrameWriter} slows the sequence down instead of holding every frame in memory.
+ *
+ * @author Ángel Martínez
+ * @see Animation
+ * @see FrameWriter
+ * @see SequenceStatistics
+ */
+public final class SequenceRenderer {
+
+    /**
+     * The maximum number of rendered frames waiting to be written.
+     */
+    private static final int PIPELINE_DEPTH = 2;
+
+    private SequenceRenderer() {
+    }
+
+    /**
+     * Renders the given {@code Animation} of the given {@code Scene} at the given frame rate, from time {@code 0} to
+     * its duration, and passes every frame to the given {@code FrameWriter}.
+     *
+     * @param scene           the {@code Scene} to render.
+     * @param animation       the {@code Animation} of the scene.
+     * @param framesPerSecond the number of frames per second of animation.
+     * @param resolution      the vertical resolution in pixels.
+     * @param aspectRatio     the aspect ratio.
+     * @param writer          the {@code FrameWriter} of the frames.
+     * @return the {@code SequenceStatistics} of the sequence.
+     * @throws IllegalArgumentException if the frame rate is not positive.
+     */
+    public static SequenceStatistics render(Scene scene, Animation animation, double framesPerSecond, int resolution,
+                                            double aspectRatio, FrameWriter writer) {
+        return render(scene, animation, framesPerSecond, resolution, aspectRatio, new RenderSettings(), writer);
+    }
+
+    /**
+     * Renders the given {@code Animation} of the given {@code Scene} at the given frame rate, from time {@code 0} to
+     * its duration, using the given {@code RenderSettings}, and passes every frame to the given {@code FrameWriter}.
+     * Frames that cannot be written are reported and skipped.
+     *
+     * @param scene           the {@code Scene} to render.
+     * @param animation       the {@code Animation} of the scene.
+     * @param framesPerSecond the number of frames per second of animation.
+     * @param resolution      the vertical resolution in pixels.
+     * @param aspectRatio     the aspect ratio.
+     * @param settings        the {@code RenderSettings}.
+     * @param writer          the {@code FrameWriter} of the frames.
+     * @return the {@code SequenceStatistics} of the sequence.
+     * @throws IllegalArgumentException if the frame rate is not positive.
+     * @throws CompletionException      if the {@code FrameWriter} fails with an unchecked exception.
+     */
+    public static SequenceStatistics render(Scene scene, Animation animation, double framesPerSecond, int resolution,
+                                            double aspectRatio, RenderSettings settings, FrameWriter writer) {
+        if (!(framesPerSecond > 0)) throw new IllegalArgumentException("The frame rate must be positive.");
+        int frameCount = (int) Math.floor(animation.getDuration() * framesPerSecond) + 1;
+        SequenceStatistics statistics = new SequenceStatistics();
+        ExecutorService writerThread = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SequenceRenderer-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<CompletableFuture<Void>> pendingFrames = new ArrayDeque<>();
+        long start = System.nanoTime();
+        try {
+            for (int frame = 0; frame < frameCount; frame++) {
+                animation.apply(scene, frame / framesPerSecond);
+                long renderStart = System.nanoTime();
+                BufferedImage image = RenderEngine.render(scene, resolution, aspectRatio, settings,
+                        statistics.getRenderStatistics());
+                statistics.addRenderNanos(System.nanoTime() - renderStart);
+                if (pendingFrames.size() >= PIPELINE_DEPTH) pendingFrames.poll().join();
+                int index = frame;
+                pendingFrames.add(CompletableFuture.runAsync(() -> write(writer, index, image, statistics),
+                        writerThread));
+            }
+            while (!pendingFrames.isEmpty()) pendingFrames.poll().join();
+        } finally {
+            writerThread.shutdown();
+        }
+        statistics.setElapsedNanos(System.nanoTime() - start);
+        return statistics;
+    }
+
+    private static void write(FrameWriter writer, int frame, BufferedImage image, SequenceStatistics statistics) {
+        long start = System.nanoTime();
+        try {
+            writer.write(frame, image);
+            statistics.addFrame(System.nanoTime() - start);
+        } catch (IOException e) {
+            System.err.println("There was an error writing frame " + frame + "." + e);
+        }
+    }
+}
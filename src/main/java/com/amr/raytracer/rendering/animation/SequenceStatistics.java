@@ -0,0 +1,109 @@
+package com.amr.raytracer.rendering.animation;
+
+import com.amr.raytracer.rendering.RenderStatistics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code SequenceStatistics} class collects the throughput of the rendering of a sequence: the number of frames,
+ * the time spent rendering and writing them, and the wall-clock time of the whole sequence. Since frames are written
+ * while the next ones are rendered, the elapsed time is usually less than the sum of both. The work done by the
+ * {@code RenderEngine} during every frame is recorded in a single {@code RenderStatistics}.
+ *
+ * @author Ángel Martínez
+ * @see SequenceRenderer
+ * @see RenderStatistics
+ */
+public class SequenceStatistics {
+
+    private final RenderStatistics renderStatistics = new RenderStatistics();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder renderNanos = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private volatile long elapsedNanos;
+
+    /**
+     * Returns the {@code RenderStatistics} of all the frames.
+     *
+     * @return the {@code RenderStatistics} of all the frames.
+     */
+    public RenderStatistics getRenderStatistics() {
+        return renderStatistics;
+    }
+
+    /**
+     * Returns the number of frames rendered and written.
+     *
+     * @return the number of frames.
+     */
+    public long getFrames() {
+        return frames.sum();
+    }
+
+    /**
+     * Returns the time spent rendering frames, in nanoseconds.
+     *
+     * @return the render time in nanoseconds.
+     */
+    public long getRenderNanos() {
+        return renderNanos.sum();
+    }
+
+    /**
+     * Returns the time spent writing frames, in nanoseconds.
+     *
+     * @return the write time in nanoseconds.
+     */
+    public long getWriteNanos() {
+        return writeNanos.sum();
+    }
+
+    /**
+     * Returns the wall-clock time of the whole sequence, in nanoseconds.
+     *
+     * @return the elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the number of frames completed per minute of wall-clock time.
+     *
+     * @return the throughput in frames per minute.
+     */
+    public double getFramesPerMinute() {
+        long elapsedNanos = getElapsedNanos();
+        return elapsedNanos == 0 ? 0 : getFrames() * 60e9 / elapsedNanos;
+    }
+
+    void addRenderNanos(long nanos) {
+        renderNanos.add(nanos);
+    }
+
+    void addFrame(long writeNanos) {
+        this.writeNanos.add(writeNanos);
+        frames.increment();
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns a string representation of this {@code SequenceStatistics}.
+     *
+     * @return a string representation of this {@code SequenceStatistics}.
+     */
+    @Override
+    public String toString() {
+        long frames = Math.max(1, getFrames());
+        return "SequenceStatistics{" +
+                "frames=" + getFrames() +
+                ", framesPerMinute=" + String.format("%.1f", getFramesPerMinute()) +
+                ", renderMsPerFrame=" + String.format("%.1f", getRenderNanos() / 1e6 / frames) +
+                ", writeMsPerFrame=" + String.format("%.1f", getWriteNanos() / 1e6 / frames) +
+                ", elapsedMs=" + String.format("%.1f", getElapsedNanos() / 1e6) +
+                '}';
+    }
+}
@@ -0,0 +1,63 @@
+package com.amr.raytracer.rendering.animation;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The {@code Track} class holds the keyframes of a set of values over time. The values between two keyframes are
+ * interpolated linearly, and before the first or after the last keyframe they stay at the values of that keyframe.
+ *
+ * @author Ángel Martínez
+ * @see Animation
+ */
+final class Track {
+
+    private final TreeMap<Double, double[]> keyframes = new TreeMap<>();
+
+    /**
+     * Sets the values at the given time, replacing the keyframe at that time if there is one.
+     *
+     * @param time   the time in seconds.
+     * @param values the values at that time.
+     */
+    void put(double time, double... values) {
+        keyframes.put(time, values.clone());
+    }
+
+    /**
+     * Returns whether this {@code Track} has no keyframes.
+     *
+     * @return {@code true} if this {@code Track} has no keyframes.
+     */
+    boolean isEmpty() {
+        return keyframes.isEmpty();
+    }
+
+    /**
+     * Returns the time of the last keyframe, or {@code 0} if there is none.
+     *
+     * @return the time of the last keyframe in seconds.
+     */
+    double getEndTime() {
+        return keyframes.isEmpty() ? 0 : keyframes.lastKey();
+    }
+
+    /**
+     * Returns the values at the given time, interpolated between the keyframes around it.
+     *
+     * @param time the time in seconds.
+     * @return the values at that time.
+     */
+    double[] getValues(double time) {
+        Map.Entry<Double, double[]> before = keyframes.floorEntry(time);
+        Map.Entry<Double, double[]> after = keyframes.ceilingEntry(time);
+        if (before == null) return after.getValue().clone();
+        if (after == null || after.getKey().equals(before.getKey())) return before.getValue().clone();
+        double t = (time - before.getKey()) / (after.getKey() - before.getKey());
+        double[] from = before.getValue();
+        double[] to = after.getValue();
+        double[] values = new double[from.length];
+        for (int i = 0; i < values.length; i++) values[i] = from[i] + (to[i] - from[i]) * t;
+        return values;
+    }
+}
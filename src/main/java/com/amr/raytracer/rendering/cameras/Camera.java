@@ -50,7 +50,7 @@ public abstract class Camera {
      * @param position the new position in space.
      * @see #getPosition()
      */
-    private void setPosition(Vector3D position) {
+    public void setPosition(Vector3D position) {
         this.position = position;
     }
 
@@ -58,7 +58,13 @@ public abstract class Camera {
         return yawRadians;
     }
 
-    private void setYawRadians(double yawRadians) {
+    /**
+     * Sets the rotation angle in radians of this {@code Camera} around the vertical axis.
+     *
+     * @param yawRadians the new rotation angle in radians.
+     * @see #getYawRadians()
+     */
+    public void setYawRadians(double yawRadians) {
         this.yawRadians = yawRadians;
     }
 
@@ -66,7 +72,13 @@ public abstract class Camera {
         return pitchRadians;
     }
 
-    private void setPitchRadians(double pitchRadians) {
+    /**
+     * Sets the rotation angle in radians of this {@code Camera} around the horizontal axis.
+     *
+     * @param pitchRadians the new rotation angle in radians.
+     * @see #getPitchRadians()
+     */
+    public void setPitchRadians(double pitchRadians) {
         this.pitchRadians = pitchRadians;
     }
 
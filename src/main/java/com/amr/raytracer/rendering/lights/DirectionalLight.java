@@ -32,6 +32,21 @@ public class DirectionalLight extends Light {
         this.direction = magnitude(direction) == 1 ? direction : normalize(direction);
     }
 
+    /**
+     * Returns {@code Double.POSITIVE_INFINITY} since a {@code DirectionalLight} does not fall off with distance.
+     *
+     * @return {@code Double.POSITIVE_INFINITY}.
+     */
+    @Override
+    public double getInfluenceRadius() {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public double getDistance(Vector3D point) {
+        return Double.POSITIVE_INFINITY;
+    }
+
     @Override
     public Color getColor(Vector3D point) {
         Color color = getColor();
@@ -6,7 +6,10 @@ import java.awt.*;
 
 /**
  * The abstract class {@code Light} represents a generic light source in space. This class can be used to extend
- * functionality to other more specific types of light sources.
+ * functionality to other more specific types of light sources.<br>
+ * Every light has a cutoff threshold: the fraction of full white below which its color is considered negligible. From
+ * it and the intensity, each type of light derives an influence radius outside of which it does not contribute at all,
+ * so points beyond it are not shaded nor tested for shadows.
  *
  * @author Ángel Martínez
  */
@@ -14,6 +17,7 @@ public abstract class Light {
 
     private Color color;
     private double intensity;
+    private double cutoff;
 
     /**
      * Constructs a {@code Light} object with the given {@code Color} and intensity.
@@ -25,6 +29,7 @@ public abstract class Light {
     public Light(Color color, double intensity) {
         setColor(color);
         setIntensity(intensity);
+        setCutoff(0);
     }
 
     /**
@@ -67,6 +72,45 @@ public abstract class Light {
         this.intensity = intensity;
     }
 
+    /**
+     * Returns the cutoff threshold of this {@code Light}.
+     *
+     * @return the cutoff threshold of this {@code Light}.
+     * @see #setCutoff(double)
+     */
+    public double getCutoff() {
+        return cutoff;
+    }
+
+    /**
+     * Sets the cutoff threshold of this {@code Light}: the fraction of full white, from {@code 0} to {@code 1}, below
+     * which its color at a point is considered negligible. A cutoff of {@code 0}, the default, means that the light
+     * influences the whole scene.
+     *
+     * @param cutoff the cutoff threshold.
+     * @see #getInfluenceRadius()
+     */
+    public void setCutoff(double cutoff) {
+        this.cutoff = cutoff;
+    }
+
+    /**
+     * Returns the distance from this {@code Light} beyond which its contribution falls below its cutoff threshold.
+     *
+     * @return the influence radius of this {@code Light}, or {@code Double.POSITIVE_INFINITY} if it is unbounded.
+     * @see #setCutoff(double)
+     */
+    public abstract double getInfluenceRadius();
+
+    /**
+     * Calculates and returns the distance from the given point in space to this {@code Light}.
+     *
+     * @param point the point in space.
+     * @return the distance to this {@code Light}, or {@code Double.POSITIVE_INFINITY} if it has no position.
+     * @see Vector3D
+     */
+    public abstract double getDistance(Vector3D point);
+
     /**
      * Calculates and returns the {@code Color} of this {@code Light} regarding its intensity and the given point
      * in space.
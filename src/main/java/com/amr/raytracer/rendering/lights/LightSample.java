@@ -0,0 +1,43 @@
+package com.amr.raytracer.rendering.lights;
+
+/**
+ * The {@code LightSample} class represents a {@code Light} chosen stochastically by a {@code LightTree} together with
+ * the probability it had of being chosen.
+ *
+ * @author Ángel Martínez
+ * @see LightTree
+ */
+public class LightSample {
+
+    private final Light light;
+    private final double pdf;
+
+    /**
+     * Constructs a {@code LightSample} object with the given {@code Light} and probability.
+     *
+     * @param light the chosen {@code Light}.
+     * @param pdf   the probability of choosing the {@code Light}.
+     */
+    public LightSample(Light light, double pdf) {
+        this.light = light;
+        this.pdf = pdf;
+    }
+
+    /**
+     * Returns the chosen {@code Light}.
+     *
+     * @return the chosen {@code Light}.
+     */
+    public Light getLight() {
+        return light;
+    }
+
+    /**
+     * Returns the probability of choosing the {@code Light} of this {@code LightSample}.
+     *
+     * @return the probability of choosing the {@code Light}.
+     */
+    public double getPdf() {
+        return pdf;
+    }
+}
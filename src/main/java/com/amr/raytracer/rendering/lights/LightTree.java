@@ -0,0 +1,141 @@
+package com.amr.raytracer.rendering.lights;
+
+import com.amr.raytracer.math.Vector3D;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The {@code LightTree} class is a bounding volume hierarchy built from the positions and intensities of a set of
+ * {@code PointLight} objects. It is used to choose stochastically the lights that are most important for a point in
+ * space, so scenes with thousands of lights can be shaded with only a few shadow rays per hit.<br>
+ * The importance of a node regarding a point is its total power divided by the squared distance from the point to the
+ * node, and the probability of descending into a child is proportional to its importance. The probability of the
+ * chosen light is returned with it so its contribution can be weighted without bias.
+ *
+ * @author Ángel Martínez
+ * @see PointLight
+ * @see LightSample
+ */
+public class LightTree {
+
+    private final Node root;
+
+    /**
+     * Constructs a {@code LightTree} object from the given point lights.
+     *
+     * @param lights the point lights.
+     */
+    public LightTree(List<PointLight> lights) {
+        root = lights.isEmpty() ? null : build(new ArrayList<>(lights));
+    }
+
+    /**
+     * Returns whether this {@code LightTree} contains no lights.
+     *
+     * @return {@code true} if this {@code LightTree} contains no lights.
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Chooses a light regarding its importance for the given point in space using the given random number.
+     *
+     * @param point the point in space.
+     * @param u     a uniformly distributed random number in {@code [0, 1)}.
+     * @return the chosen light and its probability, or {@code null} if this tree is empty or no light has any
+     * importance for the given point.
+     * @see LightSample
+     */
+    public LightSample sample(Vector3D point, double u) {
+        if (root == null) return null;
+        Node node = root;
+        double pdf = 1;
+        while (node.light == null) {
+            double left = node.left.getImportance(point);
+            double right = node.right.getImportance(point);
+            double total = left + right;
+            if (total <= 0) return null;
+            double pLeft = left / total;
+            if (u < pLeft) {
+                u = u / pLeft;
+                pdf *= pLeft;
+                node = node.left;
+            } else {
+                u = (u - pLeft) / (1 - pLeft);
+                pdf *= 1 - pLeft;
+                node = node.right;
+            }
+            // Guard against rounding pushing the rescaled number out of range
+            u = Math.min(u, Math.nextDown(1.0));
+        }
+        return new LightSample(node.light, pdf);
+    }
+
+    private static Node build(List<PointLight> lights) {
+        Node node = new Node();
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (PointLight light : lights) {
+            Vector3D p = light.getPosition();
+            minX = Math.min(minX, p.getX());
+            minY = Math.min(minY, p.getY());
+            minZ = Math.min(minZ, p.getZ());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+            maxZ = Math.max(maxZ, p.getZ());
+            node.power += getPower(light);
+        }
+        node.center = new Vector3D((minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2);
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        node.radius2 = (dx * dx + dy * dy + dz * dz) / 4;
+
+        if (lights.size() == 1) {
+            node.light = lights.get(0);
+            return node;
+        }
+
+        // Split at the median of the longest axis
+        Comparator<PointLight> comparator;
+        if (dx >= dy && dx >= dz) comparator = Comparator.comparingDouble(l -> l.getPosition().getX());
+        else if (dy >= dz) comparator = Comparator.comparingDouble(l -> l.getPosition().getY());
+        else comparator = Comparator.comparingDouble(l -> l.getPosition().getZ());
+        lights.sort(comparator);
+        int middle = lights.size() / 2;
+        node.left = build(lights.subList(0, middle));
+        node.right = build(lights.subList(middle, lights.size()));
+        return node;
+    }
+
+    /**
+     * Returns the power of the given light, which is its intensity scaled by the average of its color channels.
+     *
+     * @param light the light.
+     * @return the power of the given light.
+     */
+    private static double getPower(Light light) {
+        Color color = light.getColor();
+        return light.getIntensity() * (color.getRed() + color.getGreen() + color.getBlue()) / (3 * 255.0);
+    }
+
+    private static class Node {
+        Vector3D center;
+        double radius2;
+        double power;
+        Node left;
+        Node right;
+        PointLight light;
+
+        double getImportance(Vector3D point) {
+            double dx = point.getX() - center.getX();
+            double dy = point.getY() - center.getY();
+            double dz = point.getZ() - center.getZ();
+            // Points inside the bounds of the node are not favored over its closest edge
+            double distance2 = Math.max(dx * dx + dy * dy + dz * dz, radius2);
+            return power / Math.max(distance2, 1e-6);
+        }
+    }
+}
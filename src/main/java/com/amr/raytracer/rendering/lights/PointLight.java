@@ -7,8 +7,7 @@ import com.amr.raytracer.rendering.Scene;
 import java.awt.*;
 
 import static com.amr.raytracer.math.Vector3D.*;
-import static java.lang.Math.PI;
-import static java.lang.Math.pow;
+import static java.lang.Math.*;
 
 /**
  * The {@code PointLight} class represents a light source in space with a particular position, but it illuminates in
@@ -35,6 +34,26 @@ public class PointLight extends Light {
         this.position = position;
     }
 
+    /**
+     * Returns the distance at which the inverse-square falloff of this {@code PointLight} makes its strongest color
+     * channel fall below the cutoff threshold.
+     *
+     * @return the influence radius of this {@code PointLight}.
+     */
+    @Override
+    public double getInfluenceRadius() {
+        double cutoff = getCutoff();
+        if (cutoff <= 0) return Double.POSITIVE_INFINITY;
+        Color color = getColor();
+        double strongest = max(color.getRed(), max(color.getGreen(), color.getBlue())) / 255.0;
+        return sqrt(strongest * getIntensity() / (4 * PI * cutoff));
+    }
+
+    @Override
+    public double getDistance(Vector3D point) {
+        return magnitude(subtract(getPosition(), point));
+    }
+
     @Override
     public Color getColor(Vector3D point) {
         double r2 = pow(magnitude(subtract(getPosition(), point)), 2);
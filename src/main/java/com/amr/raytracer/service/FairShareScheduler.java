@@ -0,0 +1,115 @@
+package com.amr.raytracer.service;
+
+import com.amr.raytracer.rendering.Tile;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * The {@code FairShareScheduler} class decides which tile the CPU threads of a {@code RenderService} render next. It
+ * keeps a pass for every job with tiles left, which advances by the time spent rendering its tiles divided by the
+ * weight of its priority, and always hands out a tile of the job with the lowest pass. So the jobs share the
+ * processors in proportion to their weights however expensive their tiles are. A job that arrives starts at the pass
+ * of the jobs being rendered, so it neither waits for them nor takes over until it catches up.<br>
+ * The deadlines of the jobs are checked every time a tile is handed out. A job whose deadline passed gets no more
+ * tiles, and it is finished as soon as its tiles being rendered are done.
+ *
+ * @author Ángel Martínez
+ * @see RenderPriority
+ * @see RenderService
+ */
+final class FairShareScheduler {
+
+    private final ArrayList<RenderJob> jobs = new ArrayList<>();
+    private double virtualTime;
+    private boolean closed;
+
+    /**
+     * Adds the given job, whose tiles are prepared, to the jobs being rendered, unless it was cancelled meanwhile.
+     */
+    synchronized void add(RenderJob job) {
+        if (job.getState() != RenderJob.State.RENDERING || job.getPendingTiles().isEmpty()) return;
+        job.setPass(virtualTime);
+        jobs.add(job);
+        notifyAll();
+    }
+
+    /**
+     * Drops the tiles of the given job that have not been handed out.
+     */
+    synchronized void remove(RenderJob job) {
+        jobs.remove(job);
+    }
+
+    /**
+     * Waits for a tile to render and returns it with its job, or returns {@code null} once the scheduler is closed.
+     * The tile is {@code null} if the deadline of the job passed and the job has no tiles being rendered, so the
+     * caller must finish it.
+     */
+    synchronized Assignment take() throws InterruptedException {
+        while (!closed) {
+            RenderJob next = null;
+            for (Iterator<RenderJob> iterator = jobs.iterator(); iterator.hasNext(); ) {
+                RenderJob job = iterator.next();
+                if (job.isExpired()) {
+                    iterator.remove();
+                    job.setStopped(true);
+                    if (job.getInFlightTiles() == 0) return new Assignment(job, null);
+                    continue;
+                }
+                if (next == null || job.getPass() < next.getPass()) next = job;
+            }
+            if (next == null) {
+                wait();
+                continue;
+            }
+            virtualTime = next.getPass();
+            Tile tile = next.getPendingTiles().poll();
+            if (next.getPendingTiles().isEmpty()) jobs.remove(next);
+            next.setInFlightTiles(next.getInFlightTiles() + 1);
+            return new Assignment(next, tile);
+        }
+        return null;
+    }
+
+    /**
+     * Charges the given time spent rendering a tile to the pass of the given job, and returns whether it was the last
+     * tile of the job being rendered and the job gets no more tiles, so the caller must finish it.
+     */
+    synchronized boolean complete(RenderJob job, long nanos) {
+        job.setPass(job.getPass() + (double) nanos / job.getRequest().getPriority().getWeight());
+        job.setInFlightTiles(job.getInFlightTiles() - 1);
+        return job.getInFlightTiles() == 0 && (job.isStopped() || job.getPendingTiles().isEmpty());
+    }
+
+    /**
+     * Wakes up every thread waiting for tiles so they stop.
+     */
+    synchronized void close() {
+        closed = true;
+        jobs.clear();
+        notifyAll();
+    }
+
+    /**
+     * A tile handed out to a CPU thread.
+     */
+    static final class Assignment {
+
+        private final RenderJob job;
+        private final Tile tile;
+
+        private Assignment(RenderJob job, Tile tile) {
+            this.job = job;
+            this.tile = tile;
+        }
+
+        RenderJob getJob() {
+            return job;
+        }
+
+        Tile getTile() {
+            return tile;
+        }
+    }
+}
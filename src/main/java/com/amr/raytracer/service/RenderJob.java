@@ -0,0 +1,223 @@
+package com.amr.raytracer.service;
+
+import com.amr.raytracer.rendering.CancellationToken;
+import com.amr.raytracer.rendering.Framebuffer;
+import com.amr.raytracer.rendering.RenderStatistics;
+import com.amr.raytracer.rendering.Tile;
+import com.amr.raytracer.rendering.TileRenderer;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code RenderJob} class is the handle of a {@code RenderRequest} submitted to a {@code RenderService}. It goes
+ * through the states of {@code State} and its result is the encoded image, which completes exceptionally if the job
+ * fails or is cancelled. If the request has a timeout, its deadline is checked before every tile is started, and once
+ * it passes the job completes with the tiles rendered so far.
+ *
+ * @author Ángel Martínez
+ * @see RenderService#submit(RenderRequest)
+ */
+public class RenderJob {
+
+    /**
+     * The states of a {@code RenderJob}.
+     */
+    public enum State {
+        /**
+         * The {@code Scene} is being loaded on an I/O thread.
+         */
+        LOADING,
+        /**
+         * The tiles are being rendered on the CPU threads.
+         */
+        RENDERING,
+        /**
+         * The image is being encoded on an I/O thread.
+         */
+        ENCODING,
+        /**
+         * The encoded image is ready.
+         */
+        DONE,
+        /**
+         * The job could not be completed.
+         */
+        FAILED,
+        /**
+         * The job was cancelled.
+         */
+        CANCELLED,
+        /**
+         * The deadline of the job passed before every tile was rendered. The encoded image is the partial image, where
+         * the pixels that were not rendered are black, and the {@code Framebuffer} tells which pixels were rendered.
+         */
+        TIMED_OUT
+    }
+
+    private final RenderService service;
+    private final RenderRequest request;
+    private final RenderStatistics statistics = new RenderStatistics();
+    private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+    private final CancellationToken deadline;
+    private final long submitNanos = System.nanoTime();
+    private volatile State state = State.LOADING;
+    private volatile long finishNanos;
+    private volatile int tileCount;
+    private final AtomicInteger renderedTiles = new AtomicInteger();
+
+    // Scheduling state, guarded by the scheduler of the service
+    private final ArrayDeque<Tile> pendingTiles = new ArrayDeque<>();
+    private TileRenderer renderer;
+    private volatile Framebuffer framebuffer;
+    private double pass;
+    private int inFlightTiles;
+    private boolean stopped;
+
+    RenderJob(RenderService service, RenderRequest request) {
+        this.service = service;
+        this.request = request;
+        this.deadline = request.getTimeout() == null ? new CancellationToken()
+                : new CancellationToken(request.getTimeout());
+    }
+
+    public RenderRequest getRequest() {
+        return request;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the {@code RenderStatistics} of the render of this job.
+     *
+     * @return the {@code RenderStatistics} of this job.
+     */
+    public RenderStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns the encoded image, once it is ready.
+     *
+     * @return a {@code CompletableFuture} of the encoded image.
+     */
+    public CompletableFuture<byte[]> getResult() {
+        return result;
+    }
+
+    /**
+     * Returns the {@code Framebuffer} the tiles of this job are rendered into, whose coverage mask tells which pixels
+     * are rendered, or {@code null} if the {@code Scene} is still being loaded. Once the job is {@code TIMED_OUT}, it
+     * holds the partial image.
+     *
+     * @return the {@code Framebuffer} of this job.
+     */
+    public Framebuffer getFramebuffer() {
+        return framebuffer;
+    }
+
+    /**
+     * Returns the fraction of the tiles of the image that are rendered.
+     *
+     * @return the progress, from {@code 0} to {@code 1}.
+     */
+    public double getProgress() {
+        int tileCount = this.tileCount;
+        return tileCount == 0 ? 0 : (double) renderedTiles.get() / tileCount;
+    }
+
+    /**
+     * Returns the time from the submission of this job until it finished, or until now if it has not finished yet,
+     * in nanoseconds.
+     *
+     * @return the latency of this job in nanoseconds.
+     */
+    public long getLatencyNanos() {
+        long finishNanos = this.finishNanos;
+        return (finishNanos == 0 ? System.nanoTime() : finishNanos) - submitNanos;
+    }
+
+    /**
+     * Cancels this job. Its tiles that are not being rendered are dropped, and its result completes with a
+     * {@code CancellationException}.
+     *
+     * @return {@code true} if the job was cancelled, or {@code false} if it had already finished.
+     */
+    public boolean cancel() {
+        return service.cancel(this);
+    }
+
+    /**
+     * Moves this job to the given state, unless it has already finished. Returns whether it moved.
+     */
+    synchronized boolean moveTo(State next) {
+        if (isFinished(state)) return false;
+        state = next;
+        if (isFinished(next)) finishNanos = System.nanoTime();
+        return true;
+    }
+
+    private static boolean isFinished(State state) {
+        return state == State.DONE || state == State.FAILED || state == State.CANCELLED || state == State.TIMED_OUT;
+    }
+
+    /**
+     * Prepares the tiles of this job for rendering with the given {@code TileRenderer}.
+     */
+    void prepare(TileRenderer renderer) {
+        this.renderer = renderer;
+        this.framebuffer = new Framebuffer(renderer.getWidth(), renderer.getHeight());
+        this.pendingTiles.addAll(renderer.getTiles());
+        this.tileCount = pendingTiles.size();
+    }
+
+    /**
+     * Records a rendered tile.
+     */
+    void completeTile() {
+        renderedTiles.incrementAndGet();
+    }
+
+    /**
+     * Returns whether the deadline of this job passed.
+     */
+    boolean isExpired() {
+        return deadline.isExpired();
+    }
+
+    ArrayDeque<Tile> getPendingTiles() {
+        return pendingTiles;
+    }
+
+    TileRenderer getRenderer() {
+        return renderer;
+    }
+
+
+    double getPass() {
+        return pass;
+    }
+
+    void setPass(double pass) {
+        this.pass = pass;
+    }
+
+    int getInFlightTiles() {
+        return inFlightTiles;
+    }
+
+    void setInFlightTiles(int inFlightTiles) {
+        this.inFlightTiles = inFlightTiles;
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    void setStopped(boolean stopped) {
+        this.stopped = stopped;
+    }
+}
@@ -0,0 +1,42 @@
+package com.amr.raytracer.service;
+
+/**
+ * The {@code RenderPriority} enum lists the priorities of the jobs of a {@code RenderService}. The processors are
+ * shared between the jobs being rendered in proportion to the weight of their priority, so a job with a higher
+ * priority renders faster without stopping the others.
+ *
+ * @author Ángel Martínez
+ * @see RenderService
+ */
+public enum RenderPriority {
+
+    /**
+     * For background jobs, which get a quarter of the share of a normal job.
+     */
+    LOW(1),
+
+    /**
+     * The default priority.
+     */
+    NORMAL(4),
+
+    /**
+     * For interactive jobs, which get four times the share of a normal job.
+     */
+    HIGH(16);
+
+    private final int weight;
+
+    RenderPriority(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * Returns the share of the processors of a job with this priority, relative to the other jobs.
+     *
+     * @return the weight of this priority.
+     */
+    int getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,116 @@
+package com.amr.raytracer.service;
+
+import com.amr.raytracer.rendering.RenderSettings;
+import com.amr.raytracer.rendering.Scene;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * The {@code RenderRequest} class describes a render to submit to a {@code RenderService}: how to build the
+ * {@code Scene}, the dimensions of the image, the {@code RenderSettings}, the {@code RenderPriority} of the job, the
+ * format the image is encoded in and an optional timeout.
+ *
+ * @author Ángel Martínez
+ * @see RenderService#submit(RenderRequest)
+ */
+public class RenderRequest {
+
+    private final Supplier<Scene> sceneLoader;
+    private final int resolution;
+    private final double aspectRatio;
+    private RenderSettings settings;
+    private RenderPriority priority;
+    private String imageFormat;
+    private Duration timeout;
+
+    /**
+     * Constructs a {@code RenderRequest} object for the {@code Scene} built by the given loader, with the default
+     * {@code RenderSettings}, a normal priority, PNG encoding and no timeout. The loader runs on the I/O threads of the
+     * service, so it can read files, such as with the {@code SceneReader}; it may return {@code null} if the scene
+     * could not be built.
+     *
+     * @param sceneLoader the function that builds the {@code Scene}.
+     * @param resolution  the vertical resolution in pixels.
+     * @param aspectRatio the aspect ratio.
+     * @see com.amr.raytracer.tools.SceneReader
+     */
+    public RenderRequest(Supplier<Scene> sceneLoader, int resolution, double aspectRatio) {
+        if (sceneLoader == null) throw new IllegalArgumentException("The scene loader cannot be null.");
+        this.sceneLoader = sceneLoader;
+        this.resolution = resolution;
+        this.aspectRatio = aspectRatio;
+        setSettings(new RenderSettings());
+        setPriority(RenderPriority.NORMAL);
+        setImageFormat("png");
+    }
+
+    public Supplier<Scene> getSceneLoader() {
+        return sceneLoader;
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    public double getAspectRatio() {
+        return aspectRatio;
+    }
+
+    public RenderSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Sets the {@code RenderSettings} of the render. The number of threads is ignored, since the threads of the
+     * service are shared by every job.
+     *
+     * @param settings the {@code RenderSettings}.
+     */
+    public void setSettings(RenderSettings settings) {
+        if (settings == null) throw new IllegalArgumentException("The settings cannot be null.");
+        this.settings = settings;
+    }
+
+    public RenderPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(RenderPriority priority) {
+        if (priority == null) throw new IllegalArgumentException("The priority cannot be null.");
+        this.priority = priority;
+    }
+
+    public String getImageFormat() {
+        return imageFormat;
+    }
+
+    /**
+     * Sets the informal name of the format the image is encoded in, as {@code ImageIO.write} takes it.
+     *
+     * @param imageFormat the image format, such as {@code "png"}.
+     */
+    public void setImageFormat(String imageFormat) {
+        if (imageFormat == null) throw new IllegalArgumentException("The image format cannot be null.");
+        this.imageFormat = imageFormat;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the time from the submission of the job after which no more tiles are started. The tiles being rendered
+     * are finished and the job completes with the partial image, in the {@code TIMED_OUT} state.
+     *
+     * @param timeout the timeout, or {@code null} for no timeout.
+     * @throws IllegalArgumentException if the timeout is negative.
+     * @see RenderJob.State#TIMED_OUT
+     */
+    public void setTimeout(Duration timeout) {
+        if (timeout != null && timeout.isNegative()) {
+            throw new IllegalArgumentException("The timeout cannot be negative.");
+        }
+        this.timeout = timeout;
+    }
+}
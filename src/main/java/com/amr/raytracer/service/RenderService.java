@@ -0,0 +1,203 @@
+package com.amr.raytracer.service;
+
+import com.amr.raytracer.rendering.Framebuffer;
+import com.amr.raytracer.rendering.Scene;
+import com.amr.raytracer.rendering.TileRenderer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The {@code RenderService} class renders many independent jobs at the same time in a single process. Every job goes
+ * through three stages: its {@code Scene} is loaded, its tiles are rendered and its image is encoded. Loading and
+ * encoding spend most of their time waiting for files and streams, so they run on a pool of I/O threads that grows
+ * with the number of jobs. Rendering only needs the processors, so the tiles of every job are rendered by a fixed set
+ * of CPU threads, one per processor by default, however many jobs there are.<br>
+ * The CPU threads take the tiles of the jobs being rendered in turns chosen by a {@code FairShareScheduler}, so the
+ * processors are shared between the jobs in proportion to their {@code RenderPriority}, and a large job does not
+ * hold up the small ones submitted after it. A job can be cancelled at any stage; its tiles that are not being
+ * rendered are dropped. A job whose timeout passes stops getting tiles too, but its partial image is still encoded.
+ *
+ * @author Ángel Martínez
+ * @see RenderRequest
+ * @see RenderJob
+ */
+public class RenderService implements Closeable {
+
+    private final FairShareScheduler scheduler = new FairShareScheduler();
+    private final ExecutorService ioThreads = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "RenderService-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Thread[] cpuThreads;
+    private final Set<RenderJob> jobs = ConcurrentHashMap.newKeySet();
+    private boolean closed;
+
+    /**
+     * Constructs a {@code RenderService} object with one CPU thread per processor.
+     */
+    public RenderService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a {@code RenderService} object with the given number of CPU threads.
+     *
+     * @param cpuThreads the number of threads that render tiles.
+     */
+    public RenderService(int cpuThreads) {
+        if (cpuThreads < 1) throw new IllegalArgumentException("There must be at least one CPU thread.");
+        this.cpuThreads = new Thread[cpuThreads];
+        for (int i = 0; i < cpuThreads; i++) {
+            this.cpuThreads[i] = new Thread(this::renderTiles, "RenderService-cpu-" + i);
+            this.cpuThreads[i].setDaemon(true);
+            this.cpuThreads[i].start();
+        }
+    }
+
+    /**
+     * Returns the number of threads that render tiles.
+     *
+     * @return the number of CPU threads.
+     */
+    public int getCpuThreadCount() {
+        return cpuThreads.length;
+    }
+
+    /**
+     * Submits the given {@code RenderRequest} and returns its {@code RenderJob} at once. Its {@code Scene} starts
+     * loading on an I/O thread.
+     *
+     * @param request the {@code RenderRequest}.
+     * @return the {@code RenderJob} of the request.
+     * @throws IllegalStateException if this {@code RenderService} is closed.
+     */
+    public synchronized RenderJob submit(RenderRequest request) {
+        if (closed) throw new IllegalStateException("The render service is closed.");
+        RenderJob job = new RenderJob(this, request);
+        jobs.add(job);
+        job.getResult().whenComplete((image, e) -> jobs.remove(job));
+        ioThreads.execute(() -> load(job));
+        return job;
+    }
+
+    /**
+     * Stops the CPU threads and cancels the jobs that are not done, whose results complete with a
+     * {@code CancellationException}.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        scheduler.close();
+        ioThreads.shutdownNow();
+        for (RenderJob job : jobs) {
+            if (job.moveTo(RenderJob.State.CANCELLED)) {
+                job.getResult().completeExceptionally(new CancellationException("The render service was closed."));
+            }
+        }
+    }
+
+    /**
+     * Cancels the given job, if it has not finished yet.
+     */
+    boolean cancel(RenderJob job) {
+        if (!job.moveTo(RenderJob.State.CANCELLED)) return false;
+        scheduler.remove(job);
+        job.getResult().completeExceptionally(new CancellationException("The render job was cancelled."));
+        return true;
+    }
+
+    /**
+     * Loads the {@code Scene} of the given job and hands its tiles to the scheduler.
+     */
+    private void load(RenderJob job) {
+        try {
+            RenderRequest request = job.getRequest();
+            Scene scene = request.getSceneLoader().get();
+            if (scene == null) {
+                fail(job, new IllegalStateException("The scene could not be loaded."));
+                return;
+            }
+            TileRenderer renderer = new TileRenderer(scene, request.getResolution(), request.getAspectRatio(),
+                    request.getSettings(), job.getStatistics());
+            job.prepare(renderer);
+            if (job.getPendingTiles().isEmpty()) {
+                fail(job, new IllegalArgumentException("The image has no pixels."));
+                return;
+            }
+            if (job.moveTo(RenderJob.State.RENDERING)) scheduler.add(job);
+        } catch (Throwable e) {
+            // Even an error, such as running out of memory while loading, fails only this job
+            fail(job, e);
+        }
+    }
+
+    /**
+     * Renders the tiles handed out by the scheduler until it is closed. Run by every CPU thread.
+     */
+    private void renderTiles() {
+        while (true) {
+            FairShareScheduler.Assignment assignment;
+            try {
+                assignment = scheduler.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (assignment == null) return;
+            RenderJob job = assignment.getJob();
+            if (assignment.getTile() == null) {
+                finish(job);
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                job.getRenderer().render(assignment.getTile(), job.getFramebuffer());
+                job.completeTile();
+            } catch (Throwable e) {
+                // Even an error, such as a stack overflow in a deep scene, fails only this job and not the thread
+                scheduler.remove(job);
+                fail(job, e);
+            }
+            if (scheduler.complete(job, System.nanoTime() - start)) finish(job);
+        }
+    }
+
+    /**
+     * Hands the given job, which gets no more tiles, to an I/O thread to encode its image.
+     */
+    private void finish(RenderJob job) {
+        if (job.moveTo(RenderJob.State.ENCODING)) ioThreads.execute(() -> encode(job));
+    }
+
+    /**
+     * Encodes the image of the given job, whose tiles are all rendered or whose deadline passed, and completes it.
+     */
+    private void encode(RenderJob job) {
+        try {
+            Framebuffer framebuffer = job.getFramebuffer();
+            BufferedImage image = framebuffer.toImage();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (!ImageIO.write(image, job.getRequest().getImageFormat(), out)) {
+                throw new IOException("There is no writer for " + job.getRequest().getImageFormat() + ".");
+            }
+            RenderJob.State state = framebuffer.isComplete() ? RenderJob.State.DONE : RenderJob.State.TIMED_OUT;
+            if (job.moveTo(state)) job.getResult().complete(out.toByteArray());
+        } catch (Throwable e) {
+            // Even an error, such as running out of memory for a large image, fails the job instead of leaving it
+            fail(job, e);
+        }
+    }
+
+    private static void fail(RenderJob job, Throwable e) {
+        if (job.moveTo(RenderJob.State.FAILED)) job.getResult().completeExceptionally(e);
+    }
+}
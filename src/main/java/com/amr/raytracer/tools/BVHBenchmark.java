@@ -0,0 +1,127 @@
+package com.amr.raytracer.tools;
+
+import com.amr.raytracer.acceleration.BVH;
+import com.amr.raytracer.acceleration.BVHLayout;
+import com.amr.raytracer.acceleration.BVHQuality;
+import com.amr.raytracer.math.BoundingBox;
+import com.amr.raytracer.math.Ray;
+import com.amr.raytracer.math.Vector3D;
+import com.amr.raytracer.objects.Mesh;
+import com.amr.raytracer.objects.Model3D;
+import com.amr.raytracer.objects.Triangle;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static com.amr.raytracer.math.Vector3D.*;
+
+/**
+ * The {@code BVHBenchmark} class measures the acceleration structures built for the bundled models. For every model,
+ * {@code BVHQuality} and {@code BVHLayout} it prints the build throughput in triangles per second, the number of nodes
+ * and memory of the tree, its surface area heuristic cost and the traversal throughput in rays per second. It also
+ * moves a few triangles and prints the time taken to refit the tree to them and its cost afterwards, marked with
+ * {@code *} if the tree was rebuilt instead.<br>
+ * The OBJ files to measure can be given as arguments; by default every model of the {@code models/} folder is used.
+ *
+ * @author Ángel Martínez
+ * @see BVH
+ */
+public final class BVHBenchmark {
+
+    private static final String[] DEFAULT_MODELS = {
+            "models/Cube.obj", "models/Ring.obj", "models/SmallTeapot.obj", "models/Apple.obj", "models/mike.obj"
+    };
+    private static final int BUILDS = 5;
+    private static final int RAYS = 200000;
+    private static final double MOVED_FRACTION = 0.01;
+
+    private BVHBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark on the given OBJ files, or on the bundled models if none is given.
+     *
+     * @param args the OBJ files to measure.
+     */
+    public static void main(String[] args) {
+        String[] models = args.length > 0 ? args : DEFAULT_MODELS;
+        System.out.printf("%-24s %-9s %-7s %10s %14s %8s %8s %8s %12s %10s %10s%n", "model", "quality", "layout",
+                "build ms", "triangles/s", "nodes", "KB", "SAH", "rays/s", "refit ms", "refit SAH");
+        for (String filename : models) {
+            ArrayList<Triangle> triangles = ObjReader.readTriangles(filename);
+            if (triangles == null) continue;
+            for (BVHQuality quality : BVHQuality.values()) {
+                for (BVHLayout layout : BVHLayout.values()) {
+                    Mesh mesh = null;
+                    long buildNanos = Long.MAX_VALUE;
+                    for (int i = 0; i < BUILDS; i++) {
+                        mesh = new Mesh(triangles, quality, layout);
+                        buildNanos = Math.min(buildNanos, mesh.getBVH().getBuildNanos());
+                    }
+                    BVH bvh = mesh.getBVH();
+                    BVH refitted = moveTriangles(mesh).getBVH();
+                    System.out.printf("%-24s %-9s %-7s %10.2f %14.0f %8d %8.1f %8.2f %12.0f %10.3f %9.2f%s%n",
+                            filename, quality, layout, buildNanos / 1e6, triangles.size() / (buildNanos / 1e9),
+                            bvh.getNodeCount(), bvh.getMemorySize() / 1024.0, bvh.getSahCost(),
+                            measureTraversal(mesh), refitted.getBuildNanos() / 1e6, refitted.getSahCost(),
+                            refitted.getRefitCount() == 0 ? "*" : " ");
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves a random sample of the triangles of the given {@code Mesh} by a small random offset and returns the edited
+     * copy, whose {@code BVH} is refitted from the original one.
+     */
+    private static Mesh moveTriangles(Mesh mesh) {
+        BoundingBox bounds = mesh.getBVH().getBounds();
+        double step = 0.05 * Math.max(bounds.getMaxX() - bounds.getMinX(),
+                Math.max(bounds.getMaxY() - bounds.getMinY(), bounds.getMaxZ() - bounds.getMinZ()));
+        Random random = new Random(42);
+        int count = Math.max(1, (int) (MOVED_FRACTION * mesh.getTriangles().size()));
+        int[] indices = new int[count];
+        ArrayList<Triangle> moved = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            indices[i] = random.nextInt(mesh.getTriangles().size());
+            Vector3D offset = new Vector3D(random.nextGaussian() * step, random.nextGaussian() * step,
+                    random.nextGaussian() * step);
+            Vector3D[] vertices = mesh.getTriangles().get(indices[i]).getVertices();
+            moved.add(new Triangle(add(vertices[0], offset), add(vertices[1], offset), add(vertices[2], offset)));
+        }
+        return mesh.replaceTriangles(indices, moved);
+    }
+
+    /**
+     * Traces random rays from a sphere around the given {@code Mesh} towards random points of its bounds and returns
+     * the number of rays traced per second in the fastest of three runs. The rays are traced through a
+     * {@code Model3D} at the origin, the way the {@code RenderEngine} traces them.
+     */
+    private static double measureTraversal(Mesh mesh) {
+        BoundingBox bounds = mesh.getBVH().getBounds();
+        Vector3D center = new Vector3D(bounds.getCenter(0), bounds.getCenter(1), bounds.getCenter(2));
+        double radius = magnitude(subtract(new Vector3D(bounds.getMaxX(), bounds.getMaxY(), bounds.getMaxZ()), center));
+        Random random = new Random(42);
+        Ray[] rays = new Ray[RAYS];
+        for (int i = 0; i < RAYS; i++) {
+            Vector3D origin = add(center, multiply(normalize(new Vector3D(random.nextGaussian(),
+                    random.nextGaussian(), random.nextGaussian())), 2 * radius));
+            Vector3D target = new Vector3D(
+                    bounds.getMinX() + random.nextDouble() * (bounds.getMaxX() - bounds.getMinX()),
+                    bounds.getMinY() + random.nextDouble() * (bounds.getMaxY() - bounds.getMinY()),
+                    bounds.getMinZ() + random.nextDouble() * (bounds.getMaxZ() - bounds.getMinZ()));
+            rays[i] = new Ray(origin, subtract(target, origin));
+        }
+        Model3D model = new Model3D(new Vector3D(0, 0, 0), Color.WHITE, mesh);
+        // Warm up before measuring
+        for (int i = 0; i < RAYS / 10; i++) model.getIntersection(rays[i]);
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            for (Ray ray : rays) model.getIntersection(ray);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+        return RAYS / (bestNanos / 1e9);
+    }
+}
@@ -0,0 +1,261 @@
+package com.amr.raytracer.tools;
+
+import com.amr.raytracer.objects.Mesh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The {@code ModelCache} class keeps the {@code Mesh} objects read from OBJ files so that every {@code Model3D} built
+ * from the same file shares them, even across different scenes. Entries are keyed by the canonical path of the file
+ * and its modification time, so a modified file is read again. When the estimated memory of the cached meshes exceeds
+ * the memory budget, the least recently used ones are evicted.<br>
+ * A file requested by several threads at the same time is only read once. The numbers of hits, misses and evictions
+ * are counted so the cache can be monitored.
+ *
+ * @author Ángel Martínez
+ * @see Mesh
+ * @see ObjReader
+ */
+public class ModelCache {
+
+    /**
+     * The default memory budget of a {@code ModelCache}, in bytes.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 512L * 1024 * 1024;
+
+    private static final ModelCache SHARED = new ModelCache(DEFAULT_MEMORY_BUDGET, ObjReader::readMesh);
+
+    private final LinkedHashMap<Key, CompletableFuture<Mesh>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Function<String, Mesh> reader;
+    private long memoryBudget;
+    private long memorySize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructs a {@code ModelCache} object with the given memory budget that reads meshes with the given function.
+     *
+     * @param memoryBudget the memory budget in bytes.
+     * @param reader       the function that reads the {@code Mesh} of a file, returning {@code null} on failure.
+     */
+    ModelCache(long memoryBudget, Function<String, Mesh> reader) {
+        this.memoryBudget = memoryBudget;
+        this.reader = reader;
+    }
+
+    /**
+     * Returns the {@code ModelCache} shared by the whole process, which is the one used by the {@code ObjReader}.
+     *
+     * @return the shared {@code ModelCache}.
+     */
+    public static ModelCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the {@code Mesh} of the given OBJ file, reading it only if it is not cached or the file was modified
+     * since it was cached.
+     *
+     * @param filename the name of the OBJ file.
+     * @return the {@code Mesh} of the OBJ file, or {@code null} if it could not be read.
+     */
+    public Mesh getMesh(String filename) {
+        Key key = getKey(filename);
+        CompletableFuture<Mesh> entry;
+        boolean owner = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new CompletableFuture<>();
+                entries.put(key, entry);
+                owner = true;
+                misses.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+        }
+        if (!owner) {
+            try {
+                return entry.join();
+            } catch (CompletionException ex) {
+                return null;
+            }
+        }
+
+        Mesh mesh = null;
+        try {
+            mesh = reader.apply(filename);
+        } finally {
+            synchronized (this) {
+                if (mesh == null) {
+                    // Failures are not cached so the file can be read again later
+                    entries.remove(key, entry);
+                } else {
+                    removeStaleEntries(key);
+                    memorySize += mesh.getMemorySize();
+                    evict(key);
+                }
+            }
+            entry.complete(mesh);
+        }
+        return mesh;
+    }
+
+    /**
+     * Returns the memory budget of this {@code ModelCache}, in bytes.
+     *
+     * @return the memory budget of this {@code ModelCache}.
+     */
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Sets the memory budget of this {@code ModelCache}, in bytes, and evicts the least recently used meshes until the
+     * cached ones fit in it.
+     *
+     * @param memoryBudget the new memory budget.
+     */
+    public synchronized void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        evict(null);
+    }
+
+    /**
+     * Returns the estimated memory used by the cached meshes, in bytes.
+     *
+     * @return the estimated memory used by the cached meshes.
+     * @see Mesh#getMemorySize()
+     */
+    public synchronized long getMemorySize() {
+        return memorySize;
+    }
+
+    /**
+     * Returns the number of meshes that were found in this {@code ModelCache}.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of meshes that had to be read because they were not in this {@code ModelCache}.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of meshes evicted from this {@code ModelCache} to respect its memory budget.
+     *
+     * @return the number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Removes every mesh from this {@code ModelCache}. Meshes being read are kept.
+     */
+    public synchronized void clear() {
+        entries.values().removeIf(entry -> {
+            if (!entry.isDone()) return false;
+            Mesh mesh = entry.join();
+            if (mesh != null) memorySize -= mesh.getMemorySize();
+            return true;
+        });
+    }
+
+    /**
+     * Returns a string representation of this {@code ModelCache}.
+     *
+     * @return a string representation of this {@code ModelCache}.
+     */
+    @Override
+    public String toString() {
+        return "ModelCache{" +
+                "hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", evictions=" + getEvictions() +
+                ", memorySize=" + getMemorySize() +
+                ", memoryBudget=" + getMemoryBudget() +
+                '}';
+    }
+
+    /**
+     * Evicts the least recently used meshes until the cached ones fit in the memory budget. The given key, usually
+     * the one that was just added, is never evicted.
+     */
+    private void evict(Key keep) {
+        Iterator<Map.Entry<Key, CompletableFuture<Mesh>>> iterator = entries.entrySet().iterator();
+        while (memorySize > memoryBudget && iterator.hasNext()) {
+            Map.Entry<Key, CompletableFuture<Mesh>> entry = iterator.next();
+            if (entry.getKey().equals(keep) || !entry.getValue().isDone()) continue;
+            memorySize -= entry.getValue().join().getMemorySize();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the meshes of older versions of the file of the given key.
+     */
+    private void removeStaleEntries(Key key) {
+        Iterator<Map.Entry<Key, CompletableFuture<Mesh>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, CompletableFuture<Mesh>> entry = iterator.next();
+            if (entry.getKey().path.equals(key.path) && !entry.getKey().equals(key) && entry.getValue().isDone()) {
+                memorySize -= entry.getValue().join().getMemorySize();
+                iterator.remove();
+            }
+        }
+    }
+
+    private static Key getKey(String filename) {
+        File file = new File(filename);
+        String path;
+        try {
+            path = file.getCanonicalPath();
+        } catch (IOException ex) {
+            path = file.getAbsolutePath();
+        }
+        return new Key(path, file.lastModified());
+    }
+
+    private static final class Key {
+        final String path;
+        final long lastModified;
+
+        Key(String path, long lastModified) {
+            this.path = path;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return lastModified == key.lastModified && path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, lastModified);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.amr.raytracer.tools;
 
 import com.amr.raytracer.math.Vector3D;
+import com.amr.raytracer.objects.Mesh;
 import com.amr.raytracer.objects.Model3D;
 import com.amr.raytracer.objects.Triangle;
+import com.amr.raytracer.rendering.Scene;
 
 import java.awt.*;
 import java.io.BufferedReader;
@@ -11,17 +13,34 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.amr.raytracer.math.Vector3D.multiply;
 
 /**
- * The {@code ObjReader} class can read OBJ files and produce {@code Model3D} objects.
+ * The {@code ObjReader} class can read OBJ files and produce {@code Model3D} objects. Models can be loaded
+ * synchronously or asynchronously on a shared pool of loader threads, so several models can be parsed and smoothed
+ * at the same time. The {@code Mesh} of every file is kept in the shared {@code ModelCache}, so loading the same file
+ * again, even for another {@code Scene}, does not read it again.
  *
  * @author Ángel Martínez and Jafet Rodríguez 
  * @see Model3D
+ * @see ModelCache
  */
 public final class ObjReader {
-    
+
+    /**
+     * The pool of daemon threads where models are loaded asynchronously.
+     */
+    private static final ExecutorService LOADER = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "ObjReader-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     /**
      * Loads and returns a {@code Model3D} defined by the information in the given OBJ file, the given position, and
      * the given {@code Color}.
@@ -33,6 +52,62 @@ public final class ObjReader {
      * @see Model3D
      */
     public static Model3D loadModel(String filename, Vector3D position, Color color) {
+        Mesh mesh = ModelCache.getShared().getMesh(filename);
+        if (mesh == null) return null;
+        return new Model3D(position, color, mesh);
+    }
+
+    /**
+     * Starts loading a {@code Model3D} defined by the information in the given OBJ file, the given position, and
+     * the given {@code Color} on the loader threads, and returns immediately. The returned {@code CompletableFuture}
+     * can be registered directly in a {@code Scene}.
+     *
+     * @param filename the name of the OBJ file.
+     * @param position the position for the {@code Model3D}.
+     * @param color the {@code Color} for the {@code Model3D}.
+     * @return a {@code CompletableFuture} of the {@code Model3D}, which completes with {@code null} if the file could
+     * not be read.
+     * @see #loadModel(String, Vector3D, Color)
+     * @see Scene#addObject(CompletableFuture)
+     */
+    public static CompletableFuture<Model3D> loadModelAsync(String filename, Vector3D position, Color color) {
+        return CompletableFuture.supplyAsync(() -> loadModel(filename, position, color), LOADER);
+    }
+
+    /**
+     * Starts getting the {@code Mesh} of the given OBJ file from the shared {@code ModelCache} on the loader threads.
+     *
+     * @param filename the name of the OBJ file.
+     * @return a {@code CompletableFuture} of the {@code Mesh}, which completes with {@code null} if the file could not
+     * be read.
+     * @see ModelCache#getMesh(String)
+     */
+    static CompletableFuture<Mesh> loadMeshAsync(String filename) {
+        return CompletableFuture.supplyAsync(() -> ModelCache.getShared().getMesh(filename), LOADER);
+    }
+
+    /**
+     * Reads and returns the {@code Mesh} defined by the information in the given OBJ file, without using the
+     * {@code ModelCache}.
+     *
+     * @param filename the name of the OBJ file.
+     * @return the {@code Mesh} of the OBJ file, or {@code null} if it could not be read.
+     * @see Mesh
+     */
+    static Mesh readMesh(String filename) {
+        ArrayList<Triangle> triangles = readTriangles(filename);
+        return triangles == null ? null : new Mesh(triangles);
+    }
+
+    /**
+     * Reads and returns the triangles defined by the information in the given OBJ file, with their vertex normals
+     * smoothed regarding their smoothing groups.
+     *
+     * @param filename the name of the OBJ file.
+     * @return the triangles of the OBJ file, or {@code null} if it could not be read.
+     * @see Triangle
+     */
+    static ArrayList<Triangle> readTriangles(String filename) {
         try {
             BufferedReader reader = new BufferedReader(new FileReader(filename));
 
@@ -173,7 +248,7 @@ public final class ObjReader {
                 }
             }
 
-            return new Model3D(position, color, triangles);
+            return triangles;
         } catch (FileNotFoundException ex) {
             System.err.println("File not found");
         } catch (IOException ex) {
@@ -0,0 +1,74 @@
+package com.amr.raytracer.tools;
+
+import com.amr.raytracer.JavaRaytracer;
+import com.amr.raytracer.rendering.Scene;
+import com.amr.raytracer.service.RenderJob;
+import com.amr.raytracer.service.RenderPriority;
+import com.amr.raytracer.service.RenderRequest;
+import com.amr.raytracer.service.RenderService;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * The {@code RenderServiceBenchmark} class submits many small concurrent renders of the sample scenes to an
+ * in-process {@code RenderService}, with every priority, and prints the throughput of the service, the mean latency of
+ * the jobs of every priority and the number of threads of the process at the end, which shows that the number of
+ * rendering threads does not grow with the number of jobs.<br>
+ * The number of jobs and their resolution can be given as arguments; by default 48 jobs of 90 pixels are submitted.
+ *
+ * @author Ángel Martínez
+ * @see RenderService
+ */
+public final class RenderServiceBenchmark {
+
+    private RenderServiceBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark with the given number of jobs and resolution.
+     *
+     * @param args the number of jobs and the vertical resolution of every render.
+     */
+    public static void main(String[] args) {
+        int jobCount = args.length > 0 ? Integer.parseInt(args[0]) : 48;
+        int resolution = args.length > 1 ? Integer.parseInt(args[1]) : 90;
+        ArrayList<Supplier<Scene>> scenes = new ArrayList<>();
+        scenes.add(JavaRaytracer::getFloorSphereScene);
+        scenes.add(JavaRaytracer::getSpheresScene);
+        scenes.add(JavaRaytracer::getTeapotScene);
+        scenes.add(JavaRaytracer::getAppleScene);
+        RenderPriority[] priorities = RenderPriority.values();
+        try (RenderService service = new RenderService()) {
+            long start = System.nanoTime();
+            ArrayList<RenderJob> jobs = new ArrayList<>();
+            for (int i = 0; i < jobCount; i++) {
+                RenderRequest request = new RenderRequest(scenes.get(i % scenes.size()), resolution, 16f / 9);
+                request.setPriority(priorities[i % priorities.length]);
+                jobs.add(service.submit(request));
+            }
+            EnumMap<RenderPriority, Double> latencies = new EnumMap<>(RenderPriority.class);
+            EnumMap<RenderPriority, Integer> counts = new EnumMap<>(RenderPriority.class);
+            for (RenderJob job : jobs) {
+                try {
+                    job.getResult().join();
+                } catch (CompletionException e) {
+                    System.err.println("A job failed." + e);
+                    continue;
+                }
+                RenderPriority priority = job.getRequest().getPriority();
+                latencies.merge(priority, job.getLatencyNanos() / 1e6, Double::sum);
+                counts.merge(priority, 1, Integer::sum);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d jobs in %.2f s, %.1f jobs/s, %d CPU threads, %d threads in the process%n",
+                    jobCount, seconds, jobCount / seconds, service.getCpuThreadCount(), Thread.activeCount());
+            for (RenderPriority priority : counts.keySet()) {
+                System.out.printf("%-7s mean latency %8.1f ms%n", priority,
+                        latencies.get(priority) / counts.get(priority));
+            }
+        }
+    }
+}
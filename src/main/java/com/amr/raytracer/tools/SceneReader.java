@@ -0,0 +1,198 @@
+package com.amr.raytracer.tools;
+
+import com.amr.raytracer.math.Vector3D;
+import com.amr.raytracer.objects.Mesh;
+import com.amr.raytracer.objects.Model3D;
+import com.amr.raytracer.objects.Plane;
+import com.amr.raytracer.objects.Sphere;
+import com.amr.raytracer.rendering.Material;
+import com.amr.raytracer.rendering.Scene;
+import com.amr.raytracer.rendering.cameras.PerspectiveCamera;
+import com.amr.raytracer.rendering.lights.DirectionalLight;
+import com.amr.raytracer.rendering.lights.Light;
+import com.amr.raytracer.rendering.lights.PointLight;
+
+import java.awt.*;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The {@code SceneReader} class can read scene description files and produce {@code Scene} objects. A scene file is a
+ * text file with one statement per line; empty lines and lines starting with {@code #} are ignored. The available
+ * statements are the following, where colors are written in hexadecimal ({@code #RRGGBB}) and the optional material
+ * is the name of a previously declared material:
+ * <pre>
+ * camera           x y z yaw pitch near far fov
+ * material         name ambient diffuse specular shininess reflectivity
+ * plane            y color [material]
+ * sphere           x y z radius color [material]
+ * model            path x y z color [material]
+ * pointlight       x y z color intensity [cutoff]
+ * directionallight x y z color intensity [cutoff]
+ * </pre>
+ * The file is parsed as it is read. Model paths are relative to the directory of the scene file; every distinct OBJ
+ * file is read only once and its {@code Mesh} is shared by every model that references it. The files are read in
+ * parallel on the loader threads of the {@code ObjReader} while the rest of the scene file is parsed, and the models
+ * are registered in the {@code Scene} as they are being loaded, so this method returns before they are ready.
+ *
+ * @author Ángel Martínez
+ * @see Scene
+ * @see ObjReader
+ */
+public final class SceneReader {
+
+    private SceneReader() {
+    }
+
+    /**
+     * Loads and returns the {@code Scene} described by the given scene file. Invalid statements are reported and
+     * skipped. A scene without a {@code camera} statement cannot be rendered, so it is reported too.
+     *
+     * @param filename the name of the scene file.
+     * @return the {@code Scene}, or {@code null} if the file could not be read or has no camera.
+     * @see Scene
+     * @see Scene#awaitObjects()
+     */
+    public static Scene loadScene(String filename) {
+        File directory = new File(filename).getAbsoluteFile().getParentFile();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+            Scene scene = new Scene();
+            HashMap<String, Material> materials = new HashMap<>();
+            HashMap<String, CompletableFuture<Mesh>> meshes = new HashMap<>();
+
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] tokens = line.split("(\\s)+");
+                try {
+                    switch (tokens[0]) {
+                        case "camera":
+                            scene.setCamera(new PerspectiveCamera(readVector(tokens, 1), readDouble(tokens, 4),
+                                    readDouble(tokens, 5), readDouble(tokens, 6), readDouble(tokens, 7),
+                                    readDouble(tokens, 8)));
+                            break;
+                        case "material":
+                            materials.put(tokens[1], new Material(readDouble(tokens, 2), readDouble(tokens, 3),
+                                    readDouble(tokens, 4), readDouble(tokens, 5), readDouble(tokens, 6)));
+                            break;
+                        case "plane": {
+                            Plane plane = new Plane(readDouble(tokens, 1), readColor(tokens, 2));
+                            plane.setMaterial(readMaterial(tokens, 3, materials));
+                            scene.addObject(plane);
+                            break;
+                        }
+                        case "sphere":
+                            scene.addObject(new Sphere(readVector(tokens, 1), readDouble(tokens, 4),
+                                    readColor(tokens, 5), readMaterial(tokens, 6, materials)));
+                            break;
+                        case "model": {
+                            String path = new File(directory, tokens[1]).getPath();
+                            Vector3D position = readVector(tokens, 2);
+                            Color color = readColor(tokens, 5);
+                            Material material = readMaterial(tokens, 6, materials);
+                            CompletableFuture<Mesh> mesh = meshes.computeIfAbsent(path, ObjReader::loadMeshAsync);
+                            scene.addObject(mesh.thenApply(loadedMesh -> {
+                                if (loadedMesh == null) return null;
+                                Model3D model = new Model3D(position, color, loadedMesh);
+                                model.setMaterial(material);
+                                return model;
+                            }));
+                            break;
+                        }
+                        case "pointlight":
+                            scene.addLight(readCutoff(new PointLight(readVector(tokens, 1), readColor(tokens, 4),
+                                    readDouble(tokens, 5)), tokens, 6));
+                            break;
+                        case "directionallight":
+                            scene.addLight(readCutoff(new DirectionalLight(readVector(tokens, 1),
+                                    readColor(tokens, 4), readDouble(tokens, 5)), tokens, 6));
+                            break;
+                        default:
+                            System.err.println("Unknown statement at line " + lineNumber + ": " + line);
+                    }
+                } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+                    System.err.println("Invalid statement at line " + lineNumber + ": " + line);
+                }
+            }
+            if (scene.getCamera() == null) {
+                System.err.println("Missing camera statement in " + filename);
+                return null;
+            }
+            return scene;
+        } catch (FileNotFoundException ex) {
+            System.err.println("File not found");
+        } catch (IOException ex) {
+            System.err.println("Exception found");
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the SHA-256 hash, in hexadecimal, of the contents of the given scene file and of the OBJ files of its
+     * models, which identifies the {@code Scene} it describes, such as for a {@code RenderCheckpoint}.
+     *
+     * @param filename the name of the scene file.
+     * @return the hash of the scene, or {@code null} if a file could not be read.
+     * @see com.amr.raytracer.rendering.RenderCheckpoint
+     */
+    public static String getSceneHash(String filename) {
+        File directory = new File(filename).getAbsoluteFile().getParentFile();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String line : Files.readAllLines(Paths.get(filename))) {
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+                String[] tokens = line.trim().split("(\\s)+");
+                if (tokens[0].equals("model") && tokens.length > 1) {
+                    digest.update(Files.readAllBytes(new File(directory, tokens[1]).toPath()));
+                }
+            }
+            StringBuilder hash = new StringBuilder();
+            for (byte b : digest.digest()) hash.append(String.format("%02x", b));
+            return hash.toString();
+        } catch (IOException e) {
+            System.err.println("There was an error hashing the scene." + e);
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double readDouble(String[] tokens, int index) {
+        return Double.parseDouble(tokens[index]);
+    }
+
+    private static Vector3D readVector(String[] tokens, int index) {
+        return new Vector3D(readDouble(tokens, index), readDouble(tokens, index + 1), readDouble(tokens, index + 2));
+    }
+
+    private static Color readColor(String[] tokens, int index) {
+        return Color.decode(tokens[index]);
+    }
+
+    private static Material readMaterial(String[] tokens, int index, HashMap<String, Material> materials) {
+        if (index >= tokens.length) return Material.DEFAULT;
+        Material material = materials.get(tokens[index]);
+        if (material == null) throw new IllegalArgumentException("Unknown material " + tokens[index]);
+        return material;
+    }
+
+    private static Light readCutoff(Light light, String[] tokens, int index) {
+        if (index < tokens.length) light.setCutoff(readDouble(tokens, index));
+        return light;
+    }
+}